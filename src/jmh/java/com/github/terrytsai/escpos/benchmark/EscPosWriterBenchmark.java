@@ -0,0 +1,113 @@
+package com.github.terrytsai.escpos.benchmark;
+
+import com.github.terrytsai.escpos.EscPosWriter;
+import com.github.terrytsai.escpos.FlushPolicy;
+import com.github.terrytsai.escpos.enums.*;
+import org.openjdk.jmh.annotations.*;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Formatting hot paths of {@link EscPosWriter}, writing to a stream that discards everything.
+ * Run with {@code -prof gc} to report allocations as B/op (gc.alloc.rate.norm).
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class EscPosWriterBenchmark {
+
+    private static final String[] ITEMS = {
+            "2 x Cheeseburger              17.98",
+            "1 x Fries (large)              4.49",
+            "1 x Iced Tea                   2.99",
+            "3 x Apple Pie                  7.47",
+            "1 x Caesar Salad - no croutons 8.99"
+    };
+
+    private NullOutputStream out;
+    private EscPosWriter writer;
+
+    @Setup
+    public void setup() {
+        out = new NullOutputStream();
+        writer = new EscPosWriter(out, FlushPolicy.BUFFER_FULL);
+    }
+
+    @State(Scope.Thread)
+    public static class Encoding {
+
+        @Param({"PC437", "PC858", "WPC1252", "KATAKANA"})
+        public CharacterCodeTable characterCodeTable;
+
+    }
+
+    @State(Scope.Thread)
+    public static class Payload {
+
+        @Param({"64", "4096", "65536"})
+        public int size;
+
+        private byte[] bytes;
+        private ByteBuffer directBytes;
+
+        @Setup
+        public void setup() {
+            bytes = new byte[size];
+            directBytes = ByteBuffer.allocateDirect(size);
+        }
+
+    }
+
+    @Benchmark
+    public long receipt() {
+        writer.initialize()
+                .setCharacterCodeTable(CharacterCodeTable.PC437)
+                .setJustification(Justification.CENTER)
+                .setCharacterSize(Width.X2, Height.X2)
+                .setEmphasize(true)
+                .text("ACME BURGERS")
+                .printAndFeedLine()
+                .setCharacterSize(Width.X1, Height.X1)
+                .setEmphasize(false)
+                .text("123 Main Street")
+                .printAndFeedLines(2)
+                .setJustification(Justification.LEFT);
+        for (String item : ITEMS) {
+            writer.text(item).printAndFeedLine();
+        }
+        writer.setEmphasize(true)
+                .text("TOTAL                         41.92")
+                .printAndFeedLines(4)
+                .cut(CutA.PARTIAL)
+                .flush();
+        return out.bytes;
+    }
+
+    @Benchmark
+    public long text(Encoding encoding) {
+        writer.setCharacterCodeTable(encoding.characterCodeTable);
+        for (String item : ITEMS) {
+            writer.text(item);
+        }
+        writer.flush();
+        return out.bytes;
+    }
+
+    @Benchmark
+    public long bytesArray(Payload payload) {
+        writer.bytes(payload.bytes).flush();
+        return out.bytes;
+    }
+
+    @Benchmark
+    public long bytesDirectBuffer(Payload payload) {
+        payload.directBytes.clear();
+        writer.bytes(payload.directBytes).flush();
+        return out.bytes;
+    }
+
+}
@@ -0,0 +1,67 @@
+package com.github.terrytsai.escpos.benchmark;
+
+import com.github.terrytsai.escpos.EscPosWriter;
+import com.github.terrytsai.escpos.FlushPolicy;
+import com.github.terrytsai.escpos.enums.*;
+import com.github.terrytsai.escpos.net.LoopbackPrinter;
+import com.github.terrytsai.escpos.net.NetworkConfig;
+import com.github.terrytsai.escpos.net.NetworkPrinter;
+import com.github.terrytsai.escpos.net.NetworkTransport;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.OutputStream;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Transmission of a receipt over TCP to a {@link LoopbackPrinter}, through the selector-driven transport.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class NetworkTransportBenchmark {
+
+    @Param({"LINE_FEED", "BUFFER_FULL"})
+    public FlushPolicy flushPolicy;
+
+    private LoopbackPrinter printer;
+    private NetworkTransport transport;
+    private OutputStream out;
+    private EscPosWriter writer;
+
+    @Setup
+    public void setup() throws Exception {
+        printer = new LoopbackPrinter(false);
+        transport = new NetworkTransport();
+        NetworkPrinter connection = transport.connect(printer.getAddress(), NetworkConfig.CONFIG_DEFAULT()).get();
+        out = connection.getOutputStream();
+        writer = new EscPosWriter(out, flushPolicy);
+    }
+
+    @TearDown
+    public void tearDown() {
+        transport.close();
+        printer.close();
+    }
+
+    @Benchmark
+    public EscPosWriter receipt() {
+        writer.initialize()
+                .setJustification(Justification.CENTER)
+                .setCharacterSize(Width.X2, Height.X2)
+                .text("ACME BURGERS")
+                .printAndFeedLine()
+                .setCharacterSize(Width.X1, Height.X1)
+                .setJustification(Justification.LEFT);
+        for (int i = 0; i < 20; i++) {
+            writer.text("1 x Item                        9.99").printAndFeedLine();
+        }
+        // flush() waits until the transport has sent the receipt
+        return writer.printAndFeedLines(4)
+                .cut(CutA.PARTIAL)
+                .flush();
+    }
+
+}
@@ -0,0 +1,22 @@
+package com.github.terrytsai.escpos.benchmark;
+
+import java.io.OutputStream;
+
+/**
+ * Discards everything written to it, counting bytes so the JIT cannot eliminate the writes.
+ */
+class NullOutputStream extends OutputStream {
+
+    long bytes;
+
+    @Override
+    public void write(int b) {
+        bytes++;
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) {
+        bytes += len;
+    }
+
+}
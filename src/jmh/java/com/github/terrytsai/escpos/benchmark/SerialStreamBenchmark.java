@@ -0,0 +1,58 @@
+package com.github.terrytsai.escpos.benchmark;
+
+import com.github.terrytsai.escpos.EscPosWriter;
+import com.github.terrytsai.escpos.FlushPolicy;
+import com.github.terrytsai.escpos.enums.*;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Transmission of a receipt to a throttled in-memory stand-in for a {@code SerialPort} OutputStream,
+ * where each write call carries a fixed native-call overhead.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class SerialStreamBenchmark {
+
+    @Param({"EVERY_COMMAND", "LINE_FEED", "BUFFER_FULL"})
+    public FlushPolicy flushPolicy;
+
+    @Param({"2000"})
+    public long callNanos;
+
+    @Param({"0"})
+    public long byteNanos;
+
+    private ThrottledOutputStream out;
+    private EscPosWriter writer;
+
+    @Setup
+    public void setup() {
+        out = new ThrottledOutputStream(callNanos, byteNanos);
+        writer = new EscPosWriter(out, flushPolicy);
+    }
+
+    @Benchmark
+    public long receipt() {
+        writer.initialize()
+                .setJustification(Justification.CENTER)
+                .setCharacterSize(Width.X2, Height.X2)
+                .text("ACME BURGERS")
+                .printAndFeedLine()
+                .setCharacterSize(Width.X1, Height.X1)
+                .setJustification(Justification.LEFT);
+        for (int i = 0; i < 20; i++) {
+            writer.text("1 x Item                        9.99").printAndFeedLine();
+        }
+        writer.printAndFeedLines(4)
+                .cut(CutA.PARTIAL)
+                .flush();
+        return out.bytes;
+    }
+
+}
@@ -0,0 +1,41 @@
+package com.github.terrytsai.escpos.benchmark;
+
+import java.io.OutputStream;
+
+/**
+ * In-memory stand-in for a SerialPort OutputStream.
+ * <p>
+ * Every write call costs a fixed overhead, modelling the native call into the serial driver, plus a
+ * per-byte cost. Time is spent busy-waiting so results are not distorted by scheduler sleeps.
+ */
+class ThrottledOutputStream extends OutputStream {
+
+    private final long callNanos;
+    private final long byteNanos;
+    long bytes;
+
+    ThrottledOutputStream(long callNanos, long byteNanos) {
+        this.callNanos = callNanos;
+        this.byteNanos = byteNanos;
+    }
+
+    @Override
+    public void write(int b) {
+        spin(callNanos + byteNanos);
+        bytes++;
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) {
+        spin(callNanos + byteNanos * len);
+        bytes += len;
+    }
+
+    private static void spin(long nanos) {
+        long end = System.nanoTime() + nanos;
+        while (System.nanoTime() < end) {
+            // Busy wait
+        }
+    }
+
+}
@@ -0,0 +1,23 @@
+package com.github.terrytsai.escpos;
+
+/**
+ * Controls what {@link PrinterChannel#submit(PrintJob)} does when the job queue is full.
+ */
+public enum Backpressure {
+
+    /**
+     * Blocks the submitting thread until the queue has room.
+     */
+    BLOCK,
+
+    /**
+     * Rejects the new job, its future completes exceptionally with a RejectedExecutionException.
+     */
+    REJECT,
+
+    /**
+     * Discards the oldest queued job to make room, its future is cancelled. The job being written is never discarded.
+     */
+    DROP_OLDEST
+
+}
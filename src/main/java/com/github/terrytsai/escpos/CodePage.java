@@ -0,0 +1,70 @@
+package com.github.terrytsai.escpos;
+
+import com.github.terrytsai.escpos.enums.CharacterCodeTable;
+
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.CharacterCodingException;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CodingErrorAction;
+import java.util.Arrays;
+
+/**
+ * Precomputed char-to-byte lookup tables for the single byte character code tables.
+ * <p>
+ * Each table has one entry per UTF-16 code unit. Characters the code table cannot represent map to
+ * {@link #UNMAPPABLE}. Code tables without an equivalent Java charset map only 7-bit ASCII.
+ */
+final class CodePage {
+
+    static final byte UNMAPPABLE = '?';
+
+    private static final int ASCII = 128;
+    private static final byte[][] TABLES = new byte[256][];
+
+    private CodePage() {
+    }
+
+    static synchronized byte[] table(CharacterCodeTable characterCodeTable) {
+        byte[] table = TABLES[characterCodeTable.code];
+        if (table == null) {
+            table = build(characterCodeTable.charset);
+            TABLES[characterCodeTable.code] = table;
+        }
+        return table;
+    }
+
+    private static byte[] build(String charset) {
+        byte[] table = new byte[Character.MAX_VALUE + 1];
+        Arrays.fill(table, UNMAPPABLE);
+        if (charset == null || !Charset.isSupported(charset)) {
+            for (int c = 0; c < ASCII; c++) {
+                table[c] = (byte) c;
+            }
+            return table;
+        }
+
+        CharsetDecoder decoder = Charset.forName(charset).newDecoder()
+                .onMalformedInput(CodingErrorAction.REPORT)
+                .onUnmappableCharacter(CodingErrorAction.REPORT);
+        boolean[] mapped = new boolean[Character.MAX_VALUE + 1];
+        for (int b = 0; b < 256; b++) {
+            try {
+                CharBuffer decoded = decoder.reset().decode(ByteBuffer.wrap(new byte[]{(byte) b}));
+                if (decoded.remaining() == 1) {
+                    char c = decoded.get();
+                    // The lowest byte wins when a code table repeats a character
+                    if (!mapped[c]) {
+                        mapped[c] = true;
+                        table[c] = (byte) b;
+                    }
+                }
+            } catch (CharacterCodingException ignored) {
+                // Byte is undefined in this code table
+            }
+        }
+        return table;
+    }
+
+}
@@ -1,10 +1,17 @@
 package com.github.terrytsai.escpos;
 
 import com.github.terrytsai.escpos.enums.*;
+import com.github.terrytsai.escpos.image.RasterImage;
 
 import java.io.IOException;
 import java.io.OutputStream;
 import java.io.UncheckedIOException;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
 
 /**
  * Fluent style api for ESC/POS
@@ -12,6 +19,7 @@ import java.io.UncheckedIOException;
 @SuppressWarnings({"unused", "SameParameterValue"})
 public class EscPosWriter {
 
+    private static final int EOT = 4;
     private static final int ENQ = 5;
     private static final int HT = 9;
     private static final int LF = 10;
@@ -25,15 +33,115 @@ public class EscPosWriter {
     private static final int GS = 29;
     private static final int SP = 32;
 
+    // Largest command header reserved in one piece, GS 8 L of defineGraphics
+    private static final int MIN_BUFFER_SIZE = 18;
+    private static final int DEFAULT_BUFFER_SIZE = 4096;
+    private static final int DEFAULT_BAND_HEIGHT = 256;
+    private static final int MAX_GRAPHICS_DATA = 65525;
+    private static final int MAX_SYMBOL_DATA = 65532;
+    private static final int PDF417 = 48;
+    private static final int QR_CODE = 49;
+    private static final int MAXI_CODE = 50;
+
     private final OutputStream out;
+    private final FlushPolicy flushPolicy;
+    private final byte[] buf;
+    private final ByteBuffer window;
+    private int count;
+
+    private List<Runnable> initializeListeners;
+    private PrinterState state;
+
+    // Package-private for ReceiptTemplate
+    byte[] encoding = CodePage.table(CharacterCodeTable.PC437);
+    boolean encodingSelected;
+
+    // Package-private for PrintJob, runs after each complete command
+    Runnable commitListener;
 
     /**
      * Constructor
+     * <p>
+     * Each command is written to the OutputStream in a single bulk write as soon as it is complete.
      *
      * @param out OutputStream
      */
     public EscPosWriter(OutputStream out) {
+        this(out, FlushPolicy.EVERY_COMMAND);
+    }
+
+    /**
+     * Constructor
+     *
+     * @param out         OutputStream
+     * @param flushPolicy when to write buffered data to the OutputStream
+     */
+    public EscPosWriter(OutputStream out, FlushPolicy flushPolicy) {
+        this(out, flushPolicy, DEFAULT_BUFFER_SIZE);
+    }
+
+    /**
+     * Constructor
+     *
+     * @param out         OutputStream
+     * @param flushPolicy when to write buffered data to the OutputStream
+     * @param bufferSize  size of the encode buffer in bytes, also the largest single write made by the policy
+     */
+    public EscPosWriter(OutputStream out, FlushPolicy flushPolicy, int bufferSize) {
+        if (out == null || flushPolicy == null) {
+            throw new IllegalArgumentException(EscPosWriter.class.getSimpleName() + " does not accept null values");
+        }
+        if (bufferSize < MIN_BUFFER_SIZE) {
+            throw new IllegalArgumentException("bufferSize must be at least " + MIN_BUFFER_SIZE);
+        }
         this.out = out;
+        this.flushPolicy = flushPolicy;
+        this.buf = new byte[bufferSize];
+        this.window = ByteBuffer.wrap(buf);
+    }
+
+    /**
+     * Registers a listener that runs each time {@link #initialize()} is called, for example to drop
+     * host-side records of printer memory that ESC @ clears.
+     *
+     * @param listener listener
+     * @return {@link EscPosWriter}
+     */
+    public EscPosWriter addInitializeListener(Runnable listener) {
+        if (initializeListeners == null) {
+            initializeListeners = new ArrayList<>();
+        }
+        initializeListeners.add(listener);
+        return this;
+    }
+
+    /**
+     * Enables or disables state tracking. While enabled, the writer mirrors the print modes it has set and drops
+     * mode commands that would not change them, for example a {@code setEmphasize(false)} before each line.
+     * <p>
+     * [Notes]
+     * - Modes start unknown, so the first command for each mode is always sent. {@link #initialize()} makes the power-on settings known, except the character set, the character code table and the print area width, which depend on memory switches.
+     * - Raw bytes, {@link #executeMacro(int, int, MacroMode)} and {@link #sendRealTimeRequestPowerOff()} make every mode unknown again. Commands sent between {@link #startMacroDefinition()} and {@link #endMacroDefinition()} are always sent.
+     * - Switching between Standard mode and Page mode makes the line spacing, the right-side character spacing and unidirectional printing unknown, the printer keeps them per mode.
+     * - Tracking assumes the writer is the only source of commands for the printer since it was enabled.
+     * - Disabling tracking forgets the state and resets {@link #getBytesSaved()}.
+     *
+     * @param enabled true to track the printer state
+     * @return {@link EscPosWriter}
+     */
+    public EscPosWriter trackState(boolean enabled) {
+        state = enabled ? new PrinterState() : null;
+        return this;
+    }
+
+    /**
+     * Bytes of redundant mode commands dropped since state tracking was enabled.
+     *
+     * @return bytes saved, 0 when tracking is disabled
+     * @see #trackState(boolean)
+     */
+    public long getBytesSaved() {
+        return state == null ? 0 : state.getSaved();
     }
 
     ///////////////////////////////////////////////
@@ -47,9 +155,38 @@ public class EscPosWriter {
      *
      * @param text string
      * @return {@link EscPosWriter}
+     * @see #text(CharSequence)
      */
     public EscPosWriter text(String text) {
-        return bytes(text.getBytes());
+        return text((CharSequence) text);
+    }
+
+    /**
+     * Sends text to the printer, encoded with the character code table selected by
+     * {@link #setCharacterCodeTable(CharacterCodeTable)} (PC437 until one is selected or after {@link #initialize()}).
+     * <p>
+     * [Notes]
+     * - Characters are encoded directly into the encode buffer through a precomputed lookup table, no garbage is produced.
+     * - Characters the selected code table cannot represent, including surrogate pairs, are sent as a single '?'.
+     * - Code tables without an equivalent Java charset (Kanji, Hiragana, Thai, Indic, pages 254/255, etc.) only encode 7-bit ASCII.
+     *
+     * @param text character sequence
+     * @return {@link EscPosWriter}
+     */
+    public EscPosWriter text(CharSequence text) {
+        byte[] table = encoding;
+        int len = text.length();
+        for (int i = 0; i < len; i++) {
+            if (count == buf.length) {
+                drain();
+            }
+            char c = text.charAt(i);
+            if (Character.isHighSurrogate(c) && i + 1 < len && Character.isLowSurrogate(text.charAt(i + 1))) {
+                i++;
+            }
+            buf[count++] = table[c];
+        }
+        return commit(-1, -1);
     }
 
     /**
@@ -59,10 +196,90 @@ public class EscPosWriter {
      * @return {@link EscPosWriter}
      */
     public EscPosWriter bytes(byte[] bytes) {
+        append(bytes, 0, bytes.length);
+        forget();
+        return commit(-1, -1);
+    }
+
+    /**
+     * Sends a slice of a raw byte array to the printer. The array is not copied when the slice is larger than
+     * the encode buffer.
+     *
+     * @param bytes byte array
+     * @param off   start offset in the array
+     * @param len   number of bytes to send
+     * @return {@link EscPosWriter}
+     */
+    public EscPosWriter bytes(byte[] bytes, int off, int len) {
+        if ((off | len | (off + len) | (bytes.length - (off + len))) < 0) {
+            throw new IndexOutOfBoundsException("off " + off + ", len " + len + ", length " + bytes.length);
+        }
+        append(bytes, off, len);
+        forget();
+        return commit(-1, -1);
+    }
+
+    /**
+     * Sends the remaining bytes of a buffer to the printer, advancing its position to its limit.
+     * Heap buffers are passed through like {@link #bytes(byte[], int, int)}, direct buffers are
+     * transferred through the encode buffer.
+     *
+     * @param bytes byte buffer
+     * @return {@link EscPosWriter}
+     */
+    public EscPosWriter bytes(ByteBuffer bytes) {
+        if (bytes.hasArray()) {
+            append(bytes.array(), bytes.arrayOffset() + bytes.position(), bytes.remaining());
+            ((Buffer) bytes).position(bytes.limit());
+        } else {
+            while (bytes.hasRemaining()) {
+                reserve(Math.min(bytes.remaining(), buf.length));
+                int n = Math.min(bytes.remaining(), buf.length - count);
+                bytes.get(buf, count, n);
+                count += n;
+            }
+        }
+        forget();
+        return commit(-1, -1);
+    }
+
+    /**
+     * Sends bytes read from a channel to the printer until the channel reaches end-of-stream.
+     * Data is read directly into the encode buffer. The channel must be in blocking mode.
+     *
+     * @param channel readable channel
+     * @return {@link EscPosWriter}
+     */
+    public EscPosWriter bytes(ReadableByteChannel channel) {
         try {
-            for (byte v : bytes) {
-                out.write(v);
+            while (true) {
+                if (count == buf.length) {
+                    drain();
+                }
+                // Cast keeps Java 8 compatible Buffer signatures
+                ((Buffer) window).position(count);
+                int n = channel.read(window);
+                if (n < 0) {
+                    break;
+                }
+                count += n;
             }
+            forget();
+            return commit(-1, -1);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Writes all buffered data to the OutputStream and flushes it.
+     *
+     * @return {@link EscPosWriter}
+     */
+    public EscPosWriter flush() {
+        drain();
+        try {
+            out.flush();
             return this;
         } catch (IOException e) {
             throw new UncheckedIOException(e);
@@ -102,6 +319,7 @@ public class EscPosWriter {
      * @return {@link EscPosWriter}
      */
     public EscPosWriter printAndReturnToStandardMode() {
+        modeSwitched();
         return write(FF);
     }
 
@@ -235,7 +453,7 @@ public class EscPosWriter {
      * @return {@link EscPosWriter}
      */
     public EscPosWriter setDefaultLineSpacing() {
-        return write(ESC, '2');
+        return unchanged(PrinterState.LINE_SPACING, PrinterState.DEFAULT_LINE_SPACING, 2) ? this : write(ESC, '2');
     }
 
     /**
@@ -258,7 +476,7 @@ public class EscPosWriter {
      * @return {@link EscPosWriter}
      */
     public EscPosWriter setLineSpacing(int n) {
-        return write(ESC, '3', n);
+        return unchanged(PrinterState.LINE_SPACING, n & 0xFF, 3) ? this : write(ESC, '3', n);
     }
 
     ///////////////////////////////////////////////
@@ -305,7 +523,7 @@ public class EscPosWriter {
                 | (doubleHeight ? 16 : 0)
                 | (doubleWidth ? 32 : 0)
                 | (underlined ? 128 : 0);
-        return write(ESC, '!', n);
+        return state != null && state.printModeUnchanged(n) ? this : write(ESC, '!', n);
     }
 
     /**
@@ -342,7 +560,7 @@ public class EscPosWriter {
      * @return {@link EscPosWriter}
      */
     public EscPosWriter setRightSideCharacterSpacing(int n) {
-        return write(ESC, SP, n);
+        return unchanged(PrinterState.RIGHT_SIDE_CHARACTER_SPACING, n & 0xFF, 3) ? this : write(ESC, SP, n);
     }
 
     /**
@@ -361,7 +579,8 @@ public class EscPosWriter {
      * @return {@link EscPosWriter}
      */
     public EscPosWriter setUnderline(Underline underline) {
-        return write(ESC, '-', underline.code);
+        return unchanged(PrinterState.UNDERLINE, PrinterState.code(underline.code), 3) ? this
+                : write(ESC, '-', underline.code);
     }
 
     /**
@@ -375,7 +594,7 @@ public class EscPosWriter {
      * @return {@link EscPosWriter}
      */
     public EscPosWriter setEmphasize(boolean enabled) {
-        return write(ESC, 'E', enabled ? 1 : 0);
+        return unchanged(PrinterState.EMPHASIZE, enabled ? 1 : 0, 3) ? this : write(ESC, 'E', enabled ? 1 : 0);
     }
 
     /**
@@ -389,7 +608,7 @@ public class EscPosWriter {
      * @return {@link EscPosWriter}
      */
     public EscPosWriter setDoubleStrike(boolean enabled) {
-        return write(ESC, 'G', enabled ? 1 : 0);
+        return unchanged(PrinterState.DOUBLE_STRIKE, enabled ? 1 : 0, 3) ? this : write(ESC, 'G', enabled ? 1 : 0);
     }
 
     /**
@@ -405,7 +624,7 @@ public class EscPosWriter {
      * @return {@link EscPosWriter}
      */
     public EscPosWriter setFont(Font font) {
-        return write(ESC, 'M', font.code);
+        return unchanged(PrinterState.FONT, PrinterState.code(font.code), 3) ? this : write(ESC, 'M', font.code);
     }
 
     /**
@@ -419,7 +638,8 @@ public class EscPosWriter {
      * @return {@link EscPosWriter}
      */
     public EscPosWriter setCharacterSet(CharacterSet characterSet) {
-        return write(ESC, 'R', characterSet.code);
+        return unchanged(PrinterState.CHARACTER_SET, characterSet.code, 3) ? this
+                : write(ESC, 'R', characterSet.code);
     }
 
     /**
@@ -438,7 +658,8 @@ public class EscPosWriter {
      * @return {@link EscPosWriter}
      */
     public EscPosWriter setRotation(Rotation rotation) {
-        return write(ESC, 'V', rotation.code);
+        return unchanged(PrinterState.ROTATION, PrinterState.code(rotation.code), 3) ? this
+                : write(ESC, 'V', rotation.code);
     }
 
     /**
@@ -453,7 +674,7 @@ public class EscPosWriter {
      * @return {@link EscPosWriter}
      */
     public EscPosWriter setColor(Color color) {
-        return write(ESC, 'r', color.code);
+        return unchanged(PrinterState.COLOR, PrinterState.code(color.code), 3) ? this : write(ESC, 'r', color.code);
     }
 
     /**
@@ -467,7 +688,10 @@ public class EscPosWriter {
      * @return {@link EscPosWriter}
      */
     public EscPosWriter setCharacterCodeTable(CharacterCodeTable characterCodeTable) {
-        return write(ESC, 't', characterCodeTable.code);
+        encoding = CodePage.table(characterCodeTable);
+        encodingSelected = true;
+        return unchanged(PrinterState.CHARACTER_CODE_TABLE, characterCodeTable.code, 3) ? this
+                : write(ESC, 't', characterCodeTable.code);
     }
 
     /**
@@ -487,7 +711,7 @@ public class EscPosWriter {
      * @return {@link EscPosWriter}
      */
     public EscPosWriter setUpsideDownPrint(boolean enabled) {
-        return write(ESC, '{', enabled ? 1 : 0);
+        return unchanged(PrinterState.UPSIDE_DOWN, enabled ? 1 : 0, 3) ? this : write(ESC, '{', enabled ? 1 : 0);
     }
 
     /**
@@ -508,7 +732,8 @@ public class EscPosWriter {
      * @return {@link EscPosWriter}
      */
     public EscPosWriter setCharacterSize(Width width, Height height) {
-        return write(ESC, '!', width.code | height.code);
+        return unchanged(PrinterState.CHARACTER_SIZE, width.code | height.code, 3) ? this
+                : write(GS, '!', width.code | height.code);
     }
 
     /**
@@ -526,7 +751,7 @@ public class EscPosWriter {
      * @return {@link EscPosWriter}
      */
     public EscPosWriter setWhiteBlackReverse(boolean enabled) {
-        return write(GS, 'B', enabled ? 1 : 0);
+        return unchanged(PrinterState.WHITE_BLACK_REVERSE, enabled ? 1 : 0, 3) ? this : write(GS, 'B', enabled ? 1 : 0);
     }
 
     /**
@@ -540,7 +765,7 @@ public class EscPosWriter {
      * @return {@link EscPosWriter}
      */
     public EscPosWriter setSmoothing(boolean enabled) {
-        return write(GS, 'b', enabled ? 1 : 0);
+        return unchanged(PrinterState.SMOOTHING, enabled ? 1 : 0, 3) ? this : write(GS, 'b', enabled ? 1 : 0);
     }
 
     ///////////////////////////////////////////////
@@ -631,6 +856,31 @@ public class EscPosWriter {
         return write(ESC, 'T', direction.code);
     }
 
+    /**
+     * In Page mode, sets the position and size of the print area.
+     * <p>
+     * [Notes]
+     * - The horizontal starting position is (xL + xH × 256) × (horizontal motion unit), the vertical starting position is (yL + yH × 256) × (vertical motion unit).
+     * - The print area width is (dxL + dxH × 256) × (horizontal motion unit), the print area height is (dyL + dyH × 256) × (vertical motion unit).
+     * - If this command is processed in Standard mode, the print area is set and it is enabled when the printer switches to Page mode.
+     * - The print area width and height must not be 0. If the area exceeds the printable area, it is reduced to the printable area.
+     * - The starting position of ESC T and the print direction refer to this area.
+     * - The print area returns to its default when ESC @ is executed or the printer switches to Standard mode with ESC S.
+     *
+     * @param xL  xL
+     * @param xH  xH
+     * @param yL  yL
+     * @param yH  yH
+     * @param dxL dxL
+     * @param dxH dxH
+     * @param dyL dyL
+     * @param dyH dyH
+     * @return {@link EscPosWriter}
+     */
+    public EscPosWriter setPrintArea(int xL, int xH, int yL, int yH, int dxL, int dxH, int dyL, int dyH) {
+        return write(ESC, 'W', xL, xH, yL, yH, dxL, dxH, dyL, dyH);
+    }
+
     /**
      * In Standard mode, aligns all the data in one line to the selected layout.
      * <p>
@@ -645,7 +895,8 @@ public class EscPosWriter {
      * @return {@link EscPosWriter}
      */
     public EscPosWriter setJustification(Justification justification) {
-        return write(ESC, 'a', justification.code);
+        return unchanged(PrinterState.JUSTIFICATION, PrinterState.code(justification.code), 3) ? this
+                : write(ESC, 'a', justification.code);
     }
 
     /**
@@ -706,7 +957,7 @@ public class EscPosWriter {
      * @return {@link EscPosWriter}
      */
     public EscPosWriter setLeftMargin(int nL, int nH) {
-        return write(GS, 'L', nL, nH);
+        return unchanged(PrinterState.LEFT_MARGIN, (nL & 0xFF) | (nH & 0xFF) << 8, 4) ? this : write(GS, 'L', nL, nH);
     }
 
     /**
@@ -745,7 +996,8 @@ public class EscPosWriter {
      * @return {@link EscPosWriter}
      */
     public EscPosWriter setPrintAreaWidth(int nL, int nH) {
-        return write(GS, 'W', nL, nH);
+        return unchanged(PrinterState.PRINT_AREA_WIDTH, (nL & 0xFF) | (nH & 0xFF) << 8, 4) ? this
+                : write(GS, 'W', nL, nH);
     }
 
     ///////////////////////////////////////////////
@@ -783,7 +1035,7 @@ public class EscPosWriter {
      * @return {@link EscPosWriter}
      */
     public EscPosWriter setUnidirectionalPrint(boolean enabled) {
-        return write(ESC, 'U', enabled ? 1 : 0);
+        return unchanged(PrinterState.UNIDIRECTIONAL, enabled ? 1 : 0, 3) ? this : write(ESC, 'U', enabled ? 1 : 0);
     }
 
     /**
@@ -1047,6 +1299,23 @@ public class EscPosWriter {
     //
     ///////////////////////////////////////////////
 
+    /**
+     * Transmits the selected real-time status as 1 byte.
+     * <p>
+     * [Notes]
+     * - This is a Real-time command. Refer to Notes of Real-time commands for usage note.
+     * - The status byte has the bit pattern 0xx1xx10, so it can be told apart from ASB status and block data.
+     * - For {@link RealTimeStatus#PRINTER}, bit 3 is set while the printer is offline.
+     * - The status is transmitted even while the printer is offline or busy, but not while it transmits block data.
+     * - Do not insert this command into the data of another command.
+     *
+     * @param status status to transmit
+     * @return {@link EscPosWriter}
+     */
+    public EscPosWriter transmitRealTimeStatus(RealTimeStatus status) {
+        return write(DLE, EOT, status.code);
+    }
+
     /**
      * Responds to a request in real time from the host computer.
      * <p>
@@ -1109,6 +1378,7 @@ public class EscPosWriter {
      * @return {@link EscPosWriter}
      */
     public EscPosWriter sendRealTimeRequestPowerOff() {
+        forget();
         return write(DLE, DC4, 2, 1, 8);
     }
 
@@ -1174,6 +1444,24 @@ public class EscPosWriter {
         return write(DLE, DC4, 8, 1, 3, 20, 1, 6, 2, 8);
     }
 
+    /**
+     * Enables or disables Automatic Status Back (ASB), selecting the status changes that transmit the 4 byte ASB status.
+     * <p>
+     * [Notes]
+     * - When any selected status is enabled, the printer transmits the status when this command is executed, and afterwards whenever a selected status changes.
+     * - The first byte of an ASB status has the bit pattern 0xx1xx00, the following three bytes have the bit pattern 0xx0xxxx.
+     * - Settings of this command are effective until ESC @ is executed, the printer is reset, or the power is turned off.
+     *
+     * @param drawer        drawer kick-out connector pin 3 status
+     * @param onlineOffline online/offline status
+     * @param error         error status
+     * @param paper         roll paper sensor status
+     * @return {@link EscPosWriter}
+     */
+    public EscPosWriter setAutomaticStatusBack(boolean drawer, boolean onlineOffline, boolean error, boolean paper) {
+        return write(GS, 'a', (drawer ? 1 : 0) | (onlineOffline ? 2 : 0) | (error ? 4 : 0) | (paper ? 8 : 0));
+    }
+
     /**
      * Set peripheral device.
      * n is different depending on printer
@@ -1210,7 +1498,14 @@ public class EscPosWriter {
      * @return {@link EscPosWriter}
      */
     public EscPosWriter initialize() {
-        return write(ESC, '@');
+        encoding = CodePage.table(CharacterCodeTable.PC437);
+        encodingSelected = true;
+        if (state != null) {
+            state.initialize();
+        }
+        write(ESC, '@');
+        initialized();
+        return this;
     }
 
     /**
@@ -1232,6 +1527,7 @@ public class EscPosWriter {
      * @return {@link EscPosWriter}
      */
     public EscPosWriter setPageMode() {
+        modeSwitched();
         return write(ESC, 'L');
     }
 
@@ -1252,6 +1548,7 @@ public class EscPosWriter {
      * @return {@link EscPosWriter}
      */
     public EscPosWriter setStandardMode() {
+        modeSwitched();
         return write(ESC, 'S');
     }
 
@@ -1303,28 +1600,731 @@ public class EscPosWriter {
 
     ///////////////////////////////////////////////
     //
-    // TODO: Bit image commands
+    // Bit image commands
     //
     ///////////////////////////////////////////////
 
+    /**
+     * Sends 24 rows of a raster image, from the given row down, as a 24-dot double-density bit image (ESC * 33).
+     * Rows outside the image are blank.
+     * <p>
+     * [Notes]
+     * - The bit image is placed at the print position like a character. In Standard mode it is printed with the line by a print command such as LF, in Page mode its bottom is on the vertical position.
+     * - Unlike raster images and graphics, bit images are enabled in Page mode.
+     * - The print position moves right by the image width. Data that exceeds the print area is not printed.
+     * - Bit images are not affected by print modes, except upside-down print mode and 90° rotation in Standard mode.
+     *
+     * @param image raster image, at most 65535 dots wide
+     * @param row   image row at the top of the bit image, may be negative
+     * @return {@link EscPosWriter}
+     */
+    public EscPosWriter printBitImage(RasterImage image, int row) {
+        int width = image.getWidth();
+        if (width > 0xFFFF) {
+            throw new IllegalArgumentException("image must be at most 65535 dots wide");
+        }
+        byte[] bits = image.getData();
+        int bytesPerRow = image.getBytesPerRow();
+        int first = Math.max(0, -row);
+        int rows = Math.max(0, Math.min(24, image.getHeight() - row));
+        reserve(5);
+        put(ESC);
+        put('*');
+        put(33);
+        put(width);
+        put(width >> 8);
+        for (int x = 0; x < width; x++) {
+            // Each column is 3 bytes, the most significant bit of the first byte at the top
+            int mask = 0x80 >>> (x & 7);
+            int column = 0;
+            for (int y = first, src = (row + first) * bytesPerRow + (x >> 3); y < rows; y++, src += bytesPerRow) {
+                if ((bits[src] & mask) != 0) {
+                    column |= 0x800000 >>> y;
+                }
+            }
+            reserve(3);
+            put(column >> 16);
+            put(column >> 8);
+            put(column);
+        }
+        return commit(ESC, '*');
+    }
+
+    /**
+     * Prints a raster bit image in normal mode, in bands of {@value #DEFAULT_BAND_HEIGHT} dots.
+     *
+     * @param image raster image
+     * @return {@link EscPosWriter}
+     * @see #printRasterImage(RasterImage, RasterMode, int)
+     */
+    public EscPosWriter printRasterImage(RasterImage image) {
+        return printRasterImage(image, RasterMode.NORMAL, DEFAULT_BAND_HEIGHT);
+    }
+
+    /**
+     * Prints a raster bit image, in bands of {@value #DEFAULT_BAND_HEIGHT} dots.
+     *
+     * @param image raster image
+     * @param mode  raster bit image mode
+     * @return {@link EscPosWriter}
+     * @see #printRasterImage(RasterImage, RasterMode, int)
+     */
+    public EscPosWriter printRasterImage(RasterImage image, RasterMode mode) {
+        return printRasterImage(image, mode, DEFAULT_BAND_HEIGHT);
+    }
+
+    /**
+     * Prints a raster bit image, sending one GS v 0 command per band of at most bandHeight dots.
+     * <p>
+     * [Notes]
+     * - This command is enabled only in Standard mode and only when processed at the beginning of the line.
+     * - Dots outside the printable area are not printed.
+     * - Raster bit images are not affected by print modes (emphasized, double-strike, underline, character size, white/black reverse, 90° rotation) except upside-down print mode.
+     * - After printing, the print position moves to the left side of the printable area. The printer is in the status "beginning of the line".
+     * - Splitting tall images into bands keeps each command within the printer's print buffer. Image data is passed through without copying.
+     *
+     * @param image      raster image
+     * @param mode       raster bit image mode
+     * @param bandHeight rows per GS v 0 command (1-2303)
+     * @return {@link EscPosWriter}
+     */
+    public EscPosWriter printRasterImage(RasterImage image, RasterMode mode, int bandHeight) {
+        if (bandHeight < 1) {
+            throw new IllegalArgumentException("bandHeight must be positive");
+        }
+        int bytesPerRow = image.getBytesPerRow();
+        for (int y = 0; y < image.getHeight(); y += bandHeight) {
+            int rows = Math.min(bandHeight, image.getHeight() - y);
+            reserve(8);
+            put(GS);
+            put('v');
+            put('0');
+            put(mode.code);
+            put(bytesPerRow);
+            put(bytesPerRow >> 8);
+            put(rows);
+            put(rows >> 8);
+            append(image.getData(), y * bytesPerRow, rows * bytesPerRow);
+            commit(GS, 'v');
+        }
+        return this;
+    }
+
+    /**
+     * Stores a raster image in the print buffer as graphics data (GS ( L &lt;Function 112&gt;).
+     * <p>
+     * [Notes]
+     * - The graphics data is printed by GS ( L &lt;Function 50&gt;, see {@link #printGraphics()}.
+     * - Settings of print modes do not affect the graphics data.
+     * - If data that exceeds the printable area is specified, the data outside of the printable area is not printed.
+     * - The amount of data is limited to 65525 bytes per command, use {@link #printGraphics(RasterImage, int, int)} for larger images.
+     *
+     * @param image  raster image
+     * @param scaleX horizontal scale (1-2)
+     * @param scaleY vertical scale (1-2)
+     * @return {@link EscPosWriter}
+     */
+    public EscPosWriter storeGraphics(RasterImage image, int scaleX, int scaleY) {
+        return storeGraphics(image, scaleX, scaleY, 0, image.getHeight());
+    }
+
+    /**
+     * Prints the graphics data stored in the print buffer (GS ( L &lt;Function 50&gt;).
+     * <p>
+     * [Notes]
+     * - This command is enabled only in Standard mode and only when processed at the beginning of the line.
+     * - After printing, the print position moves to the left side of the printable area.
+     *
+     * @return {@link EscPosWriter}
+     */
+    public EscPosWriter printGraphics() {
+        return write(GS, '(', 'L', 2, 0, 48, 50);
+    }
+
+    /**
+     * Stores and prints a raster image as graphics data at normal scale, in bands of {@value #DEFAULT_BAND_HEIGHT} dots.
+     *
+     * @param image raster image
+     * @return {@link EscPosWriter}
+     * @see #printGraphics(RasterImage, int, int)
+     */
+    public EscPosWriter printGraphics(RasterImage image) {
+        return printGraphics(image, 1, 1);
+    }
+
+    /**
+     * Stores and prints a raster image as graphics data, sending one GS ( L &lt;Function 112&gt; and
+     * &lt;Function 50&gt; pair per band of at most {@value #DEFAULT_BAND_HEIGHT} dots.
+     *
+     * @param image  raster image
+     * @param scaleX horizontal scale (1-2)
+     * @param scaleY vertical scale (1-2)
+     * @return {@link EscPosWriter}
+     */
+    public EscPosWriter printGraphics(RasterImage image, int scaleX, int scaleY) {
+        int bytesPerRow = Math.max(image.getBytesPerRow(), 1);
+        int bandHeight = Math.min(DEFAULT_BAND_HEIGHT, MAX_GRAPHICS_DATA / bytesPerRow);
+        for (int y = 0; y < image.getHeight(); y += bandHeight) {
+            storeGraphics(image, scaleX, scaleY, y, Math.min(bandHeight, image.getHeight() - y));
+            printGraphics();
+        }
+        return this;
+    }
+
+    /**
+     * Defines a raster image as NV graphics data under key code (kc1, kc2) (GS ( L &lt;Function 67&gt;).
+     * <p>
+     * [Notes]
+     * - NV graphics are stored in non-volatile memory and are not cleared by ESC @, the printer reset or power off.
+     * - When data is already defined for the specified key code, it is replaced.
+     * - Frequent writing to NV memory may damage it. Write NV graphics only a few times a day, use download graphics for frequent updates.
+     * - The printer is busy while writing to NV memory and does not receive data.
+     * - This command is enabled only in Standard mode.
+     *
+     * @param kc1   key code 1 (32-126)
+     * @param kc2   key code 2 (32-126)
+     * @param image raster image
+     * @return {@link EscPosWriter}
+     */
+    public EscPosWriter defineNvGraphics(int kc1, int kc2, RasterImage image) {
+        return defineGraphics(67, kc1, kc2, image);
+    }
+
+    /**
+     * Prints the NV graphics data defined under key code (kc1, kc2) (GS ( L &lt;Function 69&gt;).
+     * <p>
+     * [Notes]
+     * - This command is ignored when no data is defined for the specified key code.
+     * - This command is enabled only in Standard mode and only when processed at the beginning of the line.
+     *
+     * @param kc1    key code 1 (32-126)
+     * @param kc2    key code 2 (32-126)
+     * @param scaleX horizontal scale (1-2)
+     * @param scaleY vertical scale (1-2)
+     * @return {@link EscPosWriter}
+     */
+    public EscPosWriter printNvGraphics(int kc1, int kc2, int scaleX, int scaleY) {
+        return printDefinedGraphics(69, kc1, kc2, scaleX, scaleY);
+    }
+
+    /**
+     * Deletes the NV graphics data defined under key code (kc1, kc2) (GS ( L &lt;Function 66&gt;).
+     *
+     * @param kc1 key code 1 (32-126)
+     * @param kc2 key code 2 (32-126)
+     * @return {@link EscPosWriter}
+     */
+    public EscPosWriter deleteNvGraphics(int kc1, int kc2) {
+        return deleteDefinedGraphics(66, kc1, kc2);
+    }
+
+    /**
+     * Defines a raster image as download graphics data under key code (kc1, kc2) (GS ( L &lt;Function 83&gt;).
+     * <p>
+     * [Notes]
+     * - Download graphics are stored in RAM and are cleared when the printer is reset or the power is turned off.
+     * - When data is already defined for the specified key code, it is replaced.
+     * - This command is enabled only in Standard mode.
+     *
+     * @param kc1   key code 1 (32-126)
+     * @param kc2   key code 2 (32-126)
+     * @param image raster image
+     * @return {@link EscPosWriter}
+     */
+    public EscPosWriter defineDownloadGraphics(int kc1, int kc2, RasterImage image) {
+        return defineGraphics(83, kc1, kc2, image);
+    }
+
+    /**
+     * Prints the download graphics data defined under key code (kc1, kc2) (GS ( L &lt;Function 85&gt;).
+     * <p>
+     * [Notes]
+     * - This command is ignored when no data is defined for the specified key code.
+     * - This command is enabled only in Standard mode and only when processed at the beginning of the line.
+     *
+     * @param kc1    key code 1 (32-126)
+     * @param kc2    key code 2 (32-126)
+     * @param scaleX horizontal scale (1-2)
+     * @param scaleY vertical scale (1-2)
+     * @return {@link EscPosWriter}
+     */
+    public EscPosWriter printDownloadGraphics(int kc1, int kc2, int scaleX, int scaleY) {
+        return printDefinedGraphics(85, kc1, kc2, scaleX, scaleY);
+    }
+
+    /**
+     * Deletes the download graphics data defined under key code (kc1, kc2) (GS ( L &lt;Function 82&gt;).
+     *
+     * @param kc1 key code 1 (32-126)
+     * @param kc2 key code 2 (32-126)
+     * @return {@link EscPosWriter}
+     */
+    public EscPosWriter deleteDownloadGraphics(int kc1, int kc2) {
+        return deleteDefinedGraphics(82, kc1, kc2);
+    }
+
+    private EscPosWriter defineGraphics(int fn, int kc1, int kc2, RasterImage image) {
+        int k = image.getBytesPerRow() * image.getHeight();
+        int p = 11 + k;
+        boolean large = p > 0xFFFF;
+        // GS ( L pL pH or GS 8 L p1-p4, then m fn a kc1 kc2 b xL xH yL yH c
+        reserve((large ? 7 : 5) + 11);
+        put(GS);
+        if (!large) {
+            put('(');
+            put('L');
+            put(p);
+            put(p >> 8);
+        } else {
+            put('8');
+            put('L');
+            put(p);
+            put(p >> 8);
+            put(p >> 16);
+            put(p >> 24);
+        }
+        put(48);
+        put(fn);
+        put(48);
+        put(kc1);
+        put(kc2);
+        put(1);
+        put(image.getWidth());
+        put(image.getWidth() >> 8);
+        put(image.getHeight());
+        put(image.getHeight() >> 8);
+        put(49);
+        append(image.getData(), 0, k);
+        return commit(GS, '(');
+    }
+
+    private EscPosWriter printDefinedGraphics(int fn, int kc1, int kc2, int scaleX, int scaleY) {
+        return write(GS, '(', 'L', 6, 0, 48, fn, kc1, kc2, scaleX, scaleY);
+    }
+
+    private EscPosWriter deleteDefinedGraphics(int fn, int kc1, int kc2) {
+        return write(GS, '(', 'L', 4, 0, 48, fn, kc1, kc2);
+    }
+
+    private EscPosWriter storeGraphics(RasterImage image, int scaleX, int scaleY, int y, int rows) {
+        int bytesPerRow = image.getBytesPerRow();
+        int p = 10 + rows * bytesPerRow;
+        if (p > MAX_GRAPHICS_DATA + 10) {
+            throw new IllegalArgumentException("Graphics data exceeds " + MAX_GRAPHICS_DATA + " bytes");
+        }
+        reserve(15);
+        put(GS);
+        put('(');
+        put('L');
+        put(p);
+        put(p >> 8);
+        put(48);
+        put(112);
+        put(48);
+        put(scaleX);
+        put(scaleY);
+        put(49);
+        put(image.getWidth());
+        put(image.getWidth() >> 8);
+        put(rows);
+        put(rows >> 8);
+        append(image.getData(), y * bytesPerRow, rows * bytesPerRow);
+        return commit(GS, '(');
+    }
+
     ///////////////////////////////////////////////
     //
-    // TODO: 2D code commands
+    // 2D code commands
     //
     ///////////////////////////////////////////////
 
+    /**
+     * Selects the model for QR Code (GS ( k &lt;Function 165&gt;).
+     * <p>
+     * [Notes]
+     * - Settings of this function affect the processing of &lt;Function 180&gt; and &lt;Function 181&gt;.
+     * - Settings of this function are effective until ESC @ is executed, the printer is reset, or the power is turned off.
+     *
+     * @param model QR Code model
+     * @return {@link EscPosWriter}
+     */
+    public EscPosWriter setQrCodeModel(QrModel model) {
+        return write(GS, '(', 'k', 4, 0, QR_CODE, 65, model.code, 0);
+    }
+
+    /**
+     * Sets the size of the module for QR Code to n dots (GS ( k &lt;Function 167&gt;).
+     * <p>
+     * [Notes]
+     * - n = width of a module = height of a module.
+     * - Settings of this function are effective until ESC @ is executed, the printer is reset, or the power is turned off.
+     *
+     * @param n module size in dots (1-16)
+     * @return {@link EscPosWriter}
+     */
+    public EscPosWriter setQrCodeModuleSize(int n) {
+        return write(GS, '(', 'k', 3, 0, QR_CODE, 67, n);
+    }
+
+    /**
+     * Selects the error correction level for QR Code (GS ( k &lt;Function 169&gt;).
+     * <p>
+     * [Notes]
+     * - The recovery capacity is approximately L 7%, M 15%, Q 25% and H 30%.
+     * - Settings of this function are effective until ESC @ is executed, the printer is reset, or the power is turned off.
+     *
+     * @param errorCorrection error correction level
+     * @return {@link EscPosWriter}
+     */
+    public EscPosWriter setQrCodeErrorCorrection(QrErrorCorrection errorCorrection) {
+        return write(GS, '(', 'k', 3, 0, QR_CODE, 69, errorCorrection.code);
+    }
+
+    /**
+     * Stores QR Code data in the symbol storage area (GS ( k &lt;Function 180&gt;).
+     * <p>
+     * [Notes]
+     * - The data stored is held until another store command, ESC @ is executed, the printer is reset, or the power is turned off.
+     * - Up to 7089 bytes of data can be encoded in one symbol, depending on model, error correction level and character type.
+     *
+     * @param data symbol data
+     * @return {@link EscPosWriter}
+     */
+    public EscPosWriter storeQrCodeData(byte[] data) {
+        return storeSymbolData(QR_CODE, data, 0, data.length);
+    }
+
+    /**
+     * Stores a slice of QR Code data in the symbol storage area (GS ( k &lt;Function 180&gt;).
+     *
+     * @param data symbol data
+     * @param off  start offset in the array
+     * @param len  number of bytes to store (0-65532)
+     * @return {@link EscPosWriter}
+     * @see #storeQrCodeData(byte[])
+     */
+    public EscPosWriter storeQrCodeData(byte[] data, int off, int len) {
+        return storeSymbolData(QR_CODE, data, off, len);
+    }
+
+    /**
+     * Encodes and prints the QR Code symbol data in the symbol storage area (GS ( k &lt;Function 181&gt;).
+     * <p>
+     * [Notes]
+     * - This command is enabled only in Standard mode and only when processed at the beginning of the line.
+     * - The symbol is printed according to the model, module size and error correction level selected.
+     * - If the data cannot be encoded or the symbol exceeds the print area, the symbol is not printed.
+     * - After printing, the print position moves to the left side of the printable area.
+     *
+     * @return {@link EscPosWriter}
+     */
+    public EscPosWriter printQrCode() {
+        return write(GS, '(', 'k', 3, 0, QR_CODE, 81, 48);
+    }
+
+    /**
+     * Selects model 2, sets the module size and error correction level, then stores and prints a QR Code
+     * encoding the UTF-8 bytes of data.
+     *
+     * @param data            symbol data
+     * @param moduleSize      module size in dots (1-16)
+     * @param errorCorrection error correction level
+     * @return {@link EscPosWriter}
+     */
+    public EscPosWriter printQrCode(String data, int moduleSize, QrErrorCorrection errorCorrection) {
+        return setQrCodeModel(QrModel.MODEL_2)
+                .setQrCodeModuleSize(moduleSize)
+                .setQrCodeErrorCorrection(errorCorrection)
+                .storeQrCodeData(data.getBytes(StandardCharsets.UTF_8))
+                .printQrCode();
+    }
+
+    /**
+     * Sets the number of columns in the PDF417 data region (GS ( k &lt;Function 065&gt;).
+     * <p>
+     * [Notes]
+     * - When n = 0, the number of columns is calculated automatically.
+     * - Settings of this function are effective until ESC @ is executed, the printer is reset, or the power is turned off.
+     *
+     * @param n columns (0-30)
+     * @return {@link EscPosWriter}
+     */
+    public EscPosWriter setPdf417Columns(int n) {
+        return write(GS, '(', 'k', 3, 0, PDF417, 65, n);
+    }
+
+    /**
+     * Sets the number of rows of PDF417 (GS ( k &lt;Function 066&gt;).
+     * <p>
+     * [Notes]
+     * - When n = 0, the number of rows is calculated automatically.
+     * - Settings of this function are effective until ESC @ is executed, the printer is reset, or the power is turned off.
+     *
+     * @param n rows (0, 3-90)
+     * @return {@link EscPosWriter}
+     */
+    public EscPosWriter setPdf417Rows(int n) {
+        return write(GS, '(', 'k', 3, 0, PDF417, 66, n);
+    }
+
+    /**
+     * Sets the module width of PDF417 to n dots (GS ( k &lt;Function 067&gt;).
+     *
+     * @param n module width in dots (2-8)
+     * @return {@link EscPosWriter}
+     */
+    public EscPosWriter setPdf417ModuleWidth(int n) {
+        return write(GS, '(', 'k', 3, 0, PDF417, 67, n);
+    }
+
+    /**
+     * Sets the row height of PDF417 to n × module width (GS ( k &lt;Function 068&gt;).
+     *
+     * @param n row height in module widths (2-8)
+     * @return {@link EscPosWriter}
+     */
+    public EscPosWriter setPdf417RowHeight(int n) {
+        return write(GS, '(', 'k', 3, 0, PDF417, 68, n);
+    }
+
+    /**
+     * Sets the error correction level of PDF417 by level (GS ( k &lt;Function 069&gt;, m = 48).
+     *
+     * @param level error correction level (0-8)
+     * @return {@link EscPosWriter}
+     */
+    public EscPosWriter setPdf417ErrorCorrectionLevel(int level) {
+        return write(GS, '(', 'k', 4, 0, PDF417, 69, 48, 48 + level);
+    }
+
+    /**
+     * Sets the error correction level of PDF417 as a ratio of the data codewords (GS ( k &lt;Function 069&gt;, m = 49).
+     *
+     * @param ratio error correction ratio × 10% (1-40)
+     * @return {@link EscPosWriter}
+     */
+    public EscPosWriter setPdf417ErrorCorrectionRatio(int ratio) {
+        return write(GS, '(', 'k', 4, 0, PDF417, 69, 49, ratio);
+    }
+
+    /**
+     * Selects standard or truncated PDF417 (GS ( k &lt;Function 070&gt;).
+     *
+     * @param option PDF417 option
+     * @return {@link EscPosWriter}
+     */
+    public EscPosWriter setPdf417Options(Pdf417Option option) {
+        return write(GS, '(', 'k', 3, 0, PDF417, 70, option.code);
+    }
+
+    /**
+     * Stores PDF417 data in the symbol storage area (GS ( k &lt;Function 080&gt;).
+     *
+     * @param data symbol data
+     * @return {@link EscPosWriter}
+     */
+    public EscPosWriter storePdf417Data(byte[] data) {
+        return storeSymbolData(PDF417, data, 0, data.length);
+    }
+
+    /**
+     * Stores a slice of PDF417 data in the symbol storage area (GS ( k &lt;Function 080&gt;).
+     *
+     * @param data symbol data
+     * @param off  start offset in the array
+     * @param len  number of bytes to store (0-65532)
+     * @return {@link EscPosWriter}
+     */
+    public EscPosWriter storePdf417Data(byte[] data, int off, int len) {
+        return storeSymbolData(PDF417, data, off, len);
+    }
+
+    /**
+     * Encodes and prints the PDF417 symbol data in the symbol storage area (GS ( k &lt;Function 081&gt;).
+     * <p>
+     * [Notes]
+     * - This command is enabled only in Standard mode and only when processed at the beginning of the line.
+     * - If the data cannot be encoded or the symbol exceeds the print area, the symbol is not printed.
+     *
+     * @return {@link EscPosWriter}
+     */
+    public EscPosWriter printPdf417() {
+        return write(GS, '(', 'k', 3, 0, PDF417, 81, 48);
+    }
+
+    /**
+     * Selects the mode of MaxiCode (GS ( k &lt;Function 265&gt;).
+     *
+     * @param mode MaxiCode mode
+     * @return {@link EscPosWriter}
+     */
+    public EscPosWriter setMaxiCodeMode(MaxiCodeMode mode) {
+        return write(GS, '(', 'k', 3, 0, MAXI_CODE, 65, mode.code);
+    }
+
+    /**
+     * Stores MaxiCode data in the symbol storage area (GS ( k &lt;Function 280&gt;).
+     *
+     * @param data symbol data
+     * @return {@link EscPosWriter}
+     */
+    public EscPosWriter storeMaxiCodeData(byte[] data) {
+        return storeSymbolData(MAXI_CODE, data, 0, data.length);
+    }
+
+    /**
+     * Encodes and prints the MaxiCode symbol data in the symbol storage area (GS ( k &lt;Function 281&gt;).
+     * <p>
+     * [Notes]
+     * - This command is enabled only in Standard mode and only when processed at the beginning of the line.
+     *
+     * @return {@link EscPosWriter}
+     */
+    public EscPosWriter printMaxiCode() {
+        return write(GS, '(', 'k', 3, 0, MAXI_CODE, 81, 48);
+    }
+
+    private EscPosWriter storeSymbolData(int cn, byte[] data, int off, int len) {
+        if ((off | len | (off + len) | (data.length - (off + len))) < 0) {
+            throw new IndexOutOfBoundsException("off " + off + ", len " + len + ", length " + data.length);
+        }
+        if (len > MAX_SYMBOL_DATA) {
+            throw new IllegalArgumentException("Symbol data exceeds " + MAX_SYMBOL_DATA + " bytes");
+        }
+        int p = len + 3;
+        reserve(8);
+        put(GS);
+        put('(');
+        put('k');
+        put(p);
+        put(p >> 8);
+        put(cn);
+        put(80);
+        put(48);
+        append(data, off, len);
+        return commit(GS, '(');
+    }
+
     ///////////////////////////////////////////////
     //
-    // TODO: User-defined commands
+    // User-defined commands
     //
     ///////////////////////////////////////////////
 
+    /**
+     * Defines user-defined characters for the character codes c1 to c2.
+     * <p>
+     * [Notes]
+     * - data holds, for each character from c1 to c2, the number of horizontal dots x followed by y × x bytes of dot data.
+     * - Dot data is column by column from the left, each column y bytes from the top, most significant bit at the top.
+     * - y must match the height of the selected font, for example 3 for 12 × 24 Font A or 9 × 17 Font B.
+     * - User-defined characters are cleared when ESC @ or ESC ? is executed, the printer is reset, or the power is turned off.
+     * - User-defined characters are printed only after they are selected with ESC %, see {@link #setUserDefinedCharacters(boolean)}.
+     * - Defining characters while user-defined characters are selected may not be possible on some models.
+     *
+     * @param y    bytes in the vertical direction
+     * @param c1   first character code (32-126)
+     * @param c2   last character code (c1-126)
+     * @param data character widths and dot data
+     * @return {@link EscPosWriter}
+     */
+    public EscPosWriter defineUserCharacters(int y, int c1, int c2, byte[] data) {
+        reserve(5);
+        put(ESC);
+        put('&');
+        put(y);
+        put(c1);
+        put(c2);
+        append(data, 0, data.length);
+        return commit(ESC, '&');
+    }
+
+    /**
+     * Selects or cancels the user-defined character set.
+     * <p>
+     * [Notes]
+     * - When the user-defined character set is selected, characters defined with ESC &amp; are printed in place of the built-in characters; codes that are not defined print the built-in characters.
+     * - Settings of this command are effective until ESC @ is executed, the printer is reset, or the power is turned off.
+     *
+     * @param enabled select user-defined characters
+     * @return {@link EscPosWriter}
+     */
+    public EscPosWriter setUserDefinedCharacters(boolean enabled) {
+        return write(ESC, '%', enabled ? 1 : 0);
+    }
+
+    /**
+     * Deletes the user-defined character for character code n.
+     * <p>
+     * [Notes]
+     * - After deleting, the built-in character is printed for the code.
+     *
+     * @param n character code (32-126)
+     * @return {@link EscPosWriter}
+     */
+    public EscPosWriter cancelUserCharacter(int n) {
+        return write(ESC, '?', n);
+    }
+
     ///////////////////////////////////////////////
     //
-    // TODO: Macro functions
+    // Macro functions
     //
     ///////////////////////////////////////////////
 
+    /**
+     * Starts macro definition. Data received until the matching {@link #endMacroDefinition()} is stored as the macro.
+     * <p>
+     * [Notes]
+     * - GS : starts a definition during normal operation and ends it during a definition.
+     * - Starting a definition clears the macro previously defined.
+     * - The maximum size of a macro is 2048 bytes. If exceeded, data beyond it is not stored.
+     * - Macro definitions are not cleared by ESC @, they are cleared when the printer is reset or the power is turned off.
+     * - If GS ^ is received during macro definition, the definition is aborted and the macro is cleared.
+     *
+     * @return {@link EscPosWriter}
+     */
+    public EscPosWriter startMacroDefinition() {
+        if (state != null) {
+            state.macroDefinition();
+        }
+        return write(GS, ':');
+    }
+
+    /**
+     * Ends macro definition.
+     *
+     * @return {@link EscPosWriter}
+     * @see #startMacroDefinition()
+     */
+    public EscPosWriter endMacroDefinition() {
+        if (state != null) {
+            state.macroDefinition();
+        }
+        return write(GS, ':');
+    }
+
+    /**
+     * Executes the defined macro r times, waiting t × 100 ms between executions.
+     * <p>
+     * [Notes]
+     * - In continuous mode, the macro is executed r times continuously, with a wait of t × 100 ms between executions.
+     * - In button mode, the printer waits t × 100 ms, then flashes the paper out LED and waits for the paper feed button before each execution.
+     * - This command is ignored if no macro is defined or during macro execution.
+     * - Use repeated execution of a stored header or ticket to replace retransmitting it for each copy.
+     *
+     * @param r    number of executions (0-255)
+     * @param t    wait time in 100 ms units (0-255)
+     * @param mode execution mode
+     * @return {@link EscPosWriter}
+     */
+    public EscPosWriter executeMacro(int r, int t, MacroMode mode) {
+        if (state != null) {
+            state.macroExecuted();
+        }
+        return write(GS, '^', r, t, mode.code);
+    }
+
     ///////////////////////////////////////////////
     //
     // Raw Write Commands (to avoid var-args)
@@ -1332,93 +2332,227 @@ public class EscPosWriter {
     ///////////////////////////////////////////////
 
     private EscPosWriter write(int val1) {
-        try {
-            out.write(val1);
-            return this;
-        } catch (IOException e) {
-            throw new UncheckedIOException(e);
-        }
+        reserve(1);
+        buf[count++] = (byte) val1;
+        return commit(val1, -1);
     }
 
     private EscPosWriter write(int val1, int val2) {
-        try {
-            out.write(val1);
-            out.write(val2);
-            return this;
-        } catch (IOException e) {
-            throw new UncheckedIOException(e);
-        }
+        reserve(2);
+        buf[count++] = (byte) val1;
+        buf[count++] = (byte) val2;
+        return commit(val1, val2);
     }
 
     private EscPosWriter write(int val1, int val2, int val3) {
-        try {
-            out.write(val1);
-            out.write(val2);
-            out.write(val3);
-            return this;
-        } catch (IOException e) {
-            throw new UncheckedIOException(e);
-        }
+        reserve(3);
+        buf[count++] = (byte) val1;
+        buf[count++] = (byte) val2;
+        buf[count++] = (byte) val3;
+        return commit(val1, val2);
     }
 
     private EscPosWriter write(int val1, int val2, int val3, int val4) {
-        try {
-            out.write(val1);
-            out.write(val2);
-            out.write(val3);
-            out.write(val4);
-            return this;
-        } catch (IOException e) {
-            throw new UncheckedIOException(e);
-        }
+        reserve(4);
+        buf[count++] = (byte) val1;
+        buf[count++] = (byte) val2;
+        buf[count++] = (byte) val3;
+        buf[count++] = (byte) val4;
+        return commit(val1, val2);
     }
 
     private EscPosWriter write(int val1, int val2, int val3, int val4, int val5) {
-        try {
-            out.write(val1);
-            out.write(val2);
-            out.write(val3);
-            out.write(val4);
-            out.write(val5);
-            return this;
-        } catch (IOException e) {
-            throw new UncheckedIOException(e);
-        }
+        reserve(5);
+        buf[count++] = (byte) val1;
+        buf[count++] = (byte) val2;
+        buf[count++] = (byte) val3;
+        buf[count++] = (byte) val4;
+        buf[count++] = (byte) val5;
+        return commit(val1, val2);
+    }
+
+    private EscPosWriter write(int val1, int val2, int val3, int val4, int val5, int val6, int val7) {
+        reserve(7);
+        buf[count++] = (byte) val1;
+        buf[count++] = (byte) val2;
+        buf[count++] = (byte) val3;
+        buf[count++] = (byte) val4;
+        buf[count++] = (byte) val5;
+        buf[count++] = (byte) val6;
+        buf[count++] = (byte) val7;
+        return commit(val1, val2);
     }
 
     private EscPosWriter write(int val1, int val2, int val3, int val4, int val5, int val6, int val7, int val8) {
-        try {
-            out.write(val1);
-            out.write(val2);
-            out.write(val3);
-            out.write(val4);
-            out.write(val5);
-            out.write(val6);
-            out.write(val7);
-            out.write(val8);
-            return this;
-        } catch (IOException e) {
-            throw new UncheckedIOException(e);
-        }
+        reserve(8);
+        buf[count++] = (byte) val1;
+        buf[count++] = (byte) val2;
+        buf[count++] = (byte) val3;
+        buf[count++] = (byte) val4;
+        buf[count++] = (byte) val5;
+        buf[count++] = (byte) val6;
+        buf[count++] = (byte) val7;
+        buf[count++] = (byte) val8;
+        return commit(val1, val2);
+    }
+
+    private EscPosWriter write(int val1, int val2, int val3, int val4, int val5, int val6, int val7, int val8,
+                               int val9) {
+        reserve(9);
+        buf[count++] = (byte) val1;
+        buf[count++] = (byte) val2;
+        buf[count++] = (byte) val3;
+        buf[count++] = (byte) val4;
+        buf[count++] = (byte) val5;
+        buf[count++] = (byte) val6;
+        buf[count++] = (byte) val7;
+        buf[count++] = (byte) val8;
+        buf[count++] = (byte) val9;
+        return commit(val1, val2);
     }
 
     private EscPosWriter write(int val1, int val2, int val3, int val4, int val5, int val6, int val7, int val8,
                                int val9, int val10) {
-        try {
-            out.write(val1);
-            out.write(val2);
-            out.write(val3);
-            out.write(val4);
-            out.write(val5);
-            out.write(val6);
-            out.write(val7);
-            out.write(val8);
-            out.write(val9);
-            out.write(val10);
-            return this;
-        } catch (IOException e) {
-            throw new UncheckedIOException(e);
+        reserve(10);
+        buf[count++] = (byte) val1;
+        buf[count++] = (byte) val2;
+        buf[count++] = (byte) val3;
+        buf[count++] = (byte) val4;
+        buf[count++] = (byte) val5;
+        buf[count++] = (byte) val6;
+        buf[count++] = (byte) val7;
+        buf[count++] = (byte) val8;
+        buf[count++] = (byte) val9;
+        buf[count++] = (byte) val10;
+        return commit(val1, val2);
+    }
+
+    private EscPosWriter write(int val1, int val2, int val3, int val4, int val5, int val6, int val7, int val8,
+                               int val9, int val10, int val11) {
+        reserve(11);
+        buf[count++] = (byte) val1;
+        buf[count++] = (byte) val2;
+        buf[count++] = (byte) val3;
+        buf[count++] = (byte) val4;
+        buf[count++] = (byte) val5;
+        buf[count++] = (byte) val6;
+        buf[count++] = (byte) val7;
+        buf[count++] = (byte) val8;
+        buf[count++] = (byte) val9;
+        buf[count++] = (byte) val10;
+        buf[count++] = (byte) val11;
+        return commit(val1, val2);
+    }
+
+    ///////////////////////////////////////////////
+    //
+    // Encode Buffer
+    //
+    ///////////////////////////////////////////////
+
+    private void reserve(int n) {
+        if (count + n > buf.length) {
+            drain();
+        }
+    }
+
+    private void put(int val) {
+        buf[count++] = (byte) val;
+    }
+
+    private void append(byte[] bytes, int off, int len) {
+        if (len > buf.length - count) {
+            drain();
+            if (len >= buf.length) {
+                // Too large to buffer, pass straight through
+                try {
+                    out.write(bytes, off, len);
+                    return;
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }
         }
+        System.arraycopy(bytes, off, buf, count, len);
+        count += len;
+    }
+
+    private void drain() {
+        if (count > 0) {
+            try {
+                out.write(buf, 0, count);
+                count = 0;
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+    }
+
+    /**
+     * Bytes held in the encode buffer, not yet written to the OutputStream.
+     */
+    int buffered() {
+        return count;
+    }
+
+    /**
+     * Runs the initialize listeners, for ESC @ written as part of recorded bytes.
+     */
+    void initialized() {
+        if (initializeListeners != null) {
+            for (Runnable listener : initializeListeners) {
+                listener.run();
+            }
+        }
+    }
+
+    private boolean unchanged(int mode, int value, int length) {
+        return state != null && state.unchanged(mode, value, length);
+    }
+
+    private void modeSwitched() {
+        if (state != null) {
+            state.modeSwitched();
+        }
+    }
+
+    private void forget() {
+        if (state != null) {
+            state.forget();
+        }
+    }
+
+    private EscPosWriter commit(int val1, int val2) {
+        if (commitListener != null) {
+            commitListener.run();
+        }
+        switch (flushPolicy) {
+            case EVERY_COMMAND:
+                drain();
+                break;
+            case LINE_FEED:
+                if (isFeed(val1, val2) || isCut(val1, val2)) {
+                    drain();
+                }
+                break;
+            case CUT:
+                if (isCut(val1, val2)) {
+                    drain();
+                }
+                break;
+            default:
+                break;
+        }
+        return this;
+    }
+
+    private static boolean isFeed(int val1, int val2) {
+        return val1 == LF || val1 == CR || val1 == FF
+                || (val1 == ESC && (val2 == FF || val2 == 'J' || val2 == 'K' || val2 == 'd' || val2 == 'e'));
+    }
+
+    private static boolean isCut(int val1, int val2) {
+        return val1 == GS && val2 == 'V';
     }
 
 }
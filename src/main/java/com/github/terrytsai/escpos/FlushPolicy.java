@@ -0,0 +1,31 @@
+package com.github.terrytsai.escpos;
+
+/**
+ * Controls when {@link EscPosWriter} hands its encode buffer to the underlying OutputStream.
+ * <p>
+ * Regardless of policy, the buffer is always written out when it is full or when
+ * {@link EscPosWriter#flush()} is called.
+ */
+public enum FlushPolicy {
+
+    /**
+     * Writes the buffer after every command, so each command reaches the stream in a single bulk write.
+     */
+    EVERY_COMMAND,
+
+    /**
+     * Writes the buffer after print-and-feed commands (LF, CR, FF, ESC FF, ESC J, ESC K, ESC d, ESC e) and cuts.
+     */
+    LINE_FEED,
+
+    /**
+     * Writes the buffer after cut commands (GS V).
+     */
+    CUT,
+
+    /**
+     * Writes the buffer only when it is full or when flushed explicitly.
+     */
+    BUFFER_FULL
+
+}
@@ -0,0 +1,383 @@
+package com.github.terrytsai.escpos;
+
+import com.github.terrytsai.escpos.enums.Direction;
+import com.github.terrytsai.escpos.enums.Font;
+import com.github.terrytsai.escpos.enums.Height;
+import com.github.terrytsai.escpos.enums.Width;
+import com.github.terrytsai.escpos.image.RasterImage;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Page of text, images and boxes placed in dots, printed in one pass in Page mode.
+ * <p>
+ * The layout is compiled once into pieces that each sit on one baseline, sorted top to bottom and left to right.
+ * Rendering moves the print position only where a piece does not start where the previous one ended, so a piece
+ * costs at most one GS $ and one ESC $, and a row of adjacent pieces needs a single GS $.
+ * <p>
+ * [Notes]
+ * - Coordinates are dots from the top left of the print area, in the print direction. The motion units must be one dot, which is the default of most printers or can be set by GS P.
+ * - Text is placed by the top left of its first character. Its height and advance come from the font size, Font A is taken as 12 × 24 dots and Font B as 9 × 17 dots. Set the sizes of the printer model with {@link Builder#fontSize(Font, int, int)}.
+ * - Text is one line of single-byte characters and must fit in the area, it is not wrapped.
+ * - Images and boxes are sent as stripes of 24-dot bit images (ESC *), the graphics that are enabled in Page mode.
+ * - Rendering sets the font, the character size and the right-side character spacing, which stay set afterwards.
+ *
+ * <pre>{@code
+ * PageLayout label = PageLayout.builder(576, 300)
+ *         .box(0, 0, 576, 300, 3)
+ *         .text(16, 16, "ORDER #1042", Font.A, Width.X2, Height.X2)
+ *         .text(16, 80, "Table 7")
+ *         .image(400, 16, logo)
+ *         .build();
+ *
+ * label.render(escPos);
+ * }</pre>
+ */
+public final class PageLayout {
+
+    private static final int STRIPE = 24;
+
+    private final int x;
+    private final int y;
+    private final int width;
+    private final int height;
+    private final Direction direction;
+    private final List<Piece> pieces;
+
+    private PageLayout(Builder builder, List<Piece> pieces) {
+        this.x = builder.x;
+        this.y = builder.y;
+        this.width = builder.width;
+        this.height = builder.height;
+        this.direction = builder.direction;
+        this.pieces = pieces;
+    }
+
+    /**
+     * Creates a builder for a page.
+     *
+     * @param width  width of the print area in dots (1-65535)
+     * @param height height of the print area in dots (1-65535)
+     * @return {@link Builder}
+     */
+    public static Builder builder(int width, int height) {
+        if (width < 1 || height < 1 || width > 0xFFFF || height > 0xFFFF) {
+            throw new IllegalArgumentException("width and height must be 1-65535");
+        }
+        return new Builder(width, height);
+    }
+
+    /**
+     * Writes the page to a writer: selects Page mode and the print area, places every piece, then prints the page
+     * and returns to Standard mode.
+     *
+     * @param writer target writer
+     * @return the target writer
+     */
+    public EscPosWriter render(EscPosWriter writer) {
+        // ESC W takes the area on the paper, the page runs down the paper in the vertical directions
+        boolean vertical = (direction.code & 1) != 0;
+        int dx = vertical ? height : width;
+        int dy = vertical ? width : height;
+        writer.setPageMode()
+                .setPrintArea(x & 0xFF, x >> 8, y & 0xFF, y >> 8, dx & 0xFF, dx >> 8, dy & 0xFF, dy >> 8)
+                .setPrintDirection(direction)
+                .setRightSideCharacterSpacing(0);
+        // Page mode starts at the left of the area, with no vertical position until the first GS $
+        int baseline = -1;
+        int position = 0;
+        Font font = null;
+        int size = -1;
+        for (Piece piece : pieces) {
+            if (piece.baseline != baseline) {
+                baseline = piece.baseline;
+                writer.setAbsoluteVerticalPosition(baseline & 0xFF, baseline >> 8);
+            }
+            if (piece.x != position) {
+                writer.setAbsolutePosition(piece.x & 0xFF, piece.x >> 8);
+            }
+            if (piece.text != null) {
+                if (piece.font != font) {
+                    font = piece.font;
+                    writer.setFont(font);
+                }
+                if ((piece.width.code | piece.height.code) != size) {
+                    size = piece.width.code | piece.height.code;
+                    writer.setCharacterSize(piece.width, piece.height);
+                }
+                writer.text(piece.text);
+            } else {
+                writer.printBitImage(piece.image, piece.row);
+            }
+            position = piece.x + piece.advance;
+        }
+        return writer.printAndReturnToStandardMode();
+    }
+
+    /**
+     * Describes the elements of a {@link PageLayout}.
+     */
+    public static final class Builder {
+
+        private final int width;
+        private final int height;
+        private final List<Element> elements = new ArrayList<>();
+        private final Map<Integer, int[]> fontSizes = new HashMap<>();
+        private int x;
+        private int y;
+        private Direction direction = Direction.LEFT_TO_RIGHT;
+
+        private Builder(int width, int height) {
+            this.width = width;
+            this.height = height;
+            fontSizes.put(PrinterState.code(Font.A.code), new int[]{12, 24});
+            fontSizes.put(PrinterState.code(Font.B.code), new int[]{9, 17});
+        }
+
+        /**
+         * Position of the print area on the paper in dots. Default 0, 0.
+         *
+         * @param x horizontal position (0-65535)
+         * @param y vertical position (0-65535)
+         * @return {@link Builder}
+         */
+        public Builder origin(int x, int y) {
+            if (x < 0 || y < 0 || x > 0xFFFF || y > 0xFFFF) {
+                throw new IllegalArgumentException("x and y must be 0-65535");
+            }
+            this.x = x;
+            this.y = y;
+            return this;
+        }
+
+        /**
+         * Print direction and starting position of the page. Default {@link Direction#LEFT_TO_RIGHT}.
+         * <p>
+         * Width and height are taken along the print direction, for {@link Direction#BOTTOM_TO_TOP} and
+         * {@link Direction#TOP_TO_BOTTOM} the width runs down the paper.
+         *
+         * @param direction direction
+         * @return {@link Builder}
+         */
+        public Builder direction(Direction direction) {
+            if (direction == null) {
+                throw new IllegalArgumentException("direction must not be null");
+            }
+            this.direction = direction;
+            return this;
+        }
+
+        /**
+         * Character cell of a font on the target printer, without character spacing.
+         *
+         * @param font   font
+         * @param width  character width in dots
+         * @param height character height in dots
+         * @return {@link Builder}
+         */
+        public Builder fontSize(Font font, int width, int height) {
+            if (width < 1 || height < 1) {
+                throw new IllegalArgumentException("width and height must be positive");
+            }
+            fontSizes.put(PrinterState.code(font.code), new int[]{width, height});
+            return this;
+        }
+
+        /**
+         * Places text in Font A at normal size.
+         *
+         * @param x    left edge in dots
+         * @param y    top edge in dots
+         * @param text single-byte characters
+         * @return {@link Builder}
+         */
+        public Builder text(int x, int y, CharSequence text) {
+            return text(x, y, text, Font.A, Width.X1, Height.X1);
+        }
+
+        /**
+         * Places text.
+         *
+         * @param x      left edge in dots
+         * @param y      top edge in dots
+         * @param text   single-byte characters
+         * @param font   font
+         * @param width  character width magnification
+         * @param height character height magnification
+         * @return {@link Builder}
+         */
+        public Builder text(int x, int y, CharSequence text, Font font, Width width, Height height) {
+            if (text == null || font == null || width == null || height == null) {
+                throw new IllegalArgumentException(PageLayout.class.getSimpleName() + " does not accept null values");
+            }
+            for (int i = 0; i < text.length(); i++) {
+                if (text.charAt(i) < ' ') {
+                    throw new IllegalArgumentException("text must not contain control characters");
+                }
+            }
+            Element element = new Element(x, y);
+            element.text = text.toString();
+            element.font = font;
+            element.width = width;
+            element.height = height;
+            elements.add(element);
+            return this;
+        }
+
+        /**
+         * Places an image.
+         *
+         * @param x     left edge in dots
+         * @param y     top edge in dots
+         * @param image raster image
+         * @return {@link Builder}
+         */
+        public Builder image(int x, int y, RasterImage image) {
+            if (image == null) {
+                throw new IllegalArgumentException("image must not be null");
+            }
+            check(x, y, image.getWidth(), image.getHeight());
+            Element element = new Element(x, y);
+            element.image = image;
+            elements.add(element);
+            return this;
+        }
+
+        /**
+         * Draws the outline of a rectangle.
+         *
+         * @param x         left edge in dots
+         * @param y         top edge in dots
+         * @param width     outer width in dots
+         * @param height    outer height in dots
+         * @param thickness line thickness in dots, a box at least twice as thick as it is wide or high is filled
+         * @return {@link Builder}
+         */
+        public Builder box(int x, int y, int width, int height, int thickness) {
+            if (thickness < 1) {
+                throw new IllegalArgumentException("thickness must be positive");
+            }
+            check(x, y, width, height);
+            if (thickness * 2 >= width || thickness * 2 >= height) {
+                image(x, y, filled(width, height));
+            } else {
+                RasterImage horizontal = filled(width, thickness);
+                RasterImage vertical = filled(thickness, height - thickness * 2);
+                image(x, y, horizontal);
+                image(x, y + thickness, vertical);
+                image(x + width - thickness, y + thickness, vertical);
+                image(x, y + height - thickness, horizontal);
+            }
+            return this;
+        }
+
+        /**
+         * Compiles the elements into a page.
+         *
+         * @return {@link PageLayout}
+         * @throws IllegalArgumentException if text uses a font without a size or does not fit in the page
+         */
+        public PageLayout build() {
+            List<Piece> pieces = new ArrayList<>();
+            for (Element element : elements) {
+                if (element.text != null) {
+                    int[] size = fontSizes.get(PrinterState.code(element.font.code));
+                    if (size == null) {
+                        throw new IllegalArgumentException("No size for font " + element.font + ", set it with fontSize");
+                    }
+                    int advance = element.text.length() * size[0] * ((element.width.code >> 4) + 1);
+                    int textHeight = size[1] * (element.height.code + 1);
+                    check(element.x, element.y, advance, textHeight);
+                    Piece piece = new Piece(element.x, element.y + textHeight, advance);
+                    piece.text = element.text;
+                    piece.font = element.font;
+                    piece.width = element.width;
+                    piece.height = element.height;
+                    pieces.add(piece);
+                } else {
+                    // One piece per stripe, the last one raised so its blank rows stay inside the area
+                    RasterImage image = element.image;
+                    for (int top = 0; top < image.getHeight(); top += STRIPE) {
+                        int baseline = Math.min(element.y + top + STRIPE, height);
+                        Piece piece = new Piece(element.x, baseline, image.getWidth());
+                        piece.image = image;
+                        piece.row = baseline - STRIPE - element.y;
+                        pieces.add(piece);
+                    }
+                }
+            }
+            // Stable, elements on one baseline keep the order they were added in when they share an x
+            pieces.sort(Comparator.comparingInt((Piece piece) -> piece.baseline).thenComparingInt(piece -> piece.x));
+            return new PageLayout(this, Collections.unmodifiableList(pieces));
+        }
+
+        private void check(int x, int y, int width, int height) {
+            if (x < 0 || y < 0 || width < 0 || height < 0
+                    || (long) x + width > this.width || (long) y + height > this.height) {
+                throw new IllegalArgumentException("Element at " + x + ", " + y + " of " + width + " × " + height
+                        + " does not fit in the page of " + this.width + " × " + this.height);
+            }
+        }
+
+        private static RasterImage filled(int width, int height) {
+            int bytesPerRow = (width + 7) >> 3;
+            byte[] data = new byte[bytesPerRow * height];
+            Arrays.fill(data, (byte) 0xFF);
+            if ((width & 7) != 0) {
+                byte last = (byte) (0xFF << (8 - (width & 7)));
+                for (int i = bytesPerRow - 1; i < data.length; i += bytesPerRow) {
+                    data[i] = last;
+                }
+            }
+            return RasterImage.wrap(data, width, height);
+        }
+
+    }
+
+    private static final class Element {
+
+        private final int x;
+        private final int y;
+        private String text;
+        private Font font;
+        private Width width;
+        private Height height;
+        private RasterImage image;
+
+        private Element(int x, int y) {
+            this.x = x;
+            this.y = y;
+        }
+
+    }
+
+    /**
+     * Text or a 24-row stripe of an image, with its bottom on one baseline.
+     */
+    private static final class Piece {
+
+        private final int x;
+        private final int baseline;
+        private final int advance;
+        private String text;
+        private Font font;
+        private Width width;
+        private Height height;
+        private RasterImage image;
+        private int row;
+
+        private Piece(int x, int baseline, int advance) {
+            this.x = x;
+            this.baseline = baseline;
+            this.advance = advance;
+        }
+
+    }
+
+}
@@ -0,0 +1,194 @@
+package com.github.terrytsai.escpos;
+
+import com.github.terrytsai.escpos.decode.Command;
+import com.github.terrytsai.escpos.decode.CommandDecoder;
+import com.github.terrytsai.escpos.decode.CommandListener;
+import com.github.terrytsai.escpos.decode.CommandType;
+
+import java.io.ByteArrayOutputStream;
+
+/**
+ * Peephole pass over the command stream of a {@link PrintJob}, see {@link PrintJob#optimize()}.
+ * <p>
+ * The pass keeps at most one pending run. A run grows while the next command is of the same kind and is written
+ * when anything else arrives.
+ */
+final class PeepholeOptimizer implements CommandListener {
+
+    private static final int LF = 10;
+    private static final int ESC = 27;
+    private static final int MAX_PARAMETER = 255;
+    // ESC d n is no longer than n LFs from 3 lines on
+    private static final int MIN_FOLDED_LINES = 3;
+
+    private static final int NONE = 0;
+    private static final int TEXT = 1;
+    private static final int LINES = 2;
+    private static final int DOTS = 3;
+    private static final int LINE_SPACING = 4;
+
+    private final ByteArrayOutputStream out;
+    private final PrintJob.Boundaries boundaries = new PrintJob.Boundaries();
+    private final byte[] code = new byte[16];
+
+    private int pending = NONE;
+    private int amount;
+    private int lineSpacing;
+    // Input bytes decoded, and the input offset from which the stream is copied unchanged, or -1
+    private long consumed;
+    private long verbatimFrom = -1;
+
+    private PeepholeOptimizer(int size) {
+        this.out = new ByteArrayOutputStream(size);
+    }
+
+    static PrintJob optimize(PrintJob job) {
+        byte[] data = job.data();
+        PeepholeOptimizer optimizer = new PeepholeOptimizer(data.length);
+        new CommandDecoder(optimizer).decode(data, 0, data.length);
+        optimizer.flushPending();
+
+        // A command cut short at the end, or everything from an unknown sequence on, is copied unchanged
+        int from = (int) (optimizer.verbatimFrom < 0 ? optimizer.consumed : optimizer.verbatimFrom);
+        int shift = optimizer.out.size() - from;
+        optimizer.out.write(data, from, data.length - from);
+        for (int boundary : job.boundaries()) {
+            if (boundary > from) {
+                optimizer.boundaries.add(boundary + shift);
+            }
+        }
+        return PrintJob.restore(optimizer.out.toByteArray(), optimizer.boundaries.toArray(), job.getBytesSaved());
+    }
+
+    @Override
+    public void textReceived(byte[] data, int off, int len) {
+        consumed += len;
+        if (verbatimFrom >= 0) {
+            return;
+        }
+        if (pending != TEXT) {
+            flushPending();
+            pending = TEXT;
+        }
+        out.write(data, off, len);
+    }
+
+    @Override
+    public void commandReceived(Command command) {
+        consumed += command.getLength();
+        if (verbatimFrom >= 0) {
+            return;
+        }
+        CommandType type = command.getType();
+        switch (type) {
+            case PRINT_AND_FEED_LINE:
+            case PRINT_AND_FEED_LINES:
+                int lines = type == CommandType.PRINT_AND_FEED_LINE ? 1 : command.getParameter(0);
+                if (pending != LINES) {
+                    flushPending();
+                    pending = LINES;
+                }
+                amount += lines;
+                return;
+            case PRINT_AND_FEED_PAPER:
+                if (pending != DOTS) {
+                    flushPending();
+                    pending = DOTS;
+                }
+                amount += command.getParameter(0);
+                return;
+            case SET_DEFAULT_LINE_SPACING:
+            case SET_LINE_SPACING:
+                // Only the last of back-to-back line spacing commands takes effect
+                if (pending != LINE_SPACING) {
+                    flushPending();
+                    pending = LINE_SPACING;
+                }
+                lineSpacing = type == CommandType.SET_LINE_SPACING ? command.getParameter(0) : -1;
+                return;
+            default:
+                flushPending();
+                out.write(code, 0, command.copyTo(code, 0));
+        }
+    }
+
+    @Override
+    public void dataReceived(Command command, byte[] data, int off, int len) {
+        consumed += len;
+        if (verbatimFrom < 0) {
+            out.write(data, off, len);
+        }
+    }
+
+    @Override
+    public void commandCompleted(Command command) {
+        if (verbatimFrom < 0 && pending == NONE) {
+            boundaries.add(out.size());
+        }
+    }
+
+    @Override
+    public void unknownReceived(byte[] data, int off, int len) {
+        if (verbatimFrom < 0) {
+            // Parameters of an unknown command may look like text or line feeds, nothing after it is touched
+            flushPending();
+            verbatimFrom = consumed;
+        }
+        consumed += len;
+    }
+
+    private void flushPending() {
+        switch (pending) {
+            case LINES:
+                if (amount < MIN_FOLDED_LINES) {
+                    for (int i = 0; i < amount; i++) {
+                        out.write(LF);
+                        boundaries.add(out.size());
+                    }
+                    if (amount == 0) {
+                        // Only ESC d 0, which prints without feeding
+                        feed('d', 0);
+                    }
+                } else {
+                    feed('d', amount);
+                }
+                break;
+            case DOTS:
+                feed('J', amount);
+                break;
+            case LINE_SPACING:
+                if (lineSpacing < 0) {
+                    out.write(ESC);
+                    out.write('2');
+                } else {
+                    out.write(ESC);
+                    out.write('3');
+                    out.write(lineSpacing);
+                }
+                boundaries.add(out.size());
+                break;
+            case TEXT:
+                boundaries.add(out.size());
+                break;
+            default:
+                break;
+        }
+        pending = NONE;
+        amount = 0;
+    }
+
+    /**
+     * Writes ESC d or ESC J, split where n exceeds one parameter.
+     */
+    private void feed(int function, int n) {
+        do {
+            int step = Math.min(n, MAX_PARAMETER);
+            out.write(ESC);
+            out.write(function);
+            out.write(step);
+            boundaries.add(out.size());
+            n -= step;
+        } while (n > 0);
+    }
+
+}
@@ -0,0 +1,133 @@
+package com.github.terrytsai.escpos;
+
+import java.io.ByteArrayOutputStream;
+import java.util.Arrays;
+import java.util.function.Consumer;
+
+/**
+ * Finished print job, the complete command stream of a receipt encoded ahead of transmission.
+ * <p>
+ * Recorded jobs also keep the offset at which each command ends, so a {@link PrinterChannel} can interleave
+ * real-time commands with the job without splitting a command.
+ */
+public final class PrintJob {
+
+    private static final int[] NO_BOUNDARIES = new int[0];
+
+    private final byte[] data;
+    private final int[] boundaries;
+    private final long bytesSaved;
+
+    private PrintJob(byte[] data, int[] boundaries, long bytesSaved) {
+        this.data = data;
+        this.boundaries = boundaries;
+        this.bytesSaved = bytesSaved;
+    }
+
+    /**
+     * Records the commands a job consists of.
+     * <p>
+     * Commands may enable {@link EscPosWriter#trackState(boolean)} on the writer to drop redundant mode commands,
+     * the bytes dropped are reported by {@link #getBytesSaved()}.
+     *
+     * @param commands commands to record
+     * @return {@link PrintJob}
+     */
+    public static PrintJob record(Consumer<? super EscPosWriter> commands) {
+        ByteArrayOutputStream recording = new ByteArrayOutputStream();
+        EscPosWriter writer = new EscPosWriter(recording, FlushPolicy.BUFFER_FULL);
+        Boundaries boundaries = new Boundaries();
+        writer.commitListener = () -> boundaries.add(recording.size() + writer.buffered());
+        commands.accept(writer);
+        writer.flush();
+        return new PrintJob(recording.toByteArray(), boundaries.toArray(), writer.getBytesSaved());
+    }
+
+    /**
+     * Creates a job from encoded commands. The array is not copied.
+     * <p>
+     * The command boundaries of such a job are unknown, a {@link PrinterChannel} writes it in one piece.
+     *
+     * @param data encoded commands
+     * @return {@link PrintJob}
+     */
+    public static PrintJob of(byte[] data) {
+        if (data == null) {
+            throw new IllegalArgumentException("data must not be null");
+        }
+        return new PrintJob(data, NO_BOUNDARIES, 0);
+    }
+
+    /**
+     * Restores a job with known command boundaries, as read back from a {@link PrintSpool}.
+     */
+    static PrintJob restore(byte[] data, int[] boundaries, long bytesSaved) {
+        return new PrintJob(data, boundaries, bytesSaved);
+    }
+
+    /**
+     * Returns an equivalent job with shorter command sequences.
+     * <p>
+     * [Notes]
+     * - Runs of LF and ESC d become one ESC d n from 3 lines on, so the paper is fed in one motion. Runs of ESC J become one ESC J n.
+     * - Of back-to-back ESC 2 and ESC 3 commands only the last is kept.
+     * - Adjacent text runs become one command, the channel no longer splits the job between them.
+     * - Everything from the first byte sequence the decoder does not know is left unchanged, as its parameters cannot be told apart from text or line feeds.
+     *
+     * @return optimized {@link PrintJob}, with the same {@link #getBytesSaved()}
+     */
+    public PrintJob optimize() {
+        return PeepholeOptimizer.optimize(this);
+    }
+
+    /**
+     * Length of the encoded commands in bytes.
+     *
+     * @return size
+     */
+    public int size() {
+        return data.length;
+    }
+
+    /**
+     * Bytes of redundant mode commands the writer dropped while recording, with state tracking enabled.
+     *
+     * @return bytes saved
+     */
+    public long getBytesSaved() {
+        return bytesSaved;
+    }
+
+    byte[] data() {
+        return data;
+    }
+
+    /**
+     * Ascending offsets at which a command ends.
+     */
+    int[] boundaries() {
+        return boundaries;
+    }
+
+    static final class Boundaries {
+
+        private int[] offsets = new int[64];
+        private int count;
+
+        void add(int offset) {
+            if (count > 0 && offsets[count - 1] == offset) {
+                return;
+            }
+            if (count == offsets.length) {
+                offsets = Arrays.copyOf(offsets, count * 2);
+            }
+            offsets[count++] = offset;
+        }
+
+        int[] toArray() {
+            return Arrays.copyOf(offsets, count);
+        }
+
+    }
+
+}
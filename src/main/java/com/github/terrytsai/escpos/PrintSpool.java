@@ -0,0 +1,348 @@
+package com.github.terrytsai.escpos;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.Buffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Crash-safe spool for the jobs of a {@link PrinterChannel}, kept in memory-mapped files.
+ * <p>
+ * Each accepted job is appended to the current segment file before it is queued, and its sequence number is
+ * appended to the segment's index once it is settled. After a restart, a channel built with the same spool writes
+ * the jobs that were never settled before any new job.
+ * <p>
+ * [Notes]
+ * - Appending copies the job into the mapped segment, there is no system call and no fsync per job. The data survives a crash of the JVM as soon as it is appended. {@link #force()} also makes it survive a crash of the operating system.
+ * - A job is settled once it is written, or when its future is cancelled or it is dropped under {@link Backpressure#DROP_OLDEST}, the application no longer wants it printed.
+ * - A job whose write failed is not settled. It stays in the spool and is counted by {@link #getPending()} until {@link PrinterChannel#replayFailed()} writes it or {@link PrinterChannel#discardFailed()} settles it, and is written again after a restart. It can be printed twice if the printer received part of it.
+ * - A segment is kept while one of its jobs is pending, replay or discard failed jobs so a printer that stays offline does not fill the directory.
+ * - A segment is rotated when it is full, and deleted once every job in it completed.
+ * - A directory must be used by one spool at a time.
+ *
+ * <pre>{@code
+ * PrintSpool spool = PrintSpool.open(Paths.get("/var/spool/escpos/COM3"));
+ * PrinterChannel channel = PrinterChannel.builder(out).spool(spool).build(); // replays unfinished jobs
+ * }</pre>
+ */
+public final class PrintSpool implements AutoCloseable {
+
+    private static final int DEFAULT_SEGMENT_SIZE = 16 * 1024 * 1024;
+    private static final int MIN_SEGMENT_SIZE = 4096;
+    private static final int INDEX_ENTRIES = 4096;
+    private static final int MAGIC = 0x53504F4C; // SPOL
+    private static final int HEADER_SIZE = 20;
+    private static final String SEGMENT_SUFFIX = ".spool";
+    private static final String INDEX_SUFFIX = ".idx";
+
+    private final Path directory;
+    private final int segmentSize;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final ArrayDeque<Segment> segments = new ArrayDeque<>();
+    private List<Recovered> recovered = new ArrayList<>();
+    private Segment active;
+    private long nextSequence = 1;
+    private boolean closed;
+
+    private PrintSpool(Path directory, int segmentSize) {
+        this.directory = directory;
+        this.segmentSize = segmentSize;
+    }
+
+    /**
+     * Opens a spool with 16 MB segments, recovering the jobs that did not complete.
+     *
+     * @param directory spool directory, created if missing
+     * @return {@link PrintSpool}
+     * @throws UncheckedIOException if the directory cannot be read or written
+     */
+    public static PrintSpool open(Path directory) {
+        return open(directory, DEFAULT_SEGMENT_SIZE);
+    }
+
+    /**
+     * Opens a spool, recovering the jobs that did not complete.
+     *
+     * @param directory   spool directory, created if missing
+     * @param segmentSize size of each segment file in bytes, a larger job gets a segment of its own size
+     * @return {@link PrintSpool}
+     * @throws UncheckedIOException if the directory cannot be read or written
+     */
+    public static PrintSpool open(Path directory, int segmentSize) {
+        if (directory == null) {
+            throw new IllegalArgumentException("directory must not be null");
+        }
+        if (segmentSize < MIN_SEGMENT_SIZE) {
+            throw new IllegalArgumentException("segmentSize must be at least " + MIN_SEGMENT_SIZE);
+        }
+        PrintSpool spool = new PrintSpool(directory, segmentSize);
+        try {
+            Files.createDirectories(directory);
+            spool.recover();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return spool;
+    }
+
+    /**
+     * Number of jobs appended and not completed, including recovered jobs.
+     *
+     * @return pending jobs
+     */
+    public int getPending() {
+        lock.lock();
+        try {
+            int pending = 0;
+            for (Segment segment : segments) {
+                pending += segment.records - segment.settled;
+            }
+            return pending;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Forces the open segments and indexes to the storage device.
+     */
+    public void force() {
+        lock.lock();
+        try {
+            for (Segment segment : segments) {
+                segment.data.force();
+                segment.index.force();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Closes the spool. Pending jobs stay on disk and are recovered by the next {@link #open(Path)}.
+     */
+    @Override
+    public void close() {
+        lock.lock();
+        try {
+            closed = true;
+            segments.clear();
+            active = null;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Appends a job and returns its sequence number.
+     */
+    long append(PrintJob job) {
+        byte[] data = job.data();
+        int[] boundaries = job.boundaries();
+        int size = HEADER_SIZE + boundaries.length * 4 + data.length;
+        lock.lock();
+        try {
+            if (closed) {
+                throw new IllegalStateException(PrintSpool.class.getSimpleName() + " is closed");
+            }
+            if (active == null || active.data.remaining() < size || active.records == INDEX_ENTRIES) {
+                active = create(nextSequence, Math.max(segmentSize, size));
+                segments.add(active);
+            }
+            long sequence = nextSequence++;
+            MappedByteBuffer buffer = active.data;
+            int start = buffer.position();
+            buffer.putInt(start + 4, data.length);
+            buffer.putInt(start + 8, boundaries.length);
+            buffer.putLong(start + 12, sequence);
+            ((Buffer) buffer).position(start + HEADER_SIZE);
+            for (int boundary : boundaries) {
+                buffer.putInt(boundary);
+            }
+            buffer.put(data);
+            // The magic is written last, a record cut short by a crash is never read back
+            buffer.putInt(start, MAGIC);
+            active.records++;
+            return sequence;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Records that a job completed, deleting its segment once every job in it completed.
+     */
+    void settle(long sequence) {
+        lock.lock();
+        try {
+            for (Iterator<Segment> it = segments.iterator(); it.hasNext(); ) {
+                Segment segment = it.next();
+                if (segment.contains(sequence)) {
+                    segment.index.putLong(sequence);
+                    segment.settled++;
+                    if (segment != active && segment.settled == segment.records) {
+                        it.remove();
+                        delete(segment.first);
+                    }
+                    return;
+                }
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Recovered jobs in append order, handed out once.
+     */
+    List<Recovered> takeRecovered() {
+        lock.lock();
+        try {
+            List<Recovered> jobs = recovered;
+            recovered = Collections.emptyList();
+            return jobs;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void recover() throws IOException {
+        List<Long> firsts = new ArrayList<>();
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, "*" + SEGMENT_SUFFIX)) {
+            for (Path file : files) {
+                String name = file.getFileName().toString();
+                firsts.add(Long.parseLong(name.substring(0, name.length() - SEGMENT_SUFFIX.length())));
+            }
+        }
+        Collections.sort(firsts);
+
+        for (long first : firsts) {
+            Segment segment = map(first, (int) Files.size(segmentPath(first)));
+            Set<Long> settled = new HashSet<>();
+            long sequence;
+            while (segment.index.remaining() >= 8 && (sequence = segment.index.getLong(segment.index.position())) != 0) {
+                settled.add(sequence);
+                ((Buffer) segment.index).position(segment.index.position() + 8);
+            }
+
+            MappedByteBuffer buffer = segment.data;
+            while (buffer.remaining() >= HEADER_SIZE && buffer.getInt(buffer.position()) == MAGIC) {
+                int start = buffer.position();
+                int length = buffer.getInt(start + 4);
+                int[] boundaries = new int[buffer.getInt(start + 8)];
+                sequence = buffer.getLong(start + 12);
+                ((Buffer) buffer).position(start + HEADER_SIZE);
+                for (int i = 0; i < boundaries.length; i++) {
+                    boundaries[i] = buffer.getInt();
+                }
+                byte[] data = new byte[length];
+                buffer.get(data);
+                segment.records++;
+                segment.last = sequence;
+                nextSequence = Math.max(nextSequence, sequence + 1);
+                if (settled.contains(sequence)) {
+                    segment.settled++;
+                } else {
+                    recovered.add(new Recovered(sequence, PrintJob.restore(data, boundaries, 0)));
+                }
+            }
+
+            if (segment.settled == segment.records) {
+                delete(first);
+            } else {
+                segments.add(segment);
+            }
+        }
+    }
+
+    private Segment create(long first, int size) throws IOException {
+        if (active != null) {
+            active.last = nextSequence - 1;
+            if (active.settled == active.records) {
+                segments.remove(active);
+                delete(active.first);
+            }
+        }
+        return map(first, size);
+    }
+
+    private Segment map(long first, int size) throws IOException {
+        MappedByteBuffer data;
+        MappedByteBuffer index;
+        try (FileChannel channel = FileChannel.open(segmentPath(first),
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            data = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+        }
+        try (FileChannel channel = FileChannel.open(indexPath(first),
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            index = channel.map(FileChannel.MapMode.READ_WRITE, 0, INDEX_ENTRIES * 8L);
+        }
+        return new Segment(first, data, index);
+    }
+
+    private void delete(long first) {
+        try {
+            Files.deleteIfExists(segmentPath(first));
+            Files.deleteIfExists(indexPath(first));
+        } catch (IOException ignored) {
+            // Some platforms refuse to delete a mapped file, the next open deletes the completed segment
+        }
+    }
+
+    private Path segmentPath(long first) {
+        return directory.resolve(String.format("%020d", first) + SEGMENT_SUFFIX);
+    }
+
+    private Path indexPath(long first) {
+        return directory.resolve(String.format("%020d", first) + INDEX_SUFFIX);
+    }
+
+    private static final class Segment {
+
+        private final long first;
+        private final MappedByteBuffer data;
+        private final MappedByteBuffer index;
+        private long last = Long.MAX_VALUE;
+        private int records;
+        private int settled;
+
+        private Segment(long first, MappedByteBuffer data, MappedByteBuffer index) {
+            this.first = first;
+            this.data = data;
+            this.index = index;
+        }
+
+        private boolean contains(long sequence) {
+            return sequence >= first && sequence <= last;
+        }
+
+    }
+
+    static final class Recovered {
+
+        final long sequence;
+        final PrintJob job;
+
+        Recovered(long sequence, PrintJob job) {
+            this.sequence = sequence;
+            this.job = job;
+        }
+
+    }
+
+}
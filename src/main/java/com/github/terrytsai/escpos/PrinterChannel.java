@@ -0,0 +1,685 @@
+package com.github.terrytsai.escpos;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+
+/**
+ * Asynchronous job queue for one printer.
+ * <p>
+ * Finished jobs are accepted into a bounded queue and written to the OutputStream by a dedicated writer thread,
+ * so submitting threads never wait on a slow serial line unless {@link Backpressure#BLOCK} is chosen.
+ * Jobs never interleave. A failed write fails only its own job, the next job is attempted on the same stream.
+ * <p>
+ * Real-time commands sent with {@link #sendRealTime(Consumer)} bypass the queue. Recorded jobs are written in chunks
+ * that end on command boundaries, and queued real-time commands are written between chunks, so a drawer kick
+ * does not wait for a large receipt to finish.
+ *
+ * <pre>{@code
+ * PrinterChannel channel = new PrinterChannel(serialPort.getOutputStream(), 32, Backpressure.REJECT);
+ *
+ * channel.submit(w -> w.initialize().text("ORDER #1042").printAndFeedLines(3).cut(CutA.PARTIAL))
+ *         .whenComplete((done, error) -> log(error));
+ * }</pre>
+ * <p>
+ * Bursts of small jobs can be coalesced, see {@link Builder#coalesce(long, TimeUnit, int)}.
+ * <p>
+ * The writer thread is a daemon platform thread, {@link Builder#threadFactory(ThreadFactory)} can run it on
+ * a virtual thread instead, see {@link PrinterThreads}.
+ * <p>
+ * Jobs can be kept in a {@link PrintSpool} until they complete, so jobs accepted before a crash are written
+ * after a restart, see {@link Builder#spool(PrintSpool)}.
+ */
+public final class PrinterChannel implements AutoCloseable {
+
+    private static final int DEFAULT_CAPACITY = 64;
+    private static final int DEFAULT_CHUNK_SIZE = 64;
+    private static final int DLE = 16;
+    private static final String THREAD_NAME = "escpos-printer-channel";
+
+    private final OutputStream out;
+    private final int capacity;
+    private final Backpressure backpressure;
+    private final int chunkSize;
+    private final long coalesceNanos;
+    private final int coalesceLimit;
+    private final PrintSpool spool;
+    private final ArrayDeque<Entry> queue = new ArrayDeque<>();
+    private final ArrayDeque<Entry> urgent = new ArrayDeque<>();
+    // Spooled jobs whose write failed, kept in the spool until replayed or discarded
+    private final List<PrintSpool.Recovered> failed = new ArrayList<>();
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition notEmpty = lock.newCondition();
+    private final Condition notFull = lock.newCondition();
+    private final Thread writer;
+    private boolean closed;
+
+    // Writer thread only
+    private final List<Entry> batch = new ArrayList<>();
+    private byte[] batchData = new byte[0];
+    private int[] batchBoundaries = new int[0];
+
+    /**
+     * Constructor
+     * <p>
+     * Queues up to 64 jobs and blocks submitting threads when full.
+     *
+     * @param out OutputStream of the printer
+     */
+    public PrinterChannel(OutputStream out) {
+        this(out, DEFAULT_CAPACITY, Backpressure.BLOCK);
+    }
+
+    /**
+     * Constructor
+     *
+     * @param out          OutputStream of the printer
+     * @param capacity     jobs the queue holds, not counting the job being written
+     * @param backpressure what to do when the queue is full
+     */
+    public PrinterChannel(OutputStream out, int capacity, Backpressure backpressure) {
+        this(out, capacity, backpressure, DEFAULT_CHUNK_SIZE);
+    }
+
+    /**
+     * Constructor
+     *
+     * @param out          OutputStream of the printer
+     * @param capacity     jobs the queue holds, not counting the job being written
+     * @param backpressure what to do when the queue is full
+     * @param chunkSize    bytes written between checks for real-time commands, a chunk is extended to the end of
+     *                     a command that does not fit. About baud / 100 keeps real-time latency under 100 ms.
+     */
+    public PrinterChannel(OutputStream out, int capacity, Backpressure backpressure, int chunkSize) {
+        this(builder(out).capacity(capacity).backpressure(backpressure).chunkSize(chunkSize));
+    }
+
+    private PrinterChannel(Builder builder) {
+        if (builder.out == null || builder.backpressure == null || builder.threadFactory == null) {
+            throw new IllegalArgumentException(PrinterChannel.class.getSimpleName() + " does not accept null values");
+        }
+        if (builder.capacity < 1 || builder.chunkSize < 1) {
+            throw new IllegalArgumentException("capacity and chunkSize must be positive");
+        }
+        if (builder.coalesceNanos < 0 || builder.coalesceLimit < 0) {
+            throw new IllegalArgumentException("coalesce window and limit must not be negative");
+        }
+        this.out = builder.out;
+        this.capacity = builder.capacity;
+        this.backpressure = builder.backpressure;
+        this.chunkSize = builder.chunkSize;
+        this.coalesceNanos = builder.coalesceNanos;
+        this.coalesceLimit = builder.coalesceLimit;
+        this.spool = builder.spool;
+        if (spool != null) {
+            // Recovered jobs were accepted before the restart, they go first and are not limited by the capacity
+            for (PrintSpool.Recovered recovered : spool.takeRecovered()) {
+                Entry entry = new Entry(recovered.job, false);
+                settleOnCompletion(entry, recovered.sequence);
+                queue.add(entry);
+            }
+        }
+        this.writer = builder.threadFactory.newThread(this::run);
+        this.writer.start();
+    }
+
+    /**
+     * Creates a builder for a channel with the defaults of {@link #PrinterChannel(OutputStream)}.
+     *
+     * @param out OutputStream of the printer
+     * @return {@link Builder}
+     */
+    public static Builder builder(OutputStream out) {
+        return new Builder(out);
+    }
+
+    /**
+     * Records and queues a job.
+     *
+     * @param commands commands to record
+     * @return future completed once the job is written and flushed
+     * @see #submit(PrintJob)
+     */
+    public CompletableFuture<Void> submit(Consumer<? super EscPosWriter> commands) {
+        return submit(PrintJob.record(commands));
+    }
+
+    /**
+     * Queues a job for writing.
+     * <p>
+     * [Notes]
+     * - The future completes once the job is written and flushed, or exceptionally with the IOException of a failed write.
+     * - The future completes exceptionally with a RejectedExecutionException if the queue is full under {@link Backpressure#REJECT}, or the channel is closed.
+     * - Jobs dropped under {@link Backpressure#DROP_OLDEST} are cancelled. A queued job whose future is cancelled is skipped.
+     * - Dependent actions of the future run on the writer thread unless an async variant is used, they should not block.
+     * - With a {@link PrintSpool}, an accepted job is appended to the spool before it is queued. The future completes exceptionally with an UncheckedIOException if the append fails, or an IllegalStateException if the spool is closed.
+     * - With a {@link PrintSpool}, a job is settled once it is written, cancelled or dropped. A job whose write failed stays in the spool until {@link #replayFailed()} writes it or {@link #discardFailed()} settles it, and is written again after a restart.
+     *
+     * @param job job
+     * @return future of the job
+     */
+    public CompletableFuture<Void> submit(PrintJob job) {
+        if (job == null) {
+            throw new IllegalArgumentException("job must not be null");
+        }
+        Entry entry = new Entry(job, false);
+        List<Entry> dropped = null;
+        lock.lock();
+        try {
+            while (!closed && queue.size() >= capacity) {
+                if (backpressure == Backpressure.BLOCK) {
+                    notFull.await();
+                } else if (backpressure == Backpressure.REJECT) {
+                    return reject(entry, "queue is full");
+                } else {
+                    if (dropped == null) {
+                        dropped = new ArrayList<>();
+                    }
+                    dropped.add(queue.poll());
+                }
+            }
+            if (closed) {
+                return reject(entry, "is closed");
+            }
+            if (spool != null) {
+                settleOnCompletion(entry, spool.append(job));
+            }
+            queue.add(entry);
+            notEmpty.signal();
+        } catch (UncheckedIOException | IllegalStateException e) {
+            // Thrown by the spool append, the job was not queued
+            entry.future.completeExceptionally(e);
+            return entry.future;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return reject(entry, "submit was interrupted");
+        } finally {
+            lock.unlock();
+            // Completing a future runs its dependent actions, keep them out of the lock
+            if (dropped != null) {
+                for (Entry oldest : dropped) {
+                    oldest.future.cancel(false);
+                }
+            }
+        }
+        return entry.future;
+    }
+
+    /**
+     * Records real-time commands and sends them ahead of every queued job.
+     *
+     * @param commands real-time commands, such as {@link EscPosWriter#sendRealTimeRequestPulse}
+     * @return future completed once the commands are written and flushed
+     * @see #sendRealTime(PrintJob)
+     */
+    public CompletableFuture<Void> sendRealTime(Consumer<? super EscPosWriter> commands) {
+        return sendRealTime(PrintJob.record(commands));
+    }
+
+    /**
+     * Sends real-time commands (DLE EOT, DLE ENQ, DLE DC4) ahead of every queued job.
+     * <p>
+     * [Notes]
+     * - If a job is being written, the commands are written at the next command boundary of the job.
+     * - Jobs created with {@link PrintJob#of(byte[])} have no known command boundaries, the commands wait until such a job is written.
+     * - The printer ignores some real-time commands while it transmits block data, and during the data of some commands, see the notes of each command.
+     * - Real-time commands are never subject to {@link Backpressure}.
+     *
+     * @param commands encoded real-time commands
+     * @return future completed once the commands are written and flushed
+     * @throws IllegalArgumentException if the commands do not start with DLE
+     */
+    public CompletableFuture<Void> sendRealTime(PrintJob commands) {
+        if (commands == null || commands.size() == 0 || commands.data()[0] != DLE) {
+            throw new IllegalArgumentException("Real-time commands must start with DLE");
+        }
+        Entry entry = new Entry(commands, true);
+        lock.lock();
+        try {
+            if (closed) {
+                return reject(entry, "is closed");
+            }
+            urgent.add(entry);
+            notEmpty.signal();
+        } finally {
+            lock.unlock();
+        }
+        return entry.future;
+    }
+
+    /**
+     * Number of queued jobs, not counting the job being written.
+     *
+     * @return queued jobs
+     */
+    public int size() {
+        lock.lock();
+        try {
+            return queue.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Number of spooled jobs whose write failed and that were neither replayed nor discarded.
+     *
+     * @return failed jobs, always 0 without a {@link PrintSpool}
+     */
+    public int getFailed() {
+        lock.lock();
+        try {
+            return failed.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Queues the spooled jobs whose write failed again, ahead of every queued job and in the order they were
+     * submitted.
+     * <p>
+     * [Notes]
+     * - Call it once the printer is back, for example when a {@code StatusMonitor} reports it online. Failed jobs are not retried automatically.
+     * - Replayed jobs are not limited by the capacity. A replayed job that fails again is kept for the next replay.
+     * - The futures returned by {@link #submit(PrintJob)} for the failed jobs stay failed, the returned future reports the replay.
+     *
+     * @return future completed once every replayed job is written and flushed, or exceptionally if one fails or the channel is closed
+     */
+    public CompletableFuture<Void> replayFailed() {
+        List<CompletableFuture<Void>> futures = new ArrayList<>();
+        lock.lock();
+        try {
+            if (closed) {
+                return reject(new Entry(null, false), "is closed");
+            }
+            for (int i = failed.size() - 1; i >= 0; i--) {
+                PrintSpool.Recovered job = failed.get(i);
+                Entry entry = new Entry(job.job, false);
+                settleOnCompletion(entry, job.sequence);
+                queue.addFirst(entry);
+                futures.add(entry.future);
+            }
+            failed.clear();
+            notEmpty.signal();
+        } finally {
+            lock.unlock();
+        }
+        return CompletableFuture.allOf(futures.toArray(new CompletableFuture[0]));
+    }
+
+    /**
+     * Settles the spooled jobs whose write failed without writing them, so the spool can delete their segments.
+     *
+     * @return jobs discarded
+     */
+    public int discardFailed() {
+        List<PrintSpool.Recovered> discarded;
+        lock.lock();
+        try {
+            discarded = new ArrayList<>(failed);
+            failed.clear();
+        } finally {
+            lock.unlock();
+        }
+        for (PrintSpool.Recovered job : discarded) {
+            spool.settle(job.sequence);
+        }
+        return discarded.size();
+    }
+
+    /**
+     * Stops accepting jobs and waits until the queued jobs are written. The OutputStream is not closed.
+     */
+    @Override
+    public void close() {
+        lock.lock();
+        try {
+            closed = true;
+            notEmpty.signalAll();
+            notFull.signalAll();
+        } finally {
+            lock.unlock();
+        }
+        if (Thread.currentThread() != writer) {
+            try {
+                writer.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    private void run() {
+        Entry entry;
+        while ((entry = take()) != null) {
+            if (entry.future.isDone()) {
+                continue;
+            }
+            if (entry.realTime) {
+                try {
+                    out.write(entry.job.data());
+                    out.flush();
+                    entry.future.complete(null);
+                } catch (IOException | RuntimeException e) {
+                    entry.future.completeExceptionally(e);
+                }
+                continue;
+            }
+
+            batch.add(entry);
+            if (coalesceNanos > 0) {
+                coalesce(entry.job.size());
+            }
+            try {
+                writeBatch();
+                out.flush();
+                for (Entry job : batch) {
+                    job.future.complete(null);
+                }
+            } catch (IOException | RuntimeException e) {
+                // The stream does not tell which jobs got through
+                for (Entry job : batch) {
+                    job.future.completeExceptionally(e);
+                }
+            }
+            batch.clear();
+        }
+    }
+
+    /**
+     * Adds the jobs queued within the coalescing window to the batch, up to the coalescing limit.
+     * Stops early when real-time commands are waiting.
+     */
+    private void coalesce(int size) {
+        long deadline = System.nanoTime() + coalesceNanos;
+        lock.lock();
+        try {
+            while (true) {
+                Entry next;
+                while ((next = queue.peek()) != null && size + next.job.size() <= coalesceLimit) {
+                    queue.poll();
+                    if (!next.future.isDone()) {
+                        batch.add(next);
+                        size += next.job.size();
+                    }
+                }
+                long nanos = deadline - System.nanoTime();
+                if (nanos <= 0 || closed || !urgent.isEmpty() || next != null) {
+                    break;
+                }
+                notEmpty.awaitNanos(nanos);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            notFull.signalAll();
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Writes the batch as one stream, keeping the command boundaries of each job and the end of each job.
+     */
+    private void writeBatch() throws IOException {
+        if (batch.size() == 1) {
+            PrintJob job = batch.get(0).job;
+            write(job.data(), job.size(), job.boundaries(), job.boundaries().length);
+            return;
+        }
+        int size = 0;
+        int boundaryCount = 0;
+        for (Entry entry : batch) {
+            size += entry.job.size();
+            boundaryCount += entry.job.boundaries().length + 1;
+        }
+        if (batchData.length < size) {
+            batchData = new byte[Math.max(size, batchData.length * 2)];
+        }
+        if (batchBoundaries.length < boundaryCount) {
+            batchBoundaries = new int[Math.max(boundaryCount, batchBoundaries.length * 2)];
+        }
+        int length = 0;
+        int count = 0;
+        for (Entry entry : batch) {
+            byte[] data = entry.job.data();
+            System.arraycopy(data, 0, batchData, length, data.length);
+            for (int boundary : entry.job.boundaries()) {
+                batchBoundaries[count++] = length + boundary;
+            }
+            length += data.length;
+            if (count == 0 || batchBoundaries[count - 1] != length) {
+                batchBoundaries[count++] = length;
+            }
+        }
+        write(batchData, length, batchBoundaries, count);
+    }
+
+    /**
+     * Writes data in chunks of about chunkSize bytes that end on command boundaries,
+     * with queued real-time commands in between.
+     */
+    private void write(byte[] data, int length, int[] boundaries, int boundaryCount) throws IOException {
+        int next = 0;
+        int pos = 0;
+        while (pos < length) {
+            while (next < boundaryCount && boundaries[next] <= pos) {
+                next++;
+            }
+            int end;
+            if (length - pos <= chunkSize || next == boundaryCount) {
+                end = length;
+            } else {
+                // Furthest boundary within the chunk, or the end of a command longer than the chunk
+                end = boundaries[next];
+                while (next + 1 < boundaryCount && boundaries[next + 1] - pos <= chunkSize) {
+                    end = boundaries[++next];
+                }
+            }
+            out.write(data, pos, end - pos);
+            pos = end;
+            if (pos < length) {
+                writeRealTime();
+            }
+        }
+    }
+
+    private void writeRealTime() throws IOException {
+        Entry entry;
+        while ((entry = pollRealTime()) != null) {
+            if (entry.future.isDone()) {
+                continue;
+            }
+            try {
+                out.write(entry.job.data());
+                out.flush();
+                entry.future.complete(null);
+            } catch (IOException | RuntimeException e) {
+                entry.future.completeExceptionally(e);
+                throw e;
+            }
+        }
+    }
+
+    private Entry pollRealTime() {
+        lock.lock();
+        try {
+            return urgent.poll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Next real-time commands or queued job, or null once the channel is closed and both queues are empty.
+     */
+    private Entry take() {
+        lock.lock();
+        try {
+            while (urgent.isEmpty() && queue.isEmpty() && !closed) {
+                notEmpty.awaitUninterruptibly();
+            }
+            Entry entry = urgent.poll();
+            if (entry == null) {
+                entry = queue.poll();
+                notFull.signal();
+            }
+            return entry;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void settleOnCompletion(Entry entry, long sequence) {
+        // A failed write stays in the spool until replayed or discarded, a cancelled or dropped job is not wanted
+        entry.future.whenComplete((done, error) -> {
+            if (error == null || error instanceof CancellationException) {
+                spool.settle(sequence);
+                return;
+            }
+            lock.lock();
+            try {
+                failed.add(new PrintSpool.Recovered(sequence, entry.job));
+            } finally {
+                lock.unlock();
+            }
+        });
+    }
+
+    private static CompletableFuture<Void> reject(Entry entry, String reason) {
+        entry.future.completeExceptionally(
+                new RejectedExecutionException(PrinterChannel.class.getSimpleName() + " " + reason));
+        return entry.future;
+    }
+
+    /**
+     * Configures a {@link PrinterChannel}.
+     */
+    public static final class Builder {
+
+        private final OutputStream out;
+        private int capacity = DEFAULT_CAPACITY;
+        private Backpressure backpressure = Backpressure.BLOCK;
+        private int chunkSize = DEFAULT_CHUNK_SIZE;
+        private ThreadFactory threadFactory = PrinterThreads.platform(THREAD_NAME);
+        private long coalesceNanos;
+        private int coalesceLimit;
+        private PrintSpool spool;
+
+        private Builder(OutputStream out) {
+            this.out = out;
+        }
+
+        /**
+         * Jobs the queue holds, not counting the job being written. Default 64.
+         *
+         * @param capacity capacity
+         * @return {@link Builder}
+         */
+        public Builder capacity(int capacity) {
+            this.capacity = capacity;
+            return this;
+        }
+
+        /**
+         * What to do when the queue is full. Default {@link Backpressure#BLOCK}.
+         *
+         * @param backpressure backpressure
+         * @return {@link Builder}
+         */
+        public Builder backpressure(Backpressure backpressure) {
+            this.backpressure = backpressure;
+            return this;
+        }
+
+        /**
+         * Bytes written between checks for real-time commands. Default 64.
+         *
+         * @param chunkSize chunk size
+         * @return {@link Builder}
+         * @see #PrinterChannel(OutputStream, int, Backpressure, int)
+         */
+        public Builder chunkSize(int chunkSize) {
+            this.chunkSize = chunkSize;
+            return this;
+        }
+
+        /**
+         * Creates the writer thread. Default daemon platform threads.
+         *
+         * @param threadFactory thread factory, for example {@link PrinterThreads#virtual(String)}
+         * @return {@link Builder}
+         */
+        public Builder threadFactory(ThreadFactory threadFactory) {
+            this.threadFactory = threadFactory;
+            return this;
+        }
+
+        /**
+         * Coalesces bursts of jobs. After taking a job, the writer waits up to the window for more jobs and
+         * writes all of them as one stream with a single flush. Default off.
+         * <p>
+         * [Notes]
+         * - Each job keeps its own future, completed when the whole batch is written and flushed. If the batch fails, every job in it fails.
+         * - The job boundaries are kept, real-time commands are still written between commands.
+         * - A batch stops growing at the limit, and when real-time commands are waiting. A job larger than the limit is written alone.
+         * - A job waits up to the window before it is written, keep the window short, for example 5-20 ms.
+         *
+         * @param window   how long to wait for more jobs, 0 disables coalescing
+         * @param unit     unit of window
+         * @param maxBytes largest batch in bytes
+         * @return {@link Builder}
+         */
+        public Builder coalesce(long window, TimeUnit unit, int maxBytes) {
+            this.coalesceNanos = unit.toNanos(window);
+            this.coalesceLimit = maxBytes;
+            return this;
+        }
+
+        /**
+         * Keeps jobs in a spool until their futures complete. The channel first writes the jobs the spool
+         * recovered, in the order they were accepted. Default none.
+         * <p>
+         * [Notes]
+         * - A spool must be used by one channel.
+         * - A job written before a crash, but not yet flushed, is written again after the restart.
+         *
+         * @param spool spool, or null
+         * @return {@link Builder}
+         */
+        public Builder spool(PrintSpool spool) {
+            this.spool = spool;
+            return this;
+        }
+
+        public PrinterChannel build() {
+            return new PrinterChannel(this);
+        }
+
+    }
+
+    private static final class Entry {
+
+        private final PrintJob job;
+        private final boolean realTime;
+        private final CompletableFuture<Void> future = new CompletableFuture<>();
+
+        private Entry(PrintJob job, boolean realTime) {
+            this.job = job;
+            this.realTime = realTime;
+        }
+
+    }
+
+}
@@ -0,0 +1,159 @@
+package com.github.terrytsai.escpos;
+
+import java.util.Arrays;
+
+/**
+ * Host-side mirror of the print modes of a printer, as set by the commands an {@link EscPosWriter} sent.
+ * <p>
+ * Each mode is known or unknown. A mode becomes known when a command sets it, and unknown whenever the writer
+ * cannot tell what the printer did, for example after raw bytes or a macro.
+ */
+final class PrinterState {
+
+    static final int FONT = 0;
+    static final int EMPHASIZE = 1;
+    static final int DOUBLE_STRIKE = 2;
+    static final int UNDERLINE = 3;
+    static final int CHARACTER_SIZE = 4;
+    static final int JUSTIFICATION = 5;
+    static final int LINE_SPACING = 6;
+    static final int RIGHT_SIDE_CHARACTER_SPACING = 7;
+    static final int CHARACTER_SET = 8;
+    static final int CHARACTER_CODE_TABLE = 9;
+    static final int ROTATION = 10;
+    static final int UPSIDE_DOWN = 11;
+    static final int WHITE_BLACK_REVERSE = 12;
+    static final int SMOOTHING = 13;
+    static final int COLOR = 14;
+    static final int LEFT_MARGIN = 15;
+    static final int PRINT_AREA_WIDTH = 16;
+    static final int UNIDIRECTIONAL = 17;
+
+    /**
+     * Line spacing selected by ESC 2, which differs between models.
+     */
+    static final int DEFAULT_LINE_SPACING = -1;
+
+    private static final int MODES = 18;
+    private static final int UNKNOWN = Integer.MIN_VALUE;
+
+    private final int[] modes = new int[MODES];
+    private boolean defining;
+    private long saved;
+
+    PrinterState() {
+        Arrays.fill(modes, UNKNOWN);
+    }
+
+    /**
+     * Records a command that sets a mode.
+     *
+     * @param mode   mode the command sets
+     * @param value  value it sets, in a form where equal values mean the same setting
+     * @param length bytes of the command
+     * @return true if the printer is known to be in that mode already, and the command can be dropped
+     */
+    boolean unchanged(int mode, int value, int length) {
+        if (defining) {
+            // Commands of a macro definition are stored, not executed
+            return false;
+        }
+        if (modes[mode] == value) {
+            saved += length;
+            return true;
+        }
+        modes[mode] = value;
+        return false;
+    }
+
+    /**
+     * Records ESC !, which sets the font, emphasized, character size and underline at once.
+     *
+     * @param n parameter of ESC !
+     * @return true if the command can be dropped
+     */
+    boolean printModeUnchanged(int n) {
+        if (defining) {
+            return false;
+        }
+        int font = n & 1;
+        int emphasize = (n >> 3) & 1;
+        int size = ((n & 32) != 0 ? 16 : 0) | ((n & 16) != 0 ? 1 : 0);
+        // Bit 7 turns underline on in the thickness of ESC -, which stays unknown if it was off
+        int underline = (n & 128) == 0 ? 0 : modes[UNDERLINE] > 0 ? modes[UNDERLINE] : UNKNOWN;
+        if (modes[FONT] == font && modes[EMPHASIZE] == emphasize && modes[CHARACTER_SIZE] == size
+                && underline != UNKNOWN && modes[UNDERLINE] == underline) {
+            saved += 3;
+            return true;
+        }
+        modes[FONT] = font;
+        modes[EMPHASIZE] = emphasize;
+        modes[CHARACTER_SIZE] = size;
+        modes[UNDERLINE] = underline;
+        return false;
+    }
+
+    /**
+     * ESC @ restores the power-on settings. The code table and character set default to memory switch
+     * settings, so they stay unknown.
+     */
+    void initialize() {
+        if (defining) {
+            return;
+        }
+        Arrays.fill(modes, 0);
+        modes[LINE_SPACING] = DEFAULT_LINE_SPACING;
+        modes[CHARACTER_SET] = UNKNOWN;
+        modes[CHARACTER_CODE_TABLE] = UNKNOWN;
+        modes[PRINT_AREA_WIDTH] = UNKNOWN;
+    }
+
+    /**
+     * Standard mode and page mode keep separate line spacing, character spacing and print direction settings.
+     */
+    void modeSwitched() {
+        if (defining) {
+            return;
+        }
+        modes[LINE_SPACING] = UNKNOWN;
+        modes[RIGHT_SIDE_CHARACTER_SPACING] = UNKNOWN;
+        modes[UNIDIRECTIONAL] = UNKNOWN;
+    }
+
+    /**
+     * Forgets every mode, after commands whose effect is unknown.
+     */
+    void forget() {
+        if (defining) {
+            return;
+        }
+        Arrays.fill(modes, UNKNOWN);
+    }
+
+    /**
+     * GS : starts or ends a macro definition.
+     */
+    void macroDefinition() {
+        defining = !defining;
+    }
+
+    /**
+     * GS ^ runs commands the writer cannot see, and aborts a macro definition in progress.
+     */
+    void macroExecuted() {
+        defining = false;
+        forget();
+    }
+
+    long getSaved() {
+        return saved;
+    }
+
+    /**
+     * Normalizes the alternative codes 48-57 of a parameter to 0-9.
+     */
+    static int code(int code) {
+        return code >= 48 && code <= 57 ? code - 48 : code;
+    }
+
+}
@@ -0,0 +1,100 @@
+package com.github.terrytsai.escpos;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Thread factories for printer sessions, such as the writer thread of a {@link PrinterChannel}.
+ * <p>
+ * On Java 21 and later, {@link #virtual(String)} creates virtual threads, so one JVM can run a session for each of
+ * thousands of printers. The library is compiled for Java 8 and reaches the virtual thread API by reflection.
+ * <p>
+ * [Notes]
+ * - The library does not hold a monitor (synchronized) around blocking I/O, a blocked virtual thread releases its carrier thread.
+ * - Native calls still occupy the carrier thread while they block, which includes blocking jSerialComm reads and writes. Prefer {@code StatusMonitor#attach} to a reader thread for serial ports, and a write timeout on the port.
+ */
+public final class PrinterThreads {
+
+    private static final Method OF_VIRTUAL;
+    private static final Method NAME;
+    private static final Method FACTORY;
+
+    static {
+        Method ofVirtual = null;
+        Method name = null;
+        Method factory = null;
+        try {
+            ofVirtual = Thread.class.getMethod("ofVirtual");
+            Class<?> builder = Class.forName("java.lang.Thread$Builder");
+            name = builder.getMethod("name", String.class, long.class);
+            factory = builder.getMethod("factory");
+            // Preview releases throw UnsupportedOperationException unless preview features are enabled
+            ofVirtual.invoke(null);
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            ofVirtual = null;
+        }
+        OF_VIRTUAL = ofVirtual;
+        NAME = name;
+        FACTORY = factory;
+    }
+
+    private PrinterThreads() {
+    }
+
+    /**
+     * Whether the running JVM supports virtual threads.
+     *
+     * @return true on Java 21 and later
+     */
+    public static boolean isVirtualSupported() {
+        return OF_VIRTUAL != null;
+    }
+
+    /**
+     * Daemon platform threads named prefix-0, prefix-1, etc.
+     *
+     * @param prefix thread name prefix
+     * @return {@link ThreadFactory}
+     */
+    public static ThreadFactory platform(String prefix) {
+        AtomicLong count = new AtomicLong();
+        return task -> {
+            Thread thread = new Thread(task, prefix + "-" + count.getAndIncrement());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+
+    /**
+     * Virtual threads named prefix-0, prefix-1, etc.
+     *
+     * @param prefix thread name prefix
+     * @return {@link ThreadFactory}
+     * @throws UnsupportedOperationException if the JVM does not support virtual threads
+     */
+    public static ThreadFactory virtual(String prefix) {
+        if (OF_VIRTUAL == null) {
+            throw new UnsupportedOperationException("Virtual threads require Java 21 or later");
+        }
+        try {
+            return (ThreadFactory) FACTORY.invoke(NAME.invoke(OF_VIRTUAL.invoke(null), prefix + "-", 0L));
+        } catch (IllegalAccessException e) {
+            throw new UnsupportedOperationException(e);
+        } catch (InvocationTargetException e) {
+            throw new UnsupportedOperationException(e.getCause());
+        }
+    }
+
+    /**
+     * Virtual threads when the JVM supports them, daemon platform threads otherwise.
+     *
+     * @param prefix thread name prefix
+     * @return {@link ThreadFactory}
+     */
+    public static ThreadFactory preferVirtual(String prefix) {
+        return isVirtualSupported() ? virtual(prefix) : platform(prefix);
+    }
+
+}
@@ -0,0 +1,170 @@
+package com.github.terrytsai.escpos;
+
+import java.io.ByteArrayOutputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+/**
+ * Precompiled sequence of {@link EscPosWriter} commands with named slots.
+ * <p>
+ * The fixed parts of a receipt are recorded once and compiled into immutable byte segments. Rendering copies
+ * the segments to the target writer and only runs the commands supplied for each slot.
+ * <p>
+ * A fixed segment that recorded {@link EscPosWriter#initialize()} runs the initialize listeners of the target writer
+ * after it is written, so caches bound to the writer forget what ESC @ cleared.
+ *
+ * <pre>{@code
+ * ReceiptTemplate template = ReceiptTemplate.builder()
+ *         .fixed(w -> w.initialize().setJustification(Justification.CENTER).text("ORDER #"))
+ *         .slot("orderNumber")
+ *         .fixed(w -> w.printAndFeedLines(3).cut(CutA.PARTIAL))
+ *         .build();
+ *
+ * template.render(escPos, Collections.singletonMap("orderNumber", w -> w.text("1042")));
+ * }</pre>
+ */
+public final class ReceiptTemplate {
+
+    private final List<Segment> segments;
+
+    private ReceiptTemplate(List<Segment> segments) {
+        this.segments = segments;
+    }
+
+    /**
+     * Creates a builder for recording a template.
+     *
+     * @return {@link Builder}
+     */
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * Writes the template to a writer, running the commands supplied for each slot in place.
+     *
+     * @param writer target writer
+     * @param slots  commands for each slot name
+     * @return the target writer
+     * @throws IllegalArgumentException if a slot has no commands
+     */
+    public EscPosWriter render(EscPosWriter writer, Map<String, ? extends Consumer<? super EscPosWriter>> slots) {
+        for (Segment segment : segments) {
+            if (segment.slot == null) {
+                writer.bytes(segment.bytes);
+                if (segment.encoding != null) {
+                    writer.encoding = segment.encoding;
+                }
+                if (segment.initializes) {
+                    writer.initialized();
+                }
+            } else {
+                Consumer<? super EscPosWriter> commands = slots.get(segment.slot);
+                if (commands == null) {
+                    throw new IllegalArgumentException("No value for slot " + segment.slot);
+                }
+                commands.accept(writer);
+            }
+        }
+        return writer;
+    }
+
+    /**
+     * Slot names in the order they appear in the template.
+     *
+     * @return slot names
+     */
+    public List<String> getSlots() {
+        List<String> names = new ArrayList<>();
+        for (Segment segment : segments) {
+            if (segment.slot != null) {
+                names.add(segment.slot);
+            }
+        }
+        return Collections.unmodifiableList(names);
+    }
+
+    /**
+     * Records the fixed commands and slots of a {@link ReceiptTemplate}.
+     */
+    public static final class Builder {
+
+        private final List<Segment> segments = new ArrayList<>();
+        private final ByteArrayOutputStream recording = new ByteArrayOutputStream();
+        private final EscPosWriter writer = new EscPosWriter(recording, FlushPolicy.BUFFER_FULL);
+        // Whether the recording holds an ESC @ written by initialize()
+        private boolean initializes;
+
+        private Builder() {
+            writer.addInitializeListener(() -> initializes = true);
+        }
+
+        /**
+         * Records fixed commands. Consecutive fixed commands are compiled into a single segment.
+         *
+         * @param commands commands to record
+         * @return {@link Builder}
+         */
+        public Builder fixed(Consumer<? super EscPosWriter> commands) {
+            commands.accept(writer);
+            return this;
+        }
+
+        /**
+         * Adds a named slot that is filled in at render time.
+         *
+         * @param name slot name
+         * @return {@link Builder}
+         */
+        public Builder slot(String name) {
+            if (name == null) {
+                throw new IllegalArgumentException("name must not be null");
+            }
+            compile();
+            segments.add(new Segment(null, null, false, name));
+            return this;
+        }
+
+        /**
+         * Compiles the recorded commands into a template.
+         *
+         * @return {@link ReceiptTemplate}
+         */
+        public ReceiptTemplate build() {
+            compile();
+            return new ReceiptTemplate(Collections.unmodifiableList(new ArrayList<>(segments)));
+        }
+
+        private void compile() {
+            writer.flush();
+            if (recording.size() > 0) {
+                // Slots must encode text with any code table the fixed part selected
+                byte[] encoding = writer.encodingSelected ? writer.encoding : null;
+                segments.add(new Segment(recording.toByteArray(), encoding, initializes, null));
+                recording.reset();
+                initializes = false;
+            }
+        }
+
+    }
+
+    private static final class Segment {
+
+        private final byte[] bytes;
+        private final byte[] encoding;
+        private final boolean initializes;
+        private final String slot;
+
+        private Segment(byte[] bytes, byte[] encoding, boolean initializes, String slot) {
+            this.bytes = bytes;
+            this.encoding = encoding;
+            this.initializes = initializes;
+            this.slot = slot;
+        }
+
+    }
+
+}
@@ -0,0 +1,125 @@
+package com.github.terrytsai.escpos.character;
+
+import com.github.terrytsai.escpos.EscPosWriter;
+import com.github.terrytsai.escpos.enums.Font;
+
+import java.util.Arrays;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Host-side record of the user-defined characters loaded on one printer.
+ * <p>
+ * {@link #select(EscPosWriter, UserCharacterSet)} only downloads glyphs the printer does not already hold, then
+ * selects the user-defined character set. ESC @ clears user-defined characters, so {@link #bind(EscPosWriter)} the
+ * writers to invalidate the record on initialize, and call {@link #invalidate()} when the printer is reset or swapped.
+ * <p>
+ * [Notes]
+ * - Glyphs are recorded per font and height. Selecting a set of another font or height downloads all of its glyphs.
+ * - Glyphs are recorded as loaded once ESC & is written to the writer. If the write throws, they are downloaded again on the next selection.
+ * - The download and the selection are written under one lock, so selections from other threads cannot come between them.
+ * - Call {@link #invalidate()} when a job carrying a download does not complete (fails, is rejected, dropped or cancelled).
+ */
+public final class UserCharacterCache {
+
+    private final byte[][] loaded = new byte[UserCharacterSet.LAST_CODE - UserCharacterSet.FIRST_CODE + 1][];
+    // Not a monitor, the writes under it may block on the OutputStream, see PrinterThreads
+    private final ReentrantLock lock = new ReentrantLock();
+    private Font font;
+    private int y = -1;
+
+    /**
+     * Selects the font of a set, downloads its glyphs that are not loaded yet, then selects the user-defined
+     * character set (ESC %).
+     *
+     * @param writer writer for the printer this cache belongs to
+     * @param set    user-defined characters
+     * @return {@link EscPosWriter}
+     */
+    public EscPosWriter select(EscPosWriter writer, UserCharacterSet set) {
+        lock.lock();
+        try {
+            if (font != set.getFont() || y != set.getY()) {
+                Arrays.fill(loaded, null);
+                font = set.getFont();
+                y = set.getY();
+            }
+            boolean[] codes = new boolean[loaded.length];
+            boolean define = false;
+            for (int i = 0; i < loaded.length; i++) {
+                byte[] glyph = set.glyph(i);
+                if (glyph != null && !Arrays.equals(glyph, loaded[i])) {
+                    // Unknown until ESC & is written, a partly written one may have replaced the glyph
+                    codes[i] = true;
+                    loaded[i] = null;
+                    define = true;
+                }
+            }
+
+            if (define) {
+                // Some models cannot define characters while the user-defined set is selected
+                writer.setUserDefinedCharacters(false);
+                set.define(writer, codes);
+                for (int i = 0; i < loaded.length; i++) {
+                    if (codes[i]) {
+                        loaded[i] = set.glyph(i);
+                    }
+                }
+            } else {
+                // The glyphs print only in the font they were defined for
+                writer.setFont(font);
+            }
+            return writer.setUserDefinedCharacters(true);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Whether every glyph of a set is loaded on the printer.
+     *
+     * @param set user-defined characters
+     * @return true if selecting the set sends no glyph data
+     */
+    public boolean isLoaded(UserCharacterSet set) {
+        lock.lock();
+        try {
+            if (font != set.getFont() || y != set.getY()) {
+                return false;
+            }
+            for (int i = 0; i < loaded.length; i++) {
+                byte[] glyph = set.glyph(i);
+                if (glyph != null && !Arrays.equals(glyph, loaded[i])) {
+                    return false;
+                }
+            }
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Forgets every loaded glyph, so each is downloaded again on its next selection.
+     */
+    public void invalidate() {
+        lock.lock();
+        try {
+            Arrays.fill(loaded, null);
+            font = null;
+            y = -1;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Invalidates this cache whenever the writer initializes the printer.
+     *
+     * @param writer writer for the printer this cache belongs to
+     * @return the writer
+     */
+    public EscPosWriter bind(EscPosWriter writer) {
+        return writer.addInitializeListener(this::invalidate);
+    }
+
+}
@@ -0,0 +1,45 @@
+package com.github.terrytsai.escpos.character;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Keeps one {@link UserCharacterCache} per printer, keyed by an application-defined printer id
+ * such as a port descriptor or host name.
+ */
+public final class UserCharacterRegistry {
+
+    private final ConcurrentMap<String, UserCharacterCache> caches = new ConcurrentHashMap<>();
+
+    /**
+     * Cache for a printer, created on first use.
+     *
+     * @param printerId printer id
+     * @return {@link UserCharacterCache}
+     */
+    public UserCharacterCache forPrinter(String printerId) {
+        return caches.computeIfAbsent(printerId, id -> new UserCharacterCache());
+    }
+
+    /**
+     * Forgets the glyphs recorded for a printer, for example after it was reset or swapped.
+     *
+     * @param printerId printer id
+     */
+    public void invalidate(String printerId) {
+        UserCharacterCache cache = caches.get(printerId);
+        if (cache != null) {
+            cache.invalidate();
+        }
+    }
+
+    /**
+     * Forgets the glyphs recorded for every printer.
+     */
+    public void invalidateAll() {
+        for (UserCharacterCache cache : caches.values()) {
+            cache.invalidate();
+        }
+    }
+
+}
@@ -0,0 +1,212 @@
+package com.github.terrytsai.escpos.character;
+
+import com.github.terrytsai.escpos.EscPosWriter;
+import com.github.terrytsai.escpos.enums.Font;
+import com.github.terrytsai.escpos.image.RasterImage;
+
+import java.util.Arrays;
+
+/**
+ * Immutable set of user-defined character glyphs for the character codes 32-126, encoded for ESC &amp;.
+ * <p>
+ * Once defined and selected on the printer, each glyph prints as a single character code,
+ * for example custom currency symbols, box-drawing characters or small icons.
+ * <p>
+ * [Notes]
+ * - Glyphs are defined for one font and print only while that font is selected. Font A is taken as 12 × 24 dots and Font B as 9 × 17 dots, use {@link #builder(Font, int, int)} for other character cells.
+ * - ESC &amp; limits the glyph width to the character width of the font, wider glyphs are rejected by {@link Builder#put(int, RasterImage)}.
+ */
+public final class UserCharacterSet {
+
+    public static final int FIRST_CODE = 32;
+    public static final int LAST_CODE = 126;
+
+    // 24 dot Font A and 17 dot Font B both take 3 bytes in the vertical direction
+    private static final int DEFAULT_Y = 3;
+    private static final int FONT_A_WIDTH = 12;
+    private static final int FONT_B_WIDTH = 9;
+
+    private final Font font;
+    private final int y;
+    private final byte[][] glyphs;
+
+    private UserCharacterSet(Font font, int y, byte[][] glyphs) {
+        this.font = font;
+        this.y = y;
+        this.glyphs = glyphs;
+    }
+
+    /**
+     * Creates a builder for glyphs of Font A (12 × 24 dots) or Font B (9 × 17 dots).
+     *
+     * @param font {@link Font#A} or {@link Font#B}
+     * @return {@link Builder}
+     * @throws IllegalArgumentException for other fonts, use {@link #builder(Font, int, int)}
+     */
+    public static Builder builder(Font font) {
+        if (font == Font.A || font == Font.A_ALT) {
+            return builder(font, DEFAULT_Y, FONT_A_WIDTH);
+        }
+        if (font == Font.B || font == Font.B_ALT) {
+            return builder(font, DEFAULT_Y, FONT_B_WIDTH);
+        }
+        throw new IllegalArgumentException("No default character cell for font " + font
+                + ", use builder(Font, int, int)");
+    }
+
+    /**
+     * Creates a builder for glyphs of a font with the character cell of the target printer.
+     *
+     * @param font  font the glyphs are defined for
+     * @param y     bytes in the vertical direction, the character height in dots divided by 8 and rounded up
+     * @param width character width of the font in dots (1-255)
+     * @return {@link Builder}
+     */
+    public static Builder builder(Font font, int y, int width) {
+        if (font == null) {
+            throw new IllegalArgumentException("font must not be null");
+        }
+        if (y < 1 || width < 1 || width > 255) {
+            throw new IllegalArgumentException("y must be positive and width must be 1-255");
+        }
+        return new Builder(font, y, width);
+    }
+
+    /**
+     * Font the glyphs are defined for.
+     *
+     * @return {@link Font}
+     */
+    public Font getFont() {
+        return font;
+    }
+
+    /**
+     * Bytes in the vertical direction.
+     *
+     * @return y
+     */
+    public int getY() {
+        return y;
+    }
+
+    /**
+     * Whether a glyph is defined for a character code.
+     *
+     * @param code character code
+     * @return true if defined
+     */
+    public boolean isDefined(int code) {
+        return code >= FIRST_CODE && code <= LAST_CODE && glyphs[code - FIRST_CODE] != null;
+    }
+
+    /**
+     * Selects the font of the set, then defines every glyph with ESC &amp;, one command per run of consecutive
+     * character codes.
+     *
+     * @param writer writer
+     * @return {@link EscPosWriter}
+     */
+    public EscPosWriter define(EscPosWriter writer) {
+        boolean[] codes = new boolean[LAST_CODE - FIRST_CODE + 1];
+        for (int i = 0; i < codes.length; i++) {
+            codes[i] = glyphs[i] != null;
+        }
+        return define(writer, codes);
+    }
+
+    /**
+     * Selects the font of the set, then defines the selected glyphs with ESC &amp;, one command per run of
+     * consecutive character codes.
+     */
+    EscPosWriter define(EscPosWriter writer, boolean[] codes) {
+        // ESC & defines the characters of the selected font
+        writer.setFont(font);
+        int i = 0;
+        while (i < codes.length) {
+            if (!codes[i]) {
+                i++;
+                continue;
+            }
+            int end = i;
+            int length = 0;
+            while (end < codes.length && codes[end]) {
+                length += glyphs[end].length;
+                end++;
+            }
+            byte[] data = new byte[length];
+            for (int c = i, offset = 0; c < end; offset += glyphs[c].length, c++) {
+                System.arraycopy(glyphs[c], 0, data, offset, glyphs[c].length);
+            }
+            writer.defineUserCharacters(y, FIRST_CODE + i, FIRST_CODE + end - 1, data);
+            i = end;
+        }
+        return writer;
+    }
+
+    /**
+     * Encoded glyph, the width x followed by y × x bytes of dot data, or null.
+     */
+    byte[] glyph(int index) {
+        return glyphs[index];
+    }
+
+    /**
+     * Collects the glyphs of a {@link UserCharacterSet}.
+     */
+    public static final class Builder {
+
+        private final Font font;
+        private final int y;
+        private final int width;
+        private final byte[][] glyphs = new byte[LAST_CODE - FIRST_CODE + 1][];
+
+        private Builder(Font font, int y, int width) {
+            this.font = font;
+            this.y = y;
+            this.width = width;
+        }
+
+        /**
+         * Sets the glyph for a character code. Rows below the image are blank.
+         *
+         * @param code  character code (32-126)
+         * @param glyph glyph image, at most the character width of the font and y × 8 dots high
+         * @return {@link Builder}
+         */
+        public Builder put(int code, RasterImage glyph) {
+            if (code < FIRST_CODE || code > LAST_CODE) {
+                throw new IllegalArgumentException("code must be " + FIRST_CODE + "-" + LAST_CODE);
+            }
+            if (glyph.getWidth() > width || glyph.getHeight() > y * 8) {
+                throw new IllegalArgumentException("glyph must be at most " + width + " x " + (y * 8)
+                        + " dots for font " + font);
+            }
+            glyphs[code - FIRST_CODE] = encode(glyph, y);
+            return this;
+        }
+
+        public UserCharacterSet build() {
+            return new UserCharacterSet(font, y, Arrays.copyOf(glyphs, glyphs.length));
+        }
+
+    }
+
+    private static byte[] encode(RasterImage glyph, int y) {
+        int width = glyph.getWidth();
+        int bytesPerRow = glyph.getBytesPerRow();
+        byte[] raster = glyph.getData();
+        byte[] encoded = new byte[1 + width * y];
+        encoded[0] = (byte) width;
+        for (int x = 0; x < width; x++) {
+            int mask = 0x80 >>> (x & 7);
+            for (int row = 0; row < glyph.getHeight(); row++) {
+                if ((raster[row * bytesPerRow + (x >> 3)] & mask) != 0) {
+                    encoded[1 + x * y + (row >> 3)] |= (byte) (0x80 >>> (row & 7));
+                }
+            }
+        }
+        return encoded;
+    }
+
+}
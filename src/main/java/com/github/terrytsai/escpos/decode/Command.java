@@ -0,0 +1,120 @@
+package com.github.terrytsai.escpos.decode;
+
+/**
+ * A decoded command, passed to a {@link CommandListener}.
+ * <p>
+ * [Notes]
+ * - The decoder reuses one instance for every command. Read what is needed during the callback and do not keep the instance.
+ * - The fixed part is the command code and its parameters. Data such as raster image rows is passed separately to {@link CommandListener#dataReceived}.
+ */
+public final class Command {
+
+    static final int MAX_LENGTH = 16;
+
+    final byte[] bytes = new byte[MAX_LENGTH];
+    CommandType type;
+    int length;
+    long dataLength;
+    long position;
+
+    Command() {
+    }
+
+    public CommandType getType() {
+        return type;
+    }
+
+    /**
+     * Bytes of the fixed part.
+     *
+     * @return length
+     */
+    public int getLength() {
+        return length;
+    }
+
+    /**
+     * Byte of the fixed part.
+     *
+     * @param index index, 0 for the first byte of the command code
+     * @return unsigned byte
+     */
+    public int getByte(int index) {
+        if (index < 0 || index >= length) {
+            throw new IndexOutOfBoundsException("index " + index + ", length " + length);
+        }
+        return bytes[index] & 0xFF;
+    }
+
+    /**
+     * Number of parameters, the bytes of the fixed part after the control code and function byte.
+     * For example 1 for ESC d n and 6 for GS v 0 m xL xH yL yH, whose parameters start with '0'.
+     *
+     * @return parameters
+     */
+    public int getParameterCount() {
+        return length - nameLength();
+    }
+
+    /**
+     * Parameter of the fixed part.
+     *
+     * @param index index, 0 for the first byte after the control code and function byte
+     * @return unsigned byte
+     */
+    public int getParameter(int index) {
+        return getByte(nameLength() + index);
+    }
+
+    /**
+     * Bytes of data that follow the fixed part.
+     *
+     * @return bytes, 0 for a command without data, -1 for ESC &amp; whose length is only known as its data is decoded
+     */
+    public long getDataLength() {
+        return dataLength;
+    }
+
+    /**
+     * Offset of the first byte of the command in the decoded stream.
+     *
+     * @return offset
+     */
+    public long getPosition() {
+        return position;
+    }
+
+    /**
+     * Copies the fixed part, for example to write the command elsewhere.
+     *
+     * @param dst    destination
+     * @param offset offset in the destination
+     * @return bytes copied
+     */
+    public int copyTo(byte[] dst, int offset) {
+        System.arraycopy(bytes, 0, dst, offset, length);
+        return length;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder(type == null ? "UNKNOWN" : type.name());
+        for (int i = 0; i < length; i++) {
+            sb.append(i == 0 ? " [" : " ").append(String.format("%02X", bytes[i] & 0xFF));
+        }
+        if (length > 0) {
+            sb.append(']');
+        }
+        if (dataLength != 0) {
+            sb.append(" + ").append(dataLength < 0 ? "?" : String.valueOf(dataLength)).append(" bytes");
+        }
+        return sb.toString();
+    }
+
+    private int nameLength() {
+        int first = bytes[0];
+        return first == CommandType.Code.ESC || first == CommandType.Code.GS || first == CommandType.Code.FS
+                || first == CommandType.Code.DLE ? Math.min(2, length) : Math.min(1, length);
+    }
+
+}
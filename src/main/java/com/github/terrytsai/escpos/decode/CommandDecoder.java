@@ -0,0 +1,336 @@
+package com.github.terrytsai.escpos.decode;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+
+/**
+ * Incremental decoder that turns an ESC/POS byte stream back into text and typed commands.
+ * <p>
+ * The command codes of {@link CommandType} are compiled into a lookup table once. The decoder walks the table
+ * one byte at a time and keeps only the fixed part of the current command, so input may arrive in chunks of any
+ * size and jobs are never buffered whole. Text and command data are passed to the {@link CommandListener} as
+ * ranges of the input array, without copying.
+ * <p>
+ * [Notes]
+ * - Bytes from 20h up are text. Control codes that start no known command are reported as unknown.
+ * - An unknown sequence after ESC, GS, FS or DLE is reported up to the byte that matched no command, since the length of its parameters is unknown. The following bytes may then decode as text.
+ * - Decoding allocates nothing per command. {@link #decode(ByteBuffer)} with a direct buffer and {@link #decode(InputStream)} copy through one reused array.
+ * - A decoder is meant for one stream and one thread.
+ *
+ * <pre>{@code
+ * CommandDecoder decoder = new CommandDecoder(new CommandListener() {
+ *     @Override
+ *     public void commandReceived(Command command) {
+ *         System.out.println(command.getPosition() + ": " + command);
+ *     }
+ * });
+ * decoder.decode(new ByteArrayInputStream(job.toByteArray()));
+ * }</pre>
+ */
+public final class CommandDecoder {
+
+    private static final int COPY_BUFFER_SIZE = 8192;
+
+    private static final int IDLE = 0;
+    private static final int CODE = 1;
+    private static final int FIXED = 2;
+    private static final int DATA = 3;
+    private static final int CHARACTER_WIDTH = 4;
+    private static final int CHARACTER_DOTS = 5;
+
+    private static final Node ROOT = compile();
+
+    private final CommandListener listener;
+    private final Command command = new Command();
+    private byte[] copyBuffer;
+    private int state = IDLE;
+    private Node node;
+    private long remaining;
+    private int characters;
+    private int characterHeight;
+    private long position;
+
+    /**
+     * Constructor
+     *
+     * @param listener receives the decoded events
+     */
+    public CommandDecoder(CommandListener listener) {
+        if (listener == null) {
+            throw new IllegalArgumentException("listener must not be null");
+        }
+        this.listener = listener;
+    }
+
+    /**
+     * Decodes bytes.
+     *
+     * @param data bytes
+     * @param off  start offset
+     * @param len  number of bytes
+     */
+    public void decode(byte[] data, int off, int len) {
+        if ((off | len | (off + len) | (data.length - (off + len))) < 0) {
+            throw new IndexOutOfBoundsException("off " + off + ", len " + len + ", length " + data.length);
+        }
+        int i = off;
+        int end = off + len;
+        while (i < end) {
+            switch (state) {
+                case IDLE: {
+                    int start = i;
+                    while (i < end && (data[i] & 0xFF) >= 0x20) {
+                        i++;
+                    }
+                    if (i > start) {
+                        position += i - start;
+                        listener.textReceived(data, start, i - start);
+                        if (i == end) {
+                            break;
+                        }
+                    }
+                    Node next = ROOT.next[data[i] & 0xFF];
+                    if (next == null) {
+                        position++;
+                        listener.unknownReceived(data, i++, 1);
+                        break;
+                    }
+                    command.type = null;
+                    command.length = 0;
+                    command.dataLength = 0;
+                    command.position = position;
+                    append(data[i++]);
+                    advance(next);
+                    break;
+                }
+                case CODE: {
+                    Node next = node.next == null ? null : node.next[data[i] & 0xFF];
+                    append(data[i++]);
+                    if (next == null) {
+                        state = IDLE;
+                        listener.unknownReceived(command.bytes, 0, command.length);
+                    } else {
+                        advance(next);
+                    }
+                    break;
+                }
+                case FIXED: {
+                    int n = Math.min(end - i, command.type.length - command.length);
+                    System.arraycopy(data, i, command.bytes, command.length, n);
+                    command.length += n;
+                    position += n;
+                    i += n;
+                    if (command.length == command.type.length) {
+                        fixedDecoded();
+                    }
+                    break;
+                }
+                case CHARACTER_WIDTH: {
+                    remaining = (long) characterHeight * (data[i] & 0xFF);
+                    position++;
+                    listener.dataReceived(command, data, i++, 1);
+                    if (remaining == 0) {
+                        characterDecoded();
+                    } else {
+                        state = CHARACTER_DOTS;
+                    }
+                    break;
+                }
+                default: {
+                    int n = (int) Math.min(end - i, remaining);
+                    remaining -= n;
+                    position += n;
+                    listener.dataReceived(command, data, i, n);
+                    i += n;
+                    if (remaining == 0) {
+                        if (state == CHARACTER_DOTS) {
+                            characterDecoded();
+                        } else {
+                            completed();
+                        }
+                    }
+                    break;
+                }
+            }
+        }
+    }
+
+    /**
+     * Decodes the remaining bytes of a buffer, moving its position to its limit.
+     *
+     * @param buffer bytes
+     */
+    public void decode(ByteBuffer buffer) {
+        if (buffer.hasArray()) {
+            decode(buffer.array(), buffer.arrayOffset() + buffer.position(), buffer.remaining());
+            ((Buffer) buffer).position(buffer.limit());
+            return;
+        }
+        byte[] copy = copyBuffer();
+        while (buffer.hasRemaining()) {
+            int n = Math.min(copy.length, buffer.remaining());
+            buffer.get(copy, 0, n);
+            decode(copy, 0, n);
+        }
+    }
+
+    /**
+     * Decodes a stream until its end. The stream is not closed.
+     *
+     * @param in InputStream
+     * @return bytes decoded
+     * @throws IOException if reading fails
+     */
+    public long decode(InputStream in) throws IOException {
+        byte[] copy = copyBuffer();
+        long total = 0;
+        int n;
+        while ((n = in.read(copy)) != -1) {
+            decode(copy, 0, n);
+            total += n;
+        }
+        return total;
+    }
+
+    /**
+     * Whether the bytes decoded so far end between commands.
+     *
+     * @return true if no command is partially decoded
+     */
+    public boolean isIdle() {
+        return state == IDLE;
+    }
+
+    /**
+     * Bytes decoded since the decoder was created.
+     *
+     * @return position in the stream
+     */
+    public long getPosition() {
+        return position;
+    }
+
+    /**
+     * Drops a partially decoded command, for example when the stream is restarted.
+     */
+    public void reset() {
+        state = IDLE;
+        node = null;
+    }
+
+    private void append(byte b) {
+        command.bytes[command.length++] = b;
+        position++;
+    }
+
+    private void advance(Node next) {
+        if (next.type == null) {
+            node = next;
+            state = CODE;
+            return;
+        }
+        node = null;
+        command.type = next.type;
+        if (command.length == next.type.length) {
+            fixedDecoded();
+        } else {
+            state = FIXED;
+        }
+    }
+
+    private void fixedDecoded() {
+        byte[] b = command.bytes;
+        switch (command.type.data) {
+            case BIT_IMAGE:
+                remaining = (long) ((b[3] & 0xFF) | (b[4] & 0xFF) << 8) * ((b[2] & 0xFF) >= 32 ? 3 : 1);
+                break;
+            case RASTER:
+                remaining = (long) ((b[4] & 0xFF) | (b[5] & 0xFF) << 8) * ((b[6] & 0xFF) | (b[7] & 0xFF) << 8);
+                break;
+            case BLOCK:
+                remaining = Math.max(0, ((b[3] & 0xFF) | (b[4] & 0xFF) << 8) - 2);
+                break;
+            case LONG_BLOCK:
+                remaining = Math.max(0, ((b[3] & 0xFF) | (b[4] & 0xFF) << 8 | (b[5] & 0xFF) << 16
+                        | (long) (b[6] & 0xFF) << 24) - 2);
+                break;
+            case USER_CHARACTERS:
+                characterHeight = b[2] & 0xFF;
+                characters = (b[4] & 0xFF) - (b[3] & 0xFF) + 1;
+                remaining = characters > 0 ? -1 : 0;
+                break;
+            default:
+                remaining = 0;
+                break;
+        }
+        command.dataLength = remaining;
+        listener.commandReceived(command);
+        if (remaining == 0) {
+            completed();
+        } else {
+            state = remaining < 0 ? CHARACTER_WIDTH : DATA;
+        }
+    }
+
+    private void characterDecoded() {
+        if (--characters == 0) {
+            completed();
+        } else {
+            state = CHARACTER_WIDTH;
+        }
+    }
+
+    private void completed() {
+        state = IDLE;
+        listener.commandCompleted(command);
+    }
+
+    private byte[] copyBuffer() {
+        if (copyBuffer == null) {
+            copyBuffer = new byte[COPY_BUFFER_SIZE];
+        }
+        return copyBuffer;
+    }
+
+    private static Node compile() {
+        Node root = new Node();
+        for (CommandType type : CommandType.values()) {
+            if (type.length > Command.MAX_LENGTH) {
+                throw new IllegalStateException(type + " is longer than " + Command.MAX_LENGTH + " bytes");
+            }
+            for (int[] code : type.codes) {
+                Node node = root;
+                for (int b : code) {
+                    if (node.type != null) {
+                        throw new IllegalStateException(type + " conflicts with " + node.type);
+                    }
+                    if (node.next == null) {
+                        node.next = new Node[256];
+                    }
+                    if (node.next[b] == null) {
+                        node.next[b] = new Node();
+                    }
+                    node = node.next[b];
+                }
+                if (node.type != null || node.next != null) {
+                    throw new IllegalStateException(type + " conflicts with another command");
+                }
+                node.type = type;
+            }
+        }
+        return root;
+    }
+
+    /**
+     * Entry of the lookup table: the command a code ends in, or the entries for the next byte.
+     */
+    private static final class Node {
+
+        private CommandType type;
+        private Node[] next;
+
+    }
+
+}
@@ -0,0 +1,60 @@
+package com.github.terrytsai.escpos.decode;
+
+/**
+ * Receives the events of a {@link CommandDecoder}, in stream order. Callbacks run on the decoding thread.
+ * <p>
+ * [Notes]
+ * - Arrays passed to the callbacks belong to the caller or the decoder and are only valid during the callback.
+ * - Runs of text and of data may be split over several calls, where the input was split.
+ */
+public interface CommandListener {
+
+    /**
+     * Called for printable bytes, encoded in the selected code table.
+     *
+     * @param data bytes
+     * @param off  start offset
+     * @param len  number of bytes
+     */
+    default void textReceived(byte[] data, int off, int len) {
+    }
+
+    /**
+     * Called when the fixed part of a command is decoded.
+     *
+     * @param command command, reused for the next command
+     */
+    default void commandReceived(Command command) {
+    }
+
+    /**
+     * Called for the data of a command, such as raster image rows or symbol data.
+     *
+     * @param command command the data belongs to
+     * @param data    bytes
+     * @param off     start offset
+     * @param len     number of bytes
+     */
+    default void dataReceived(Command command, byte[] data, int off, int len) {
+    }
+
+    /**
+     * Called when a command ends, right after {@link #commandReceived} for a command without data.
+     *
+     * @param command command
+     */
+    default void commandCompleted(Command command) {
+    }
+
+    /**
+     * Called for bytes that are not part of a known command, such as an unknown ESC sequence. Decoding resumes
+     * with the next byte.
+     *
+     * @param data bytes
+     * @param off  start offset
+     * @param len  number of bytes
+     */
+    default void unknownReceived(byte[] data, int off, int len) {
+    }
+
+}
@@ -0,0 +1,182 @@
+package com.github.terrytsai.escpos.decode;
+
+/**
+ * Commands recognized by {@link CommandDecoder}, named after the {@link com.github.terrytsai.escpos.EscPosWriter}
+ * method that emits them.
+ * <p>
+ * Each type lists the byte sequences that identify it and the length of its fixed part. This table drives the
+ * decoder, a command is added by adding a constant.
+ */
+public enum CommandType {
+
+    HORIZONTAL_TAB(1, Data.NONE, code(Code.HT)),
+    PRINT_AND_FEED_LINE(1, Data.NONE, code(Code.LF)),
+    PRINT_AND_RETURN_TO_STANDARD_MODE(1, Data.NONE, code(Code.FF)),
+    PRINT_AND_CARRIAGE_RETURN(1, Data.NONE, code(Code.CR)),
+    CANCEL_PRINT_IN_PAGE_MODE(1, Data.NONE, code(Code.CAN)),
+
+    PRINT_IN_PAGE_MODE(2, Data.NONE, code(Code.ESC, Code.FF)),
+    PRINT_AND_FEED_PAPER(3, Data.NONE, code(Code.ESC, 'J')),
+    PRINT_AND_REVERSE_FEED(3, Data.NONE, code(Code.ESC, 'K')),
+    PRINT_AND_FEED_LINES(3, Data.NONE, code(Code.ESC, 'd')),
+    PRINT_AND_REVERSE_FEED_LINES(3, Data.NONE, code(Code.ESC, 'e')),
+    SET_DEFAULT_LINE_SPACING(2, Data.NONE, code(Code.ESC, '2')),
+    SET_LINE_SPACING(3, Data.NONE, code(Code.ESC, '3')),
+    SET_PRINT_MODE(3, Data.NONE, code(Code.ESC, '!')),
+    SET_CHARACTER_SIZE(3, Data.NONE, code(Code.GS, '!')),
+    SET_RIGHT_SIDE_CHARACTER_SPACING(3, Data.NONE, code(Code.ESC, Code.SP)),
+    SET_UNDERLINE(3, Data.NONE, code(Code.ESC, '-')),
+    SET_EMPHASIZE(3, Data.NONE, code(Code.ESC, 'E')),
+    SET_DOUBLE_STRIKE(3, Data.NONE, code(Code.ESC, 'G')),
+    SET_FONT(3, Data.NONE, code(Code.ESC, 'M')),
+    SET_CHARACTER_SET(3, Data.NONE, code(Code.ESC, 'R')),
+    SET_ROTATION(3, Data.NONE, code(Code.ESC, 'V')),
+    SET_COLOR(3, Data.NONE, code(Code.ESC, 'r')),
+    SET_CHARACTER_CODE_TABLE(3, Data.NONE, code(Code.ESC, 't')),
+    SET_UPSIDE_DOWN_PRINT(3, Data.NONE, code(Code.ESC, '{')),
+    SET_WHITE_BLACK_REVERSE(3, Data.NONE, code(Code.GS, 'B')),
+    SET_SMOOTHING(3, Data.NONE, code(Code.GS, 'b')),
+
+    SET_ABSOLUTE_POSITION(4, Data.NONE, code(Code.ESC, '$')),
+    SET_RELATIVE_POSITION(4, Data.NONE, code(Code.ESC, '\\')),
+    SET_PRINT_DIRECTION(3, Data.NONE, code(Code.ESC, 'T')),
+    SET_PRINT_AREA(10, Data.NONE, code(Code.ESC, 'W')),
+    SET_JUSTIFICATION(3, Data.NONE, code(Code.ESC, 'a')),
+    SET_ABSOLUTE_VERTICAL_POSITION(4, Data.NONE, code(Code.GS, '$')),
+    SET_RELATIVE_VERTICAL_POSITION(4, Data.NONE, code(Code.GS, '\\')),
+    SET_LEFT_MARGIN(4, Data.NONE, code(Code.GS, 'L')),
+    SET_PRINT_POSITION_TO_START(3, Data.NONE, code(Code.GS, 'T')),
+    SET_PRINT_AREA_WIDTH(4, Data.NONE, code(Code.GS, 'W')),
+    RETURN_HOME(2, Data.NONE, code(Code.ESC, '<')),
+    SET_UNIDIRECTIONAL_PRINT(3, Data.NONE, code(Code.ESC, 'U')),
+
+    CUT(3, Data.NONE, code(Code.GS, 'V', 0), code(Code.GS, 'V', 1), code(Code.GS, 'V', 48), code(Code.GS, 'V', 49)),
+    CUT_WITH_FEED(4, Data.NONE, code(Code.GS, 'V', 65), code(Code.GS, 'V', 66)),
+    CUT_POSITION(4, Data.NONE, code(Code.GS, 'V', 97), code(Code.GS, 'V', 98)),
+    CUT_WITH_FEED_AND_RETURN_START(4, Data.NONE, code(Code.GS, 'V', 103), code(Code.GS, 'V', 104)),
+    SET_PANEL_BUTTONS(4, Data.NONE, code(Code.ESC, 'c', '5')),
+
+    SET_KANJI_PRINT_MODE(3, Data.NONE, code(Code.FS, '!')),
+    SET_KANJI_CHARACTER_MODE(2, Data.NONE, code(Code.FS, '&')),
+    SET_KANJI_UNDERLINE(3, Data.NONE, code(Code.FS, '-')),
+    CANCEL_KANJI_CHARACTER_MODE(2, Data.NONE, code(Code.FS, '.')),
+    SET_KANJI_CODE_SYSTEM(3, Data.NONE, code(Code.FS, 'C')),
+    SET_KANJI_CHARACTER_SPACING(4, Data.NONE, code(Code.FS, 'S')),
+    SET_KANJI_QUADRUPLE_SIZE(3, Data.NONE, code(Code.FS, 'W')),
+
+    TRANSMIT_REAL_TIME_STATUS(3, Data.NONE, code(Code.DLE, Code.EOT)),
+    SEND_REAL_TIME_REQUEST(3, Data.NONE, code(Code.DLE, Code.ENQ)),
+    SEND_REAL_TIME_REQUEST_PULSE(5, Data.NONE, code(Code.DLE, Code.DC4, 1)),
+    SEND_REAL_TIME_REQUEST_POWER_OFF(5, Data.NONE, code(Code.DLE, Code.DC4, 2)),
+    SEND_REAL_TIME_REQUEST_BUZZER(8, Data.NONE, code(Code.DLE, Code.DC4, 3)),
+    SEND_REAL_TIME_REQUEST_STATUS(4, Data.NONE, code(Code.DLE, Code.DC4, 7)),
+    SEND_REAL_TIME_REQUEST_CLEAR_BUFFERS(10, Data.NONE, code(Code.DLE, Code.DC4, 8)),
+    SET_AUTOMATIC_STATUS_BACK(3, Data.NONE, code(Code.GS, 'a')),
+
+    SET_PERIPHERAL_DEVICE(3, Data.NONE, code(Code.ESC, '=')),
+    INITIALIZE(2, Data.NONE, code(Code.ESC, '@')),
+    SET_PAGE_MODE(2, Data.NONE, code(Code.ESC, 'L')),
+    SET_STANDARD_MODE(2, Data.NONE, code(Code.ESC, 'S')),
+    GENERATE_PULSE(5, Data.NONE, code(Code.ESC, 'p')),
+    SET_MOTION_UNITS(4, Data.NONE, code(Code.GS, 'P')),
+
+    /**
+     * ESC *, the data is nL + nH × 256 columns of 1 byte for 8-dot modes (m = 0, 1) and 3 bytes for 24-dot modes.
+     */
+    BIT_IMAGE(5, Data.BIT_IMAGE, code(Code.ESC, '*')),
+    /**
+     * GS v 0, the data is xL + xH × 256 bytes per row times yL + yH × 256 rows.
+     */
+    PRINT_RASTER_IMAGE(8, Data.RASTER, code(Code.GS, 'v', '0')),
+    /**
+     * GS ( L, every function. The fixed part ends with m and fn, the data is the rest of the p bytes.
+     */
+    GRAPHICS(7, Data.BLOCK, code(Code.GS, '(', 'L')),
+    /**
+     * GS 8 L, every function. The fixed part ends with m and fn, the data is the rest of the p bytes.
+     */
+    GRAPHICS_LARGE(9, Data.LONG_BLOCK, code(Code.GS, '8', 'L')),
+    /**
+     * GS ( k, every function. The fixed part ends with cn and fn, the data is the rest of the p bytes.
+     */
+    SYMBOL(7, Data.BLOCK, code(Code.GS, '(', 'k')),
+
+    /**
+     * ESC &amp;, the data is the width and dot data of each character from c1 to c2.
+     */
+    DEFINE_USER_CHARACTERS(5, Data.USER_CHARACTERS, code(Code.ESC, '&')),
+    SET_USER_DEFINED_CHARACTERS(3, Data.NONE, code(Code.ESC, '%')),
+    CANCEL_USER_CHARACTER(3, Data.NONE, code(Code.ESC, '?')),
+    /**
+     * GS :, starts or ends a macro definition.
+     */
+    MACRO_DEFINITION(2, Data.NONE, code(Code.GS, ':')),
+    EXECUTE_MACRO(5, Data.NONE, code(Code.GS, '^'));
+
+    /**
+     * Bytes in the fixed part, including the command code.
+     */
+    final int length;
+    final Data data;
+    final int[][] codes;
+
+    CommandType(int length, Data data, int[]... codes) {
+        this.length = length;
+        this.data = data;
+        this.codes = codes;
+    }
+
+    /**
+     * Bytes of the fixed part, from the first byte of the command up to any data.
+     *
+     * @return length
+     */
+    public int getLength() {
+        return length;
+    }
+
+    public boolean hasData() {
+        return data != Data.NONE;
+    }
+
+    private static int[] code(int... code) {
+        return code;
+    }
+
+    /**
+     * How the length of the data that follows the fixed part is found.
+     */
+    enum Data {
+        NONE,
+        BIT_IMAGE,
+        RASTER,
+        BLOCK,
+        LONG_BLOCK,
+        USER_CHARACTERS
+    }
+
+    /**
+     * Control codes. Constants of the enum cannot refer to its own static fields.
+     */
+    static final class Code {
+
+        static final int EOT = 4;
+        static final int ENQ = 5;
+        static final int HT = 9;
+        static final int LF = 10;
+        static final int FF = 12;
+        static final int CR = 13;
+        static final int DLE = 16;
+        static final int DC4 = 20;
+        static final int CAN = 24;
+        static final int ESC = 27;
+        static final int FS = 28;
+        static final int GS = 29;
+        static final int SP = 32;
+
+        private Code() {
+        }
+
+    }
+
+}
@@ -0,0 +1,126 @@
+package com.github.terrytsai.escpos.emulator;
+
+import com.github.terrytsai.escpos.image.RasterImage;
+
+import java.util.Arrays;
+
+/**
+ * Growable monochrome bitmap in the layout of {@link RasterImage}, 1 for a printed dot.
+ * Dots outside the width or the height limit are clipped.
+ */
+final class Canvas {
+
+    private final int width;
+    private final int maxHeight;
+    private final int bytesPerRow;
+    private byte[] data;
+    private int used;
+
+    Canvas(int width, int maxHeight) {
+        this.width = width;
+        this.maxHeight = maxHeight;
+        this.bytesPerRow = (width + 7) >> 3;
+        this.data = new byte[bytesPerRow * 256];
+    }
+
+    int getWidth() {
+        return width;
+    }
+
+    int getMaxHeight() {
+        return maxHeight;
+    }
+
+    /**
+     * Rows up to the last row drawn on.
+     */
+    int getUsed() {
+        return used;
+    }
+
+    boolean get(int x, int y) {
+        return x >= 0 && x < width && y >= 0 && y < used
+                && (data[y * bytesPerRow + (x >> 3)] & (0x80 >>> (x & 7))) != 0;
+    }
+
+    void set(int x, int y) {
+        if (x < 0 || x >= width || y < 0 || y >= maxHeight) {
+            return;
+        }
+        touch(y);
+        data[y * bytesPerRow + (x >> 3)] |= (byte) (0x80 >>> (x & 7));
+    }
+
+    /**
+     * Draws packed bits, each dot enlarged to scaleX by scaleY dots.
+     */
+    void draw(byte[] bits, int offset, int srcBytesPerRow, int srcWidth, int srcHeight,
+              int x, int y, int scaleX, int scaleY) {
+        if (scaleX == 1 && scaleY == 1 && (x & 7) == 0 && x >= 0 && y >= 0
+                && x + srcWidth <= width && y + srcHeight <= maxHeight) {
+            // Byte aligned, OR whole rows
+            touch(y + srcHeight - 1);
+            int column = x >> 3;
+            for (int row = 0; row < srcHeight; row++) {
+                int src = offset + row * srcBytesPerRow;
+                int dst = (y + row) * bytesPerRow + column;
+                for (int i = 0; i < srcBytesPerRow; i++) {
+                    data[dst + i] |= bits[src + i];
+                }
+            }
+            return;
+        }
+        for (int row = 0; row < srcHeight; row++) {
+            int src = offset + row * srcBytesPerRow;
+            for (int col = 0; col < srcWidth; col++) {
+                if ((bits[src + (col >> 3)] & (0x80 >>> (col & 7))) != 0) {
+                    fill(x + col * scaleX, y + row * scaleY, scaleX, scaleY);
+                }
+            }
+        }
+    }
+
+    void fill(int x, int y, int w, int h) {
+        for (int row = y; row < y + h; row++) {
+            for (int col = x; col < x + w; col++) {
+                set(col, row);
+            }
+        }
+    }
+
+    void invert(int x, int y, int w, int h) {
+        for (int row = Math.max(0, y); row < Math.min(maxHeight, y + h); row++) {
+            touch(row);
+            for (int col = Math.max(0, x); col < Math.min(width, x + w); col++) {
+                data[row * bytesPerRow + (col >> 3)] ^= (byte) (0x80 >>> (col & 7));
+            }
+        }
+    }
+
+    /**
+     * Copies the first rows into an image, blank rows below the last row drawn on included.
+     */
+    RasterImage toImage(int height) {
+        ensure(height);
+        return RasterImage.wrap(Arrays.copyOf(data, bytesPerRow * height), width, height);
+    }
+
+    void clear() {
+        Arrays.fill(data, 0, used * bytesPerRow, (byte) 0);
+        used = 0;
+    }
+
+    private void touch(int y) {
+        if (y >= used) {
+            ensure(y + 1);
+            used = y + 1;
+        }
+    }
+
+    private void ensure(int rows) {
+        if (rows * bytesPerRow > data.length) {
+            data = Arrays.copyOf(data, Math.max(rows, data.length / bytesPerRow * 2) * bytesPerRow);
+        }
+    }
+
+}
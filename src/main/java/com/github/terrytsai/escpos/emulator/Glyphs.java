@@ -0,0 +1,171 @@
+package com.github.terrytsai.escpos.emulator;
+
+import com.github.terrytsai.escpos.enums.CharacterCodeTable;
+
+import java.awt.AWTError;
+import java.awt.Font;
+import java.awt.FontMetrics;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.CharacterCodingException;
+import java.nio.charset.Charset;
+import java.nio.charset.CodingErrorAction;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Character glyphs of the emulated fonts, rendered once per font, code table and byte and shared by all emulators.
+ * <p>
+ * Glyphs are drawn with the monospaced font of the JVM. Without a usable font, for example on a headless system
+ * without fontconfig, each printable character is drawn as a box so layout and timing stay correct.
+ */
+final class Glyphs {
+
+    static final int FONT_A = 0;
+    static final int FONT_B = 1;
+
+    private static final int[] WIDTHS = {12, 9};
+    private static final int[] HEIGHTS = {24, 17};
+    private static final String[] CHARSETS = new String[256];
+    private static final AtomicReferenceArray<Glyph> CACHE = new AtomicReferenceArray<>(2 * 256 * 256);
+    private static final Font[] FONTS = new Font[2];
+
+    static {
+        for (CharacterCodeTable table : CharacterCodeTable.values()) {
+            if (CHARSETS[table.code] == null && table.charset != null && Charset.isSupported(table.charset)) {
+                CHARSETS[table.code] = table.charset;
+            }
+        }
+    }
+
+    private Glyphs() {
+    }
+
+    static int width(int font) {
+        return WIDTHS[font];
+    }
+
+    static int height(int font) {
+        return HEIGHTS[font];
+    }
+
+    static Glyph get(int font, int table, int b) {
+        int index = (font << 16) | ((table & 0xFF) << 8) | b;
+        Glyph glyph = CACHE.get(index);
+        if (glyph == null) {
+            glyph = render(font, table & 0xFF, b);
+            CACHE.set(index, glyph);
+        }
+        return glyph;
+    }
+
+    private static Glyph render(int font, int table, int b) {
+        int width = WIDTHS[font];
+        int height = HEIGHTS[font];
+        Glyph glyph = new Glyph(width, height);
+        char c = decode(table, b);
+        if (c == ' ') {
+            return glyph;
+        }
+        try {
+            BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_BYTE_GRAY);
+            Graphics2D g = image.createGraphics();
+            try {
+                g.setColor(java.awt.Color.WHITE);
+                g.fillRect(0, 0, width, height);
+                g.setColor(java.awt.Color.BLACK);
+                g.setRenderingHint(RenderingHints.KEY_TEXT_ANTIALIASING, RenderingHints.VALUE_TEXT_ANTIALIAS_OFF);
+                g.setFont(font(font, g));
+                FontMetrics metrics = g.getFontMetrics();
+                g.drawString(String.valueOf(c), (width - metrics.charWidth(c)) / 2, metrics.getAscent());
+            } finally {
+                g.dispose();
+            }
+            for (int y = 0; y < height; y++) {
+                for (int x = 0; x < width; x++) {
+                    if ((image.getRGB(x, y) & 0xFF) < 128) {
+                        glyph.bits[y * glyph.bytesPerRow + (x >> 3)] |= (byte) (0x80 >>> (x & 7));
+                    }
+                }
+            }
+        } catch (RuntimeException | AWTError | LinkageError e) {
+            // No usable font, keep the layout with a box
+            for (int y = 2; y < height - 2; y++) {
+                for (int x = 1; x < width - 1; x++) {
+                    glyph.bits[y * glyph.bytesPerRow + (x >> 3)] |= (byte) (0x80 >>> (x & 7));
+                }
+            }
+        }
+        return glyph;
+    }
+
+    /**
+     * Largest monospaced font whose characters fit the cell.
+     */
+    private static synchronized Font font(int font, Graphics2D g) {
+        if (FONTS[font] == null) {
+            int size = HEIGHTS[font];
+            Font candidate = new Font(Font.MONOSPACED, Font.PLAIN, size);
+            FontMetrics metrics = g.getFontMetrics(candidate);
+            while (size > 4 && (metrics.getAscent() + metrics.getDescent() > HEIGHTS[font]
+                    || metrics.charWidth('M') > WIDTHS[font])) {
+                candidate = new Font(Font.MONOSPACED, Font.PLAIN, --size);
+                metrics = g.getFontMetrics(candidate);
+            }
+            FONTS[font] = candidate;
+        }
+        return FONTS[font];
+    }
+
+    private static char decode(int table, int b) {
+        if (b < 0x80 || CHARSETS[table] == null) {
+            return b < 0x80 ? (char) b : '?';
+        }
+        try {
+            CharBuffer decoded = Charset.forName(CHARSETS[table]).newDecoder()
+                    .onMalformedInput(CodingErrorAction.REPORT)
+                    .onUnmappableCharacter(CodingErrorAction.REPORT)
+                    .decode(ByteBuffer.wrap(new byte[]{(byte) b}));
+            return decoded.remaining() == 1 ? decoded.get() : '?';
+        } catch (CharacterCodingException e) {
+            return '?';
+        }
+    }
+
+    /**
+     * Converts the column data of an ESC * bit image, most significant bit at the top, to a glyph.
+     */
+    static Glyph bitImage(byte[] data, int columns, int bytesPerColumn) {
+        Glyph glyph = new Glyph(columns, bytesPerColumn * 8);
+        for (int col = 0; col < columns; col++) {
+            for (int row = 0; row < glyph.height; row++) {
+                if ((data[col * bytesPerColumn + (row >> 3)] & (0x80 >>> (row & 7))) != 0) {
+                    glyph.bits[row * glyph.bytesPerRow + (col >> 3)] |= (byte) (0x80 >>> (col & 7));
+                }
+            }
+        }
+        return glyph;
+    }
+
+    /**
+     * Monochrome glyph packed 8 dots per byte, most significant bit first.
+     */
+    static final class Glyph {
+
+        final int width;
+        final int height;
+        final int bytesPerRow;
+        final byte[] bits;
+
+        private Glyph(int width, int height) {
+            this.width = width;
+            this.height = height;
+            this.bytesPerRow = (width + 7) >> 3;
+            this.bits = new byte[bytesPerRow * height];
+        }
+
+    }
+
+}
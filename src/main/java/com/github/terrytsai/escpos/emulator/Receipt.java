@@ -0,0 +1,104 @@
+package com.github.terrytsai.escpos.emulator;
+
+import com.github.terrytsai.escpos.image.RasterImage;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A receipt printed by a {@link VirtualPrinter}, from the previous cut up to and including its cut.
+ */
+public final class Receipt {
+
+    private final RasterImage image;
+    private final long byteCount;
+    private final int motions;
+    private final boolean cut;
+    private final long mechanismNanos;
+    private final long transferNanos;
+
+    Receipt(RasterImage image, long byteCount, int motions, boolean cut, long mechanismNanos, long transferNanos) {
+        this.image = image;
+        this.byteCount = byteCount;
+        this.motions = motions;
+        this.cut = cut;
+        this.mechanismNanos = mechanismNanos;
+        this.transferNanos = transferNanos;
+    }
+
+    /**
+     * Printed paper, as wide as the paper and as long as the paper fed.
+     *
+     * @return {@link RasterImage}
+     */
+    public RasterImage getImage() {
+        return image;
+    }
+
+    /**
+     * Length of paper fed, in dots.
+     *
+     * @return dots
+     */
+    public int getFeedLength() {
+        return image.getHeight();
+    }
+
+    /**
+     * Bytes received for this receipt.
+     *
+     * @return bytes
+     */
+    public long getByteCount() {
+        return byteCount;
+    }
+
+    /**
+     * Times the paper started moving: once per printed line or feed command, per image and per page.
+     *
+     * @return paper motions
+     */
+    public int getMotions() {
+        return motions;
+    }
+
+    /**
+     * Whether the receipt ended with a cut, rather than with {@link VirtualPrinter#close()}.
+     *
+     * @return true if cut
+     */
+    public boolean isCut() {
+        return cut;
+    }
+
+    /**
+     * Estimated print time on a real printer. Printing overlaps with transmission, so this is the longer of
+     * the time the mechanism needs and the time the bytes need on the line.
+     *
+     * @param unit time unit
+     * @return print time
+     */
+    public long getPrintTime(TimeUnit unit) {
+        return unit.convert(Math.max(mechanismNanos, transferNanos), TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Estimated time the mechanism needs: paper feed at the print speed, the start of each paper motion and the cut.
+     *
+     * @param unit time unit
+     * @return mechanism time
+     */
+    public long getMechanismTime(TimeUnit unit) {
+        return unit.convert(mechanismNanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Time the bytes need on a serial line at the configured baud rate, 0 if none is configured.
+     *
+     * @param unit time unit
+     * @return transfer time
+     */
+    public long getTransferTime(TimeUnit unit) {
+        return unit.convert(transferNanos, TimeUnit.NANOSECONDS);
+    }
+
+}
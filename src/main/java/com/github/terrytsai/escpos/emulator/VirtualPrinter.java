@@ -0,0 +1,862 @@
+package com.github.terrytsai.escpos.emulator;
+
+import com.github.terrytsai.escpos.decode.Command;
+import com.github.terrytsai.escpos.decode.CommandDecoder;
+import com.github.terrytsai.escpos.decode.CommandListener;
+import com.github.terrytsai.escpos.decode.CommandType;
+import com.github.terrytsai.escpos.image.RasterImage;
+
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+
+/**
+ * In-process printer for tests without hardware. It interprets the commands written to it, renders each
+ * receipt to a monochrome image and estimates how long a real printer would take to print it.
+ * <p>
+ * A receipt ends at each cut. Receipts are passed to the listener given to {@link Builder#onReceipt(Consumer)},
+ * or kept until {@link #takeReceipts()}.
+ * <p>
+ * [Notes]
+ * - Text is printed in Font A (12 × 24 dots) and Font B (9 × 17 dots), with the modes of ESC !, GS !, ESC E, ESC G, ESC -, GS B, ESC SP and the code table of ESC t.
+ * - Layout follows ESC a, GS L, GS W, ESC $, ESC \, HT, and lines wrap at the end of the print area. Lines feed by ESC 2 / ESC 3 line spacing, or by the tallest character on the line.
+ * - Raster images of GS v 0 and graphics of GS ( L and GS 8 L, including NV and download graphics, are printed. Bit images of ESC * are placed on the line like characters, in both modes.
+ * - Page mode is interpreted with ESC L, ESC W, ESC T, GS $, GS \, ESC FF, FF, CAN and ESC S. The vertical position is the baseline of the characters, a page starts with its first line below the top of the area. The paper feeds up to the lowest dot printed on the page.
+ * - Other commands, such as 2D codes, user-defined characters, Kanji, rotation and upside-down printing, are decoded and skipped.
+ * - The print time assumes the paper moves at the print speed, plus a fixed time each time the paper starts moving and for each cut. Printing overlaps with transmission at the configured baud rate.
+ * - One motion unit is one dot.
+ *
+ * <pre>{@code
+ * VirtualPrinter printer = new VirtualPrinter();
+ * new EscPosWriter(printer).initialize().text("ORDER #1042").printAndFeedLines(3).cut(CutA.PARTIAL);
+ *
+ * Receipt receipt = printer.takeReceipts().get(0);
+ * receipt.getImage();                             // 576 dots wide
+ * receipt.getPrintTime(TimeUnit.MILLISECONDS);
+ * }</pre>
+ */
+public final class VirtualPrinter extends OutputStream {
+
+    private static final int DEFAULT_PAPER_WIDTH = 576;
+    private static final int DEFAULT_DOTS_PER_MILLIMETER = 8;
+    private static final int DEFAULT_PRINT_SPEED = 250;
+    private static final long DEFAULT_MOTION_NANOS = TimeUnit.MILLISECONDS.toNanos(2);
+    private static final long DEFAULT_CUT_NANOS = TimeUnit.MILLISECONDS.toNanos(250);
+    private static final int DEFAULT_PAGE_HEIGHT = 1662;
+    private static final int DEFAULT_LINE_SPACING = 30;
+    private static final int TAB_CHARACTERS = 8;
+
+    private static final int EMPHASIZED = 1 << 8;
+    private static final int UNDERLINE_SHIFT = 9;
+    private static final int REVERSE = 1 << 11;
+
+    private final int paperWidth;
+    private final int dotsPerMillimeter;
+    private final int printSpeed;
+    private final long motionNanos;
+    private final long cutNanos;
+    private final int baudRate;
+    private final int pageHeight;
+    private final Consumer<Receipt> receiptListener;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final CommandDecoder decoder = new CommandDecoder(new Interpreter());
+    private final List<Receipt> receipts = new ArrayList<>();
+    private final byte[] single = new byte[1];
+
+    // Paper of the receipt being printed
+    private final Canvas paper;
+    private int paperY;
+    private int motions;
+    private long receiptStart;
+
+    // Print modes
+    private int font;
+    private boolean emphasized;
+    private boolean doubleStrike;
+    private int underline;
+    private int scaleX;
+    private int scaleY;
+    private boolean reverse;
+    private int justification;
+    private int lineSpacing;
+    private int rightSpacing;
+    private int leftMargin;
+    private int areaWidth;
+    private int codeTable;
+
+    // Page mode
+    private boolean pageMode;
+    private int direction;
+    private int pageAreaX;
+    private int pageAreaY;
+    private int pageAreaWidth;
+    private int pageAreaHeight;
+    private Canvas page;
+    private int pageY;
+
+    // Characters of the line being composed
+    private Glyphs.Glyph[] lineGlyphs = new Glyphs.Glyph[64];
+    private int[] lineX = new int[64];
+    private int[] lineCell = new int[64];
+    private int[] lineAttributes = new int[64];
+    private int lineCount;
+    private int lineHeight;
+    private int x;
+
+    // Data of the command being decoded, and graphics
+    private byte[] data = new byte[4096];
+    private int dataCount;
+    private RasterImage graphics;
+    private int graphicsScaleX;
+    private int graphicsScaleY;
+    private final Map<Integer, RasterImage> definedGraphics = new HashMap<>();
+
+    /**
+     * Constructor
+     * <p>
+     * Emulates an 80 mm printer, 576 dots wide at 203 dpi, printing at 250 mm/s.
+     */
+    public VirtualPrinter() {
+        this(builder());
+    }
+
+    private VirtualPrinter(Builder builder) {
+        if (builder.paperWidth < 8 || builder.dotsPerMillimeter < 1 || builder.printSpeed < 1
+                || builder.pageHeight < 1) {
+            throw new IllegalArgumentException("paperWidth, dotsPerMillimeter, printSpeed and pageHeight must be positive");
+        }
+        if (builder.motionNanos < 0 || builder.cutNanos < 0 || builder.baudRate < 0) {
+            throw new IllegalArgumentException("motion time, cut time and baudRate must not be negative");
+        }
+        this.paperWidth = builder.paperWidth;
+        this.dotsPerMillimeter = builder.dotsPerMillimeter;
+        this.printSpeed = builder.printSpeed;
+        this.motionNanos = builder.motionNanos;
+        this.cutNanos = builder.cutNanos;
+        this.baudRate = builder.baudRate;
+        this.pageHeight = builder.pageHeight;
+        this.receiptListener = builder.receiptListener;
+        this.paper = new Canvas(paperWidth, Integer.MAX_VALUE);
+        initialize();
+    }
+
+    /**
+     * Creates a builder for an emulator with the defaults of {@link #VirtualPrinter()}.
+     *
+     * @return {@link Builder}
+     */
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    @Override
+    public void write(int b) {
+        lock.lock();
+        try {
+            single[0] = (byte) b;
+            decoder.decode(single, 0, 1);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) {
+        lock.lock();
+        try {
+            decoder.decode(b, off, len);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Ends the receipt being printed, if anything was printed since the last cut.
+     */
+    @Override
+    public void close() {
+        lock.lock();
+        try {
+            if (!pageMode && lineCount > 0) {
+                printLine(0, 0);
+            }
+            if (paperY > 0 || paper.getUsed() > 0) {
+                finishReceipt(false);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Returns the receipts printed since the last call. Receipts are only kept without a receipt listener.
+     *
+     * @return receipts in print order
+     */
+    public List<Receipt> takeReceipts() {
+        lock.lock();
+        try {
+            List<Receipt> taken = new ArrayList<>(receipts);
+            receipts.clear();
+            return taken;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    ///////////////////////////////////////////////
+    //
+    // Interpretation
+    //
+    ///////////////////////////////////////////////
+
+    private final class Interpreter implements CommandListener {
+
+        @Override
+        public void textReceived(byte[] bytes, int off, int len) {
+            for (int i = off, end = off + len; i < end; i++) {
+                character(bytes[i] & 0xFF);
+            }
+        }
+
+        @Override
+        public void commandReceived(Command command) {
+            dataCount = 0;
+            if (command.getDataLength() > data.length && command.getType() != CommandType.SYMBOL
+                    && command.getType() != CommandType.DEFINE_USER_CHARACTERS) {
+                data = new byte[(int) Math.min(command.getDataLength(), Integer.MAX_VALUE - 8)];
+            }
+        }
+
+        @Override
+        public void dataReceived(Command command, byte[] bytes, int off, int len) {
+            CommandType type = command.getType();
+            if (type == CommandType.BIT_IMAGE || type == CommandType.PRINT_RASTER_IMAGE || type == CommandType.GRAPHICS
+                    || type == CommandType.GRAPHICS_LARGE) {
+                int n = Math.min(len, data.length - dataCount);
+                System.arraycopy(bytes, off, data, dataCount, n);
+                dataCount += n;
+            }
+        }
+
+        @Override
+        public void commandCompleted(Command command) {
+            execute(command);
+        }
+
+    }
+
+    private void execute(Command c) {
+        switch (c.getType()) {
+            case HORIZONTAL_TAB: {
+                int tab = (Glyphs.width(font) + rightSpacing) * scaleX * TAB_CHARACTERS;
+                x = (x / tab + 1) * tab;
+                break;
+            }
+            case PRINT_AND_FEED_LINE:
+                printLine(lineSpacing, 0);
+                break;
+            case PRINT_AND_RETURN_TO_STANDARD_MODE:
+                if (pageMode) {
+                    printPage();
+                    pageMode = false;
+                    resetLine();
+                } else if (lineCount > 0) {
+                    printLine(0, 0);
+                }
+                break;
+            case CANCEL_PRINT_IN_PAGE_MODE:
+                if (pageMode) {
+                    clearPage();
+                }
+                break;
+            case PRINT_IN_PAGE_MODE:
+                if (pageMode) {
+                    printPage();
+                }
+                break;
+            case PRINT_AND_FEED_PAPER:
+                printLine(c.getParameter(0), 0);
+                break;
+            case PRINT_AND_FEED_LINES: {
+                int n = c.getParameter(0);
+                printLine(n == 0 ? 0 : lineSpacing, n == 0 ? 0 : (n - 1) * lineSpacing);
+                break;
+            }
+            case PRINT_AND_REVERSE_FEED:
+            case PRINT_AND_REVERSE_FEED_LINES:
+                // Printed lines are not reprinted, the paper position is kept
+                if (lineCount > 0) {
+                    printLine(0, 0);
+                }
+                break;
+            case SET_DEFAULT_LINE_SPACING:
+                lineSpacing = DEFAULT_LINE_SPACING;
+                break;
+            case SET_LINE_SPACING:
+                lineSpacing = c.getParameter(0);
+                break;
+            case SET_PRINT_MODE: {
+                int n = c.getParameter(0);
+                font = n & 1;
+                emphasized = (n & 8) != 0;
+                scaleY = (n & 16) != 0 ? 2 : 1;
+                scaleX = (n & 32) != 0 ? 2 : 1;
+                underline = (n & 128) != 0 ? 1 : 0;
+                break;
+            }
+            case SET_CHARACTER_SIZE: {
+                int n = c.getParameter(0);
+                scaleX = ((n >> 4) & 7) + 1;
+                scaleY = (n & 7) + 1;
+                break;
+            }
+            case SET_RIGHT_SIDE_CHARACTER_SPACING:
+                rightSpacing = c.getParameter(0);
+                break;
+            case SET_UNDERLINE:
+                underline = c.getParameter(0) & 3;
+                break;
+            case SET_EMPHASIZE:
+                emphasized = (c.getParameter(0) & 1) != 0;
+                break;
+            case SET_DOUBLE_STRIKE:
+                doubleStrike = (c.getParameter(0) & 1) != 0;
+                break;
+            case SET_FONT:
+                font = c.getParameter(0) & 1;
+                break;
+            case SET_CHARACTER_CODE_TABLE:
+                codeTable = c.getParameter(0);
+                break;
+            case SET_WHITE_BLACK_REVERSE:
+                reverse = (c.getParameter(0) & 1) != 0;
+                break;
+            case SET_ABSOLUTE_POSITION:
+                x = word(c, 0);
+                break;
+            case SET_RELATIVE_POSITION:
+                x = Math.max(0, x + (short) word(c, 0));
+                break;
+            case SET_JUSTIFICATION:
+                justification = c.getParameter(0) & 3;
+                break;
+            case SET_PRINT_DIRECTION:
+                if (pageMode) {
+                    direction = c.getParameter(0) & 3;
+                }
+                break;
+            case SET_PRINT_AREA:
+                pageAreaX = Math.min(word(c, 0), paperWidth - 1);
+                pageAreaY = word(c, 2);
+                pageAreaWidth = Math.max(1, Math.min(word(c, 4), paperWidth - pageAreaX));
+                pageAreaHeight = Math.max(1, word(c, 6));
+                if (pageMode) {
+                    clearPage();
+                }
+                break;
+            case SET_ABSOLUTE_VERTICAL_POSITION:
+                if (pageMode) {
+                    drawPageLine();
+                    pageY = word(c, 0);
+                }
+                break;
+            case SET_RELATIVE_VERTICAL_POSITION:
+                if (pageMode) {
+                    drawPageLine();
+                    pageY = Math.max(0, Math.max(0, pageY) + (short) word(c, 0));
+                }
+                break;
+            case SET_LEFT_MARGIN:
+                if (!pageMode) {
+                    leftMargin = word(c, 0);
+                }
+                break;
+            case SET_PRINT_AREA_WIDTH:
+                if (!pageMode) {
+                    areaWidth = word(c, 0);
+                }
+                break;
+            case CUT:
+            case CUT_WITH_FEED:
+            case CUT_POSITION:
+            case CUT_WITH_FEED_AND_RETURN_START:
+                cut(c.getParameterCount() > 1 ? c.getParameter(1) : 0);
+                break;
+            case INITIALIZE:
+                initialize();
+                break;
+            case SET_PAGE_MODE:
+                if (!pageMode) {
+                    if (lineCount > 0) {
+                        printLine(0, 0);
+                    }
+                    pageMode = true;
+                    clearPage();
+                }
+                break;
+            case SET_STANDARD_MODE:
+                if (pageMode) {
+                    pageMode = false;
+                    resetPageArea();
+                    resetLine();
+                }
+                break;
+            case BIT_IMAGE: {
+                int m = c.getParameter(0);
+                int columns = word(c, 1);
+                int bytesPerColumn = m >= 32 ? 3 : 1;
+                if (columns > 0 && (long) columns * bytesPerColumn <= dataCount) {
+                    // 8-dot modes are a third of the vertical density, single density half the horizontal
+                    int sx = (m & 1) == 0 ? 2 : 1;
+                    int sy = m >= 32 ? 1 : 3;
+                    place(Glyphs.bitImage(data, columns, bytesPerColumn), columns * sx, sx | sy << 4);
+                }
+                break;
+            }
+            case PRINT_RASTER_IMAGE: {
+                int m = c.getByte(3);
+                int bytesPerRow = word(c, 2);
+                int rows = word(c, 4);
+                if ((long) bytesPerRow * rows <= dataCount) {
+                    image(data, bytesPerRow, bytesPerRow * 8, rows, (m & 1) + 1, ((m >> 1) & 1) + 1);
+                }
+                break;
+            }
+            case GRAPHICS:
+            case GRAPHICS_LARGE:
+                graphics(c.getByte(c.getLength() - 1));
+                break;
+            default:
+                break;
+        }
+    }
+
+    private void initialize() {
+        font = Glyphs.FONT_A;
+        emphasized = false;
+        doubleStrike = false;
+        underline = 0;
+        scaleX = 1;
+        scaleY = 1;
+        reverse = false;
+        justification = 0;
+        lineSpacing = DEFAULT_LINE_SPACING;
+        rightSpacing = 0;
+        leftMargin = 0;
+        areaWidth = paperWidth;
+        codeTable = 0;
+        pageMode = false;
+        direction = 0;
+        resetPageArea();
+        graphics = null;
+        resetLine();
+    }
+
+    private void resetPageArea() {
+        pageAreaX = 0;
+        pageAreaY = 0;
+        pageAreaWidth = paperWidth;
+        pageAreaHeight = pageHeight;
+    }
+
+    private void character(int b) {
+        Glyphs.Glyph glyph = Glyphs.get(font, codeTable, b);
+        place(glyph, (glyph.width + rightSpacing) * scaleX, scaleX | scaleY << 4
+                | (emphasized || doubleStrike ? EMPHASIZED : 0) | underline << UNDERLINE_SHIFT | (reverse ? REVERSE : 0));
+    }
+
+    /**
+     * Adds a glyph to the line being composed, printing the line first if the glyph does not fit.
+     */
+    private void place(Glyphs.Glyph glyph, int cell, int attributes) {
+        if (lineCount > 0 && x + cell > lineLimit()) {
+            printLine(lineSpacing, 0);
+        }
+        if (lineCount == lineGlyphs.length) {
+            lineGlyphs = Arrays.copyOf(lineGlyphs, lineCount * 2);
+            lineX = Arrays.copyOf(lineX, lineCount * 2);
+            lineCell = Arrays.copyOf(lineCell, lineCount * 2);
+            lineAttributes = Arrays.copyOf(lineAttributes, lineCount * 2);
+        }
+        lineGlyphs[lineCount] = glyph;
+        lineX[lineCount] = x;
+        lineCell[lineCount] = cell;
+        lineAttributes[lineCount] = attributes;
+        lineCount++;
+        lineHeight = Math.max(lineHeight, glyph.height * ((attributes >> 4) & 15));
+        x += cell;
+    }
+
+    /**
+     * Prints the line being composed and feeds the paper, by at least the height of the line.
+     */
+    private void printLine(int feed, int extra) {
+        int advance = (lineCount > 0 ? Math.max(feed, lineHeight) : feed) + extra;
+        if (pageMode) {
+            drawPageLine();
+            pageY = Math.max(0, pageY) + advance;
+        } else {
+            if (lineCount > 0) {
+                int limit = standardLimit();
+                int shift = justification == 0 ? 0 : Math.max(0, (limit - x) / (justification == 1 ? 2 : 1));
+                drawLine(paper, leftMargin + shift, paperY);
+            }
+            if (advance > 0 || lineCount > 0) {
+                motions++;
+            }
+            paperY += advance;
+        }
+        resetLine();
+    }
+
+    /**
+     * Draws the line being composed on the page at the vertical position, without moving it.
+     */
+    private void drawPageLine() {
+        if (lineCount > 0) {
+            if (pageY < 0) {
+                pageY = lineHeight;
+            }
+            drawLine(page, 0, pageY - lineHeight);
+        }
+        int keep = x;
+        resetLine();
+        x = keep;
+    }
+
+    private void drawLine(Canvas canvas, int originX, int top) {
+        for (int i = 0; i < lineCount; i++) {
+            Glyphs.Glyph glyph = lineGlyphs[i];
+            int attributes = lineAttributes[i];
+            int sx = attributes & 15;
+            int sy = (attributes >> 4) & 15;
+            int height = glyph.height * sy;
+            int gx = originX + lineX[i];
+            int gy = top + lineHeight - height;
+            canvas.draw(glyph.bits, 0, glyph.bytesPerRow, glyph.width, glyph.height, gx, gy, sx, sy);
+            if ((attributes & EMPHASIZED) != 0) {
+                canvas.draw(glyph.bits, 0, glyph.bytesPerRow, glyph.width, glyph.height, gx + 1, gy, sx, sy);
+            }
+            int thickness = (attributes >> UNDERLINE_SHIFT) & 3;
+            if ((attributes & REVERSE) != 0) {
+                canvas.invert(gx, gy, lineCell[i], height);
+            } else if (thickness > 0) {
+                canvas.fill(gx, gy + height - thickness, lineCell[i], thickness);
+            }
+        }
+    }
+
+    private void resetLine() {
+        Arrays.fill(lineGlyphs, 0, lineCount, null);
+        lineCount = 0;
+        lineHeight = 0;
+        x = 0;
+    }
+
+    private int lineLimit() {
+        if (pageMode) {
+            return (direction & 1) == 0 ? pageAreaWidth : pageAreaHeight;
+        }
+        return standardLimit();
+    }
+
+    private int standardLimit() {
+        return Math.max(0, Math.min(areaWidth, paperWidth - leftMargin));
+    }
+
+    private void image(byte[] bits, int bytesPerRow, int width, int height, int sx, int sy) {
+        if (pageMode) {
+            return;
+        }
+        if (lineCount > 0) {
+            printLine(0, 0);
+        }
+        int free = standardLimit() - width * sx;
+        int shift = justification == 0 ? 0 : Math.max(0, free / (justification == 1 ? 2 : 1));
+        paper.draw(bits, 0, bytesPerRow, width, height, leftMargin + shift, paperY, sx, sy);
+        paperY += height * sy;
+        motions++;
+    }
+
+    private void graphics(int fn) {
+        byte[] p = data;
+        switch (fn) {
+            case 112:
+                if (dataCount >= 8) {
+                    RasterImage image = graphicsData(p[4] & 0xFF | (p[5] & 0xFF) << 8, p[6] & 0xFF | (p[7] & 0xFF) << 8, 8);
+                    if (image != null) {
+                        graphics = image;
+                        graphicsScaleX = scale(p[1]);
+                        graphicsScaleY = scale(p[2]);
+                    }
+                }
+                break;
+            case 50:
+                if (graphics != null) {
+                    image(graphics.getData(), graphics.getBytesPerRow(), graphics.getWidth(), graphics.getHeight(),
+                            graphicsScaleX, graphicsScaleY);
+                    graphics = null;
+                }
+                break;
+            case 67:
+            case 83:
+                if (dataCount >= 9) {
+                    RasterImage image = graphicsData(p[4] & 0xFF | (p[5] & 0xFF) << 8, p[6] & 0xFF | (p[7] & 0xFF) << 8, 9);
+                    if (image != null) {
+                        definedGraphics.put(key(fn, p[1], p[2]), image);
+                    }
+                }
+                break;
+            case 69:
+            case 85:
+                if (dataCount >= 4) {
+                    RasterImage image = definedGraphics.get(key(fn - 2, p[0], p[1]));
+                    if (image != null) {
+                        image(image.getData(), image.getBytesPerRow(), image.getWidth(), image.getHeight(),
+                                scale(p[2]), scale(p[3]));
+                    }
+                }
+                break;
+            case 66:
+            case 82:
+                if (dataCount >= 2) {
+                    definedGraphics.remove(key(fn + 1, p[0], p[1]));
+                }
+                break;
+            default:
+                break;
+        }
+    }
+
+    private RasterImage graphicsData(int width, int height, int offset) {
+        int length = ((width + 7) >> 3) * height;
+        if (offset + length > dataCount) {
+            return null;
+        }
+        return RasterImage.wrap(Arrays.copyOfRange(data, offset, offset + length), width, height);
+    }
+
+    private void clearPage() {
+        int size = Math.max(pageAreaWidth, pageAreaHeight);
+        if (page == null || page.getWidth() != size) {
+            page = new Canvas(size, size);
+        } else {
+            page.clear();
+        }
+        pageY = -1;
+        resetLine();
+    }
+
+    /**
+     * Prints the page area in the print direction. The page data is kept.
+     */
+    private void printPage() {
+        drawPageLine();
+        int bottom = -1;
+        int logicalWidth = page.getWidth();
+        for (int ly = 0; ly < page.getUsed(); ly++) {
+            for (int lx = 0; lx < logicalWidth; lx++) {
+                if (!page.get(lx, ly)) {
+                    continue;
+                }
+                int px;
+                int py;
+                switch (direction) {
+                    case 1:
+                        px = ly;
+                        py = pageAreaHeight - 1 - lx;
+                        break;
+                    case 2:
+                        px = pageAreaWidth - 1 - lx;
+                        py = pageAreaHeight - 1 - ly;
+                        break;
+                    case 3:
+                        px = pageAreaWidth - 1 - ly;
+                        py = lx;
+                        break;
+                    default:
+                        px = lx;
+                        py = ly;
+                        break;
+                }
+                if (px < 0 || px >= pageAreaWidth || py < 0 || py >= pageAreaHeight) {
+                    continue;
+                }
+                paper.set(pageAreaX + px, paperY + pageAreaY + py);
+                bottom = Math.max(bottom, py);
+            }
+        }
+        if (bottom >= 0) {
+            paperY += pageAreaY + bottom + 1;
+            motions++;
+        }
+        x = 0;
+    }
+
+    private void cut(int feed) {
+        if (pageMode) {
+            return;
+        }
+        if (lineCount > 0) {
+            printLine(0, 0);
+        }
+        if (feed > 0) {
+            paperY += feed;
+            motions++;
+        }
+        finishReceipt(true);
+    }
+
+    private void finishReceipt(boolean cut) {
+        long position = decoder.getPosition();
+        long bytes = position - receiptStart;
+        receiptStart = position;
+        int length = Math.max(paperY, paper.getUsed());
+        long mechanism = (long) (length * 1e9 / ((double) printSpeed * dotsPerMillimeter))
+                + motions * motionNanos + (cut ? cutNanos : 0);
+        long transfer = baudRate > 0 ? (long) (bytes * 10 * 1e9 / baudRate) : 0;
+        Receipt receipt = new Receipt(paper.toImage(length), bytes, motions, cut, mechanism, transfer);
+        paper.clear();
+        paperY = 0;
+        motions = 0;
+        if (receiptListener != null) {
+            receiptListener.accept(receipt);
+        } else {
+            receipts.add(receipt);
+        }
+    }
+
+    private static int word(Command c, int parameter) {
+        return c.getParameter(parameter) | c.getParameter(parameter + 1) << 8;
+    }
+
+    private static int scale(byte b) {
+        return Math.max(1, Math.min(2, b & 0xFF));
+    }
+
+    private static int key(int fn, byte kc1, byte kc2) {
+        return fn << 16 | (kc1 & 0xFF) << 8 | (kc2 & 0xFF);
+    }
+
+    /**
+     * Configures a {@link VirtualPrinter}.
+     */
+    public static final class Builder {
+
+        private int paperWidth = DEFAULT_PAPER_WIDTH;
+        private int dotsPerMillimeter = DEFAULT_DOTS_PER_MILLIMETER;
+        private int printSpeed = DEFAULT_PRINT_SPEED;
+        private long motionNanos = DEFAULT_MOTION_NANOS;
+        private long cutNanos = DEFAULT_CUT_NANOS;
+        private int baudRate;
+        private int pageHeight = DEFAULT_PAGE_HEIGHT;
+        private Consumer<Receipt> receiptListener;
+
+        private Builder() {
+        }
+
+        /**
+         * Printable width in dots. Default 576, 72 mm on 80 mm paper.
+         *
+         * @param paperWidth dots
+         * @return {@link Builder}
+         */
+        public Builder paperWidth(int paperWidth) {
+            this.paperWidth = paperWidth;
+            return this;
+        }
+
+        /**
+         * Resolution. Default 8 dots per millimeter, 203 dpi.
+         *
+         * @param dotsPerMillimeter dots per millimeter
+         * @return {@link Builder}
+         */
+        public Builder dotsPerMillimeter(int dotsPerMillimeter) {
+            this.dotsPerMillimeter = dotsPerMillimeter;
+            return this;
+        }
+
+        /**
+         * Paper speed while printing. Default 250 mm/s.
+         *
+         * @param printSpeed millimeters per second
+         * @return {@link Builder}
+         */
+        public Builder printSpeed(int printSpeed) {
+            this.printSpeed = printSpeed;
+            return this;
+        }
+
+        /**
+         * Time lost each time the paper starts moving, for example for each line printed with LF. Default 2 ms.
+         *
+         * @param time time
+         * @param unit unit of time
+         * @return {@link Builder}
+         */
+        public Builder motionTime(long time, TimeUnit unit) {
+            this.motionNanos = unit.toNanos(time);
+            return this;
+        }
+
+        /**
+         * Time of a cut. Default 250 ms.
+         *
+         * @param time time
+         * @param unit unit of time
+         * @return {@link Builder}
+         */
+        public Builder cutTime(long time, TimeUnit unit) {
+            this.cutNanos = unit.toNanos(time);
+            return this;
+        }
+
+        /**
+         * Baud rate of the serial line, 8N1, used to estimate the transfer time. Default 0, not estimated.
+         *
+         * @param baudRate baud rate
+         * @return {@link Builder}
+         */
+        public Builder baudRate(int baudRate) {
+            this.baudRate = baudRate;
+            return this;
+        }
+
+        /**
+         * Height of the page mode print area in dots. Default 1662.
+         *
+         * @param pageHeight dots
+         * @return {@link Builder}
+         */
+        public Builder pageHeight(int pageHeight) {
+            this.pageHeight = pageHeight;
+            return this;
+        }
+
+        /**
+         * Receives each receipt as it is cut, on the writing thread. Receipts are then not kept for
+         * {@link #takeReceipts()}. Default none.
+         *
+         * @param receiptListener listener
+         * @return {@link Builder}
+         */
+        public Builder onReceipt(Consumer<Receipt> receiptListener) {
+            this.receiptListener = receiptListener;
+            return this;
+        }
+
+        public VirtualPrinter build() {
+            return new VirtualPrinter(this);
+        }
+
+    }
+
+}
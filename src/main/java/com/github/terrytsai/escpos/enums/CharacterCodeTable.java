@@ -2,97 +2,103 @@ package com.github.terrytsai.escpos.enums;
 
 public enum CharacterCodeTable {
 
-    PC437(0),
-    USA(0),
-    STANDARD_EUROPE(0),
-    KATAKANA(1),
-    PC850(2),
-    MULTILINGUAL(2),
-    PC860(3),
-    PORTUGUESE(3),
-    PC863(4),
-    CANADIAN_FRENCH(4),
-    PC865(5),
-    NORDIC(5),
-    HIRAGANA(6),
-    KANJI_1(7),
-    KANJI_2(8),
-    PC851(11),
-    GREEK_1(11),
-    PC853(12),
-    TURKISH_1(12),
-    PC857(13),
-    TURKISH_2(13),
-    PC737(14),
-    GREEK_2(14),
-    ISO8859_7(15),
-    GREEK_3(15),
-    WPC1252(16),
-    PC866(17),
-    CYRILLIC_2(17),
-    PC852(18),
-    LATIN_2(18),
-    PC858(19),
-    EURO(19),
-    THAI_42(20),
-    THAI_11(21),
-    THAI_13(22),
-    THAI_14(23),
-    THAI_16(24),
-    THAI_17(25),
-    THAI_18(26),
-    TCVN_3_1(30),
-    VIETNAMESE_1(30),
-    TCVN_3_2(31),
-    VIETNAMESE_2(31),
-    PC720(32),
-    ARABIC(32),
-    WPC775(33),
-    BALTIC_RIM(33),
-    PC855(34),
-    CYRILLIC(34),
-    PC861(35),
-    ICELANDIC(35),
-    PC862(36),
-    HEBREW(36),
-    PC864(37),
-    ARABIC_2(37),
-    PC869(38),
-    GREEK_4(38),
-    ISO8859_2(39),
-    ISO8859_15(40),
-    PC1098(41),
-    FARSI(41),
-    PC1118(42),
-    PC1119(43),
-    PC1125(44),
-    WPC1250(45),
-    WPC1251(46),
-    WPC1253(47),
-    WPC1254(48),
-    WPC1255(49),
-    WPC1256(50),
-    WPC1257(51),
-    WPC1258(52),
-    KZ_1048(53),
-    DEVANAGARI(66),
-    BENGALI(67),
-    TAMIL(68),
-    TELUGU(69),
-    ASSAMESE(70),
-    ORIYA(71),
-    KANNADA(72),
-    MALAYALAM(73),
-    GUJARATI(74),
-    PUNJABI(75),
-    MARATHI(82),
-    PAGE_254(254),
-    PAGE_255(255);
+    PC437(0, "IBM437"),
+    USA(0, "IBM437"),
+    STANDARD_EUROPE(0, "IBM437"),
+    KATAKANA(1, "JIS_X0201"),
+    PC850(2, "IBM850"),
+    MULTILINGUAL(2, "IBM850"),
+    PC860(3, "IBM860"),
+    PORTUGUESE(3, "IBM860"),
+    PC863(4, "IBM863"),
+    CANADIAN_FRENCH(4, "IBM863"),
+    PC865(5, "IBM865"),
+    NORDIC(5, "IBM865"),
+    HIRAGANA(6, null),
+    KANJI_1(7, null),
+    KANJI_2(8, null),
+    PC851(11, null),
+    GREEK_1(11, null),
+    PC853(12, null),
+    TURKISH_1(12, null),
+    PC857(13, "IBM857"),
+    TURKISH_2(13, "IBM857"),
+    PC737(14, "x-IBM737"),
+    GREEK_2(14, "x-IBM737"),
+    ISO8859_7(15, "ISO-8859-7"),
+    GREEK_3(15, "ISO-8859-7"),
+    WPC1252(16, "windows-1252"),
+    PC866(17, "IBM866"),
+    CYRILLIC_2(17, "IBM866"),
+    PC852(18, "IBM852"),
+    LATIN_2(18, "IBM852"),
+    PC858(19, "IBM00858"),
+    EURO(19, "IBM00858"),
+    THAI_42(20, null),
+    THAI_11(21, null),
+    THAI_13(22, null),
+    THAI_14(23, null),
+    THAI_16(24, null),
+    THAI_17(25, null),
+    THAI_18(26, null),
+    TCVN_3_1(30, null),
+    VIETNAMESE_1(30, null),
+    TCVN_3_2(31, null),
+    VIETNAMESE_2(31, null),
+    PC720(32, null),
+    ARABIC(32, null),
+    WPC775(33, "IBM775"),
+    BALTIC_RIM(33, "IBM775"),
+    PC855(34, "IBM855"),
+    CYRILLIC(34, "IBM855"),
+    PC861(35, "IBM861"),
+    ICELANDIC(35, "IBM861"),
+    PC862(36, "IBM862"),
+    HEBREW(36, "IBM862"),
+    PC864(37, "IBM864"),
+    ARABIC_2(37, "IBM864"),
+    PC869(38, "IBM869"),
+    GREEK_4(38, "IBM869"),
+    ISO8859_2(39, "ISO-8859-2"),
+    ISO8859_15(40, "ISO-8859-15"),
+    PC1098(41, "x-IBM1098"),
+    FARSI(41, "x-IBM1098"),
+    PC1118(42, null),
+    PC1119(43, null),
+    PC1125(44, null),
+    WPC1250(45, "windows-1250"),
+    WPC1251(46, "windows-1251"),
+    WPC1253(47, "windows-1253"),
+    WPC1254(48, "windows-1254"),
+    WPC1255(49, "windows-1255"),
+    WPC1256(50, "windows-1256"),
+    WPC1257(51, "windows-1257"),
+    WPC1258(52, "windows-1258"),
+    KZ_1048(53, "KZ-1048"),
+    DEVANAGARI(66, null),
+    BENGALI(67, null),
+    TAMIL(68, null),
+    TELUGU(69, null),
+    ASSAMESE(70, null),
+    ORIYA(71, null),
+    KANNADA(72, null),
+    MALAYALAM(73, null),
+    GUJARATI(74, null),
+    PUNJABI(75, null),
+    MARATHI(82, null),
+    PAGE_254(254, null),
+    PAGE_255(255, null);
 
     public final int code;
 
-    CharacterCodeTable(int code) {
+    /**
+     * Name of the equivalent Java charset, or null if there is none
+     */
+    public final String charset;
+
+    CharacterCodeTable(int code, String charset) {
         this.code = code;
+        this.charset = charset;
     }
 
 }
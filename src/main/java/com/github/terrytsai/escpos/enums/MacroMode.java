@@ -0,0 +1,14 @@
+package com.github.terrytsai.escpos.enums;
+
+public enum MacroMode {
+
+    CONTINUOUS(0),
+    BUTTON(1);
+
+    public final int code;
+
+    MacroMode(int code) {
+        this.code = code;
+    }
+
+}
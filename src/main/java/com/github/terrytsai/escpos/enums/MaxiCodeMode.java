@@ -0,0 +1,17 @@
+package com.github.terrytsai.escpos.enums;
+
+public enum MaxiCodeMode {
+
+    MODE_2(50),
+    MODE_3(51),
+    MODE_4(52),
+    MODE_5(53),
+    MODE_6(54);
+
+    public final int code;
+
+    MaxiCodeMode(int code) {
+        this.code = code;
+    }
+
+}
@@ -0,0 +1,14 @@
+package com.github.terrytsai.escpos.enums;
+
+public enum Pdf417Option {
+
+    STANDARD(0),
+    TRUNCATED(1);
+
+    public final int code;
+
+    Pdf417Option(int code) {
+        this.code = code;
+    }
+
+}
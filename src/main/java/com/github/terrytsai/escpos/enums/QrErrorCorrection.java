@@ -0,0 +1,16 @@
+package com.github.terrytsai.escpos.enums;
+
+public enum QrErrorCorrection {
+
+    L(48),
+    M(49),
+    Q(50),
+    H(51);
+
+    public final int code;
+
+    QrErrorCorrection(int code) {
+        this.code = code;
+    }
+
+}
@@ -0,0 +1,15 @@
+package com.github.terrytsai.escpos.enums;
+
+public enum QrModel {
+
+    MODEL_1(49),
+    MODEL_2(50),
+    MICRO(51);
+
+    public final int code;
+
+    QrModel(int code) {
+        this.code = code;
+    }
+
+}
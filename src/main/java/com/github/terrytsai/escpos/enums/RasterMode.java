@@ -0,0 +1,20 @@
+package com.github.terrytsai.escpos.enums;
+
+public enum RasterMode {
+
+    NORMAL(0),
+    DOUBLE_WIDTH(1),
+    DOUBLE_HEIGHT(2),
+    QUADRUPLE(3),
+    NORMAL_ALT(48),
+    DOUBLE_WIDTH_ALT(49),
+    DOUBLE_HEIGHT_ALT(50),
+    QUADRUPLE_ALT(51);
+
+    public final int code;
+
+    RasterMode(int code) {
+        this.code = code;
+    }
+
+}
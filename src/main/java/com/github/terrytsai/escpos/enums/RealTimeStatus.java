@@ -0,0 +1,16 @@
+package com.github.terrytsai.escpos.enums;
+
+public enum RealTimeStatus {
+
+    PRINTER(1),
+    OFFLINE_CAUSE(2),
+    ERROR_CAUSE(3),
+    PAPER_SENSOR(4);
+
+    public final int code;
+
+    RealTimeStatus(int code) {
+        this.code = code;
+    }
+
+}
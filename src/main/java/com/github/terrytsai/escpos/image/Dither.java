@@ -0,0 +1,18 @@
+package com.github.terrytsai.escpos.image;
+
+/**
+ * Method used to reduce grayscale pixels to black and white dots.
+ */
+public enum Dither {
+
+    /**
+     * Dots are black where luminance is below the threshold.
+     */
+    THRESHOLD,
+
+    /**
+     * Floyd-Steinberg error diffusion, suited to photos and gradients.
+     */
+    FLOYD_STEINBERG
+
+}
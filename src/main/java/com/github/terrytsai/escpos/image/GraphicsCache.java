@@ -0,0 +1,195 @@
+package com.github.terrytsai.escpos.image;
+
+import com.github.terrytsai.escpos.EscPosWriter;
+
+import java.util.ArrayDeque;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Host-side record of the raster images defined in one printer's graphics memory.
+ * <p>
+ * {@link #print(EscPosWriter, RasterImage)} sends the image data only the first time an image is printed,
+ * afterwards only the 11 byte print-by-key-code command is sent. When all key codes are in use, the least
+ * recently printed image is deleted from the printer to make room.
+ * <p>
+ * The record must match the printer. Call {@link #invalidate()} when the printer is swapped or reset,
+ * and {@link #bind(EscPosWriter)} writers for download memory so ESC @ invalidates the record.
+ * <p>
+ * [Notes]
+ * - An image is recorded as defined once its definition is written to the writer. If the write throws, the image is forgotten and defined again on its next print.
+ * - The definition and the print are written under one lock, so writers shared between threads see them in order. When each print goes into its own {@code PrintJob}, jobs must reach the printer in the order they were recorded.
+ * - Call {@link #invalidate()} when a job carrying a definition does not complete, for example when it fails, is rejected, dropped or cancelled. Otherwise later prints refer to graphics the printer never stored.
+ * - Images are keyed by their content. The data of an image must not change once it was printed through the cache.
+ */
+public final class GraphicsCache {
+
+    private static final int FIRST_KEY = 32;
+    private static final int KEYS = 95;
+
+    /**
+     * Largest number of images that can be held, one per (kc1, kc2) key code pair.
+     */
+    public static final int MAX_CAPACITY = KEYS * KEYS;
+
+    private final GraphicsMemory memory;
+    private final int capacity;
+    private final LinkedHashMap<RasterImage, Integer> keys = new LinkedHashMap<>(16, 0.75f, true);
+    // Keys released by a failed definition, reused before new keys
+    private final ArrayDeque<Integer> freeKeys = new ArrayDeque<>();
+    // Not a monitor, the writes under it may block on the OutputStream, see PrinterThreads
+    private final ReentrantLock lock = new ReentrantLock();
+    private int nextKey;
+
+    /**
+     * Constructor
+     *
+     * @param memory   printer memory the images are defined in
+     * @param capacity number of images held before the least recently printed is deleted (1-9025)
+     */
+    public GraphicsCache(GraphicsMemory memory, int capacity) {
+        if (memory == null || capacity < 1 || capacity > MAX_CAPACITY) {
+            throw new IllegalArgumentException("memory must not be null and capacity must be 1-" + MAX_CAPACITY);
+        }
+        this.memory = memory;
+        this.capacity = capacity;
+    }
+
+    public GraphicsMemory getMemory() {
+        return memory;
+    }
+
+    /**
+     * Prints an image at normal scale, defining it in the printer's graphics memory first if needed.
+     *
+     * @param writer writer for the printer this cache belongs to
+     * @param image  raster image
+     * @return {@link EscPosWriter}
+     */
+    public EscPosWriter print(EscPosWriter writer, RasterImage image) {
+        return print(writer, image, 1, 1);
+    }
+
+    /**
+     * Prints an image, defining it in the printer's graphics memory first if needed.
+     *
+     * @param writer writer for the printer this cache belongs to
+     * @param image  raster image
+     * @param scaleX horizontal scale (1-2)
+     * @param scaleY vertical scale (1-2)
+     * @return {@link EscPosWriter}
+     */
+    public EscPosWriter print(EscPosWriter writer, RasterImage image, int scaleX, int scaleY) {
+        lock.lock();
+        try {
+            Integer existing = keys.get(image);
+            if (existing != null) {
+                return printDefined(writer, existing, scaleX, scaleY);
+            }
+
+            int key;
+            boolean evicted = false;
+            if (keys.size() < capacity) {
+                key = freeKeys.isEmpty() ? nextKey++ : freeKeys.pop();
+            } else {
+                Iterator<Map.Entry<RasterImage, Integer>> eldest = keys.entrySet().iterator();
+                key = eldest.next().getValue();
+                eldest.remove();
+                evicted = true;
+            }
+            int kc1 = FIRST_KEY + key / KEYS;
+            int kc2 = FIRST_KEY + key % KEYS;
+            try {
+                if (memory == GraphicsMemory.NV) {
+                    if (evicted) {
+                        writer.deleteNvGraphics(kc1, kc2);
+                    }
+                    writer.defineNvGraphics(kc1, kc2, image);
+                } else {
+                    if (evicted) {
+                        writer.deleteDownloadGraphics(kc1, kc2);
+                    }
+                    writer.defineDownloadGraphics(kc1, kc2, image);
+                }
+            } catch (RuntimeException e) {
+                // The printer may hold part of the definition, the key is defined again before it is printed
+                freeKeys.push(key);
+                throw e;
+            }
+            keys.put(image, key);
+            return printDefined(writer, key, scaleX, scaleY);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Whether an image is recorded as defined in the printer.
+     *
+     * @param image raster image
+     * @return true if printing the image sends only its key code
+     */
+    public boolean contains(RasterImage image) {
+        lock.lock();
+        try {
+            return keys.containsKey(image);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Number of images recorded as defined in the printer.
+     *
+     * @return size
+     */
+    public int size() {
+        lock.lock();
+        try {
+            return keys.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Forgets every image, so each is defined again on its next print.
+     * Use when the printer is swapped, reset or power cycled.
+     */
+    public void invalidate() {
+        lock.lock();
+        try {
+            keys.clear();
+            freeKeys.clear();
+            nextKey = 0;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private EscPosWriter printDefined(EscPosWriter writer, int key, int scaleX, int scaleY) {
+        int kc1 = FIRST_KEY + key / KEYS;
+        int kc2 = FIRST_KEY + key % KEYS;
+        if (memory == GraphicsMemory.NV) {
+            return writer.printNvGraphics(kc1, kc2, scaleX, scaleY);
+        }
+        return writer.printDownloadGraphics(kc1, kc2, scaleX, scaleY);
+    }
+
+    /**
+     * Invalidates this cache whenever the writer initializes the printer, when the cache uses download memory.
+     * NV graphics are not cleared by ESC @, so NV caches are left as they are.
+     *
+     * @param writer writer for the printer this cache belongs to
+     * @return the writer
+     */
+    public EscPosWriter bind(EscPosWriter writer) {
+        if (memory == GraphicsMemory.DOWNLOAD) {
+            writer.addInitializeListener(this::invalidate);
+        }
+        return writer;
+    }
+
+}
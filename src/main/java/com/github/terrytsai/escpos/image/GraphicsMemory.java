@@ -0,0 +1,18 @@
+package com.github.terrytsai.escpos.image;
+
+/**
+ * Printer memory that graphics can be defined in and printed from by key code.
+ */
+public enum GraphicsMemory {
+
+    /**
+     * Non-volatile memory, kept through ESC @, reset and power off. Writes wear the memory, avoid frequent redefinition.
+     */
+    NV,
+
+    /**
+     * Volatile memory, cleared when the printer is reset or powered off.
+     */
+    DOWNLOAD
+
+}
@@ -0,0 +1,62 @@
+package com.github.terrytsai.escpos.image;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Keeps one {@link GraphicsCache} per printer, keyed by an application-defined printer id
+ * such as a port descriptor or host name.
+ */
+public final class GraphicsRegistry {
+
+    private final ConcurrentMap<String, GraphicsCache> caches = new ConcurrentHashMap<>();
+    private final GraphicsMemory memory;
+    private final int capacity;
+
+    /**
+     * Constructor
+     *
+     * @param memory   printer memory the images are defined in
+     * @param capacity number of images held per printer (1-9025)
+     */
+    public GraphicsRegistry(GraphicsMemory memory, int capacity) {
+        if (memory == null || capacity < 1 || capacity > GraphicsCache.MAX_CAPACITY) {
+            throw new IllegalArgumentException("memory must not be null and capacity must be 1-"
+                    + GraphicsCache.MAX_CAPACITY);
+        }
+        this.memory = memory;
+        this.capacity = capacity;
+    }
+
+    /**
+     * Cache for a printer, created on first use.
+     *
+     * @param printerId printer id
+     * @return {@link GraphicsCache}
+     */
+    public GraphicsCache forPrinter(String printerId) {
+        return caches.computeIfAbsent(printerId, id -> new GraphicsCache(memory, capacity));
+    }
+
+    /**
+     * Forgets the images recorded for a printer, for example after it was swapped for another unit.
+     *
+     * @param printerId printer id
+     */
+    public void invalidate(String printerId) {
+        GraphicsCache cache = caches.get(printerId);
+        if (cache != null) {
+            cache.invalidate();
+        }
+    }
+
+    /**
+     * Forgets the images recorded for every printer.
+     */
+    public void invalidateAll() {
+        for (GraphicsCache cache : caches.values()) {
+            cache.invalidate();
+        }
+    }
+
+}
@@ -0,0 +1,296 @@
+package com.github.terrytsai.escpos.image;
+
+import java.awt.image.BufferedImage;
+import java.awt.image.ComponentSampleModel;
+import java.awt.image.DataBufferByte;
+import java.awt.image.DataBufferInt;
+import java.awt.image.Raster;
+import java.awt.image.SinglePixelPackedSampleModel;
+import java.util.Arrays;
+
+/**
+ * Monochrome raster image packed 8 dots per byte, most significant bit first, 1 for a printed dot.
+ * Rows are padded to a whole number of bytes, matching the data layout of GS v 0 and GS ( L.
+ * <p>
+ * Conversion reads pixels row by row into primitive buffers, it never boxes pixels or copies the whole source.
+ * Transparent pixels are composited onto white paper.
+ */
+public final class RasterImage {
+
+    /**
+     * Default luminance threshold (0-255) below which a dot is printed.
+     */
+    public static final int DEFAULT_THRESHOLD = 128;
+
+    private final int width;
+    private final int height;
+    private final int bytesPerRow;
+    private final byte[] data;
+    private int hash;
+
+    private RasterImage(int width, int height, byte[] data) {
+        this.width = width;
+        this.height = height;
+        this.bytesPerRow = (width + 7) >> 3;
+        this.data = data;
+    }
+
+    /**
+     * Converts an image to a raster image.
+     *
+     * @param image  source image
+     * @param dither dithering method
+     * @return {@link RasterImage}
+     */
+    public static RasterImage of(BufferedImage image, Dither dither) {
+        return of(image, dither, DEFAULT_THRESHOLD);
+    }
+
+    /**
+     * Converts an image to a raster image.
+     *
+     * @param image     source image
+     * @param dither    dithering method
+     * @param threshold luminance (0-255) below which a dot is printed
+     * @return {@link RasterImage}
+     */
+    public static RasterImage of(BufferedImage image, Dither dither, int threshold) {
+        return rasterize(image.getWidth(), image.getHeight(), luminance(image), dither, threshold);
+    }
+
+    /**
+     * Converts ARGB pixels, as returned by {@link BufferedImage#getRGB(int, int)}, to a raster image.
+     *
+     * @param pixels ARGB pixels, row by row
+     * @param width  width in pixels
+     * @param height height in pixels
+     * @param dither dithering method
+     * @return {@link RasterImage}
+     */
+    public static RasterImage ofArgb(int[] pixels, int width, int height, Dither dither) {
+        return ofArgb(pixels, width, height, dither, DEFAULT_THRESHOLD);
+    }
+
+    /**
+     * Converts ARGB pixels, as returned by {@link BufferedImage#getRGB(int, int)}, to a raster image.
+     *
+     * @param pixels    ARGB pixels, row by row
+     * @param width     width in pixels
+     * @param height    height in pixels
+     * @param dither    dithering method
+     * @param threshold luminance (0-255) below which a dot is printed
+     * @return {@link RasterImage}
+     */
+    public static RasterImage ofArgb(int[] pixels, int width, int height, Dither dither, int threshold) {
+        checkSize(pixels.length, width, height);
+        return rasterize(width, height, (y, row) -> argbRow(pixels, y * width, width, true, row), dither, threshold);
+    }
+
+    /**
+     * Converts 8-bit grayscale pixels (0 black, 255 white) to a raster image.
+     *
+     * @param pixels gray pixels, row by row
+     * @param width  width in pixels
+     * @param height height in pixels
+     * @param dither dithering method
+     * @return {@link RasterImage}
+     */
+    public static RasterImage ofGray(byte[] pixels, int width, int height, Dither dither) {
+        return ofGray(pixels, width, height, dither, DEFAULT_THRESHOLD);
+    }
+
+    /**
+     * Converts 8-bit grayscale pixels (0 black, 255 white) to a raster image.
+     *
+     * @param pixels    gray pixels, row by row
+     * @param width     width in pixels
+     * @param height    height in pixels
+     * @param dither    dithering method
+     * @param threshold luminance (0-255) below which a dot is printed
+     * @return {@link RasterImage}
+     */
+    public static RasterImage ofGray(byte[] pixels, int width, int height, Dither dither, int threshold) {
+        checkSize(pixels.length, width, height);
+        return rasterize(width, height, (y, row) -> grayRow(pixels, y * width, width, row), dither, threshold);
+    }
+
+    /**
+     * Wraps data that is already packed in raster format. The array is not copied, it must not be modified
+     * afterwards: the hash code is cached, and caches such as {@link GraphicsCache} key images by their content.
+     *
+     * @param data   packed rows, (width + 7) / 8 bytes each
+     * @param width  width in dots
+     * @param height height in dots
+     * @return {@link RasterImage}
+     */
+    public static RasterImage wrap(byte[] data, int width, int height) {
+        checkSize(data.length, (width + 7) >> 3, height);
+        return new RasterImage(width, height, data);
+    }
+
+    public int getWidth() {
+        return width;
+    }
+
+    public int getHeight() {
+        return height;
+    }
+
+    public int getBytesPerRow() {
+        return bytesPerRow;
+    }
+
+    /**
+     * Packed raster data. This is the backing array and must not be modified, the hash code is cached.
+     *
+     * @return raster data
+     */
+    public byte[] getData() {
+        return data;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof RasterImage)) {
+            return false;
+        }
+        RasterImage other = (RasterImage) o;
+        return width == other.width && height == other.height && hashCode() == other.hashCode()
+                && Arrays.equals(data, other.data);
+    }
+
+    @Override
+    public int hashCode() {
+        int h = hash;
+        if (h == 0) {
+            h = 31 * (31 * width + height) + Arrays.hashCode(data);
+            hash = h;
+        }
+        return h;
+    }
+
+    ///////////////////////////////////////////////
+    //
+    // Conversion
+    //
+    ///////////////////////////////////////////////
+
+    /**
+     * Fills a row buffer with luminance values (0-255).
+     */
+    private interface Luminance {
+
+        void row(int y, int[] row);
+
+    }
+
+    private static RasterImage rasterize(int width, int height, Luminance luminance, Dither dither, int threshold) {
+        int bytesPerRow = (width + 7) >> 3;
+        byte[] data = new byte[bytesPerRow * height];
+        int[] row = new int[width];
+
+        if (dither == Dither.THRESHOLD) {
+            for (int y = 0, offset = 0; y < height; y++, offset += bytesPerRow) {
+                luminance.row(y, row);
+                int bits = 0;
+                for (int x = 0; x < width; x++) {
+                    // Sign bit of (luminance - threshold) is the dot
+                    bits = (bits << 1) | ((row[x] - threshold) >>> 31);
+                    if ((x & 7) == 7) {
+                        data[offset + (x >> 3)] = (byte) bits;
+                    }
+                }
+                pad(data, offset, width, bits);
+            }
+        } else {
+            // Errors are kept x16 and offset by one so the neighbours of the edge pixels need no bounds checks
+            int[] error = new int[width + 2];
+            int[] next = new int[width + 2];
+            for (int y = 0, offset = 0; y < height; y++, offset += bytesPerRow) {
+                luminance.row(y, row);
+                int bits = 0;
+                for (int x = 0; x < width; x++) {
+                    int value = row[x] + (error[x + 1] >> 4);
+                    int dot = (value - threshold) >>> 31;
+                    int e = value - 255 + dot * 255;
+                    bits = (bits << 1) | dot;
+                    if ((x & 7) == 7) {
+                        data[offset + (x >> 3)] = (byte) bits;
+                    }
+                    error[x + 2] += e * 7;
+                    next[x] += e * 3;
+                    next[x + 1] += e * 5;
+                    next[x + 2] += e;
+                }
+                pad(data, offset, width, bits);
+                int[] swap = error;
+                error = next;
+                next = swap;
+                Arrays.fill(next, 0);
+            }
+        }
+        return new RasterImage(width, height, data);
+    }
+
+    private static void pad(byte[] data, int offset, int width, int bits) {
+        int remainder = width & 7;
+        if (remainder != 0) {
+            data[offset + (width >> 3)] = (byte) (bits << (8 - remainder));
+        }
+    }
+
+    private static Luminance luminance(BufferedImage image) {
+        Raster raster = image.getRaster();
+        int width = image.getWidth();
+        boolean untranslated = raster.getSampleModelTranslateX() == 0 && raster.getSampleModelTranslateY() == 0;
+
+        if (untranslated && (image.getType() == BufferedImage.TYPE_INT_ARGB
+                || image.getType() == BufferedImage.TYPE_INT_RGB)) {
+            int[] pixels = ((DataBufferInt) raster.getDataBuffer()).getData();
+            int stride = ((SinglePixelPackedSampleModel) raster.getSampleModel()).getScanlineStride();
+            int offset = raster.getDataBuffer().getOffset();
+            boolean alpha = image.getType() == BufferedImage.TYPE_INT_ARGB;
+            return (y, row) -> argbRow(pixels, offset + y * stride, width, alpha, row);
+        }
+
+        if (untranslated && image.getType() == BufferedImage.TYPE_BYTE_GRAY) {
+            byte[] pixels = ((DataBufferByte) raster.getDataBuffer()).getData();
+            int stride = ((ComponentSampleModel) raster.getSampleModel()).getScanlineStride();
+            int offset = raster.getDataBuffer().getOffset();
+            return (y, row) -> grayRow(pixels, offset + y * stride, width, row);
+        }
+
+        int[] argb = new int[width];
+        return (y, row) -> {
+            image.getRGB(0, y, width, 1, argb, 0, width);
+            argbRow(argb, 0, width, true, row);
+        };
+    }
+
+    private static void argbRow(int[] pixels, int offset, int width, boolean alpha, int[] row) {
+        for (int x = 0; x < width; x++) {
+            int argb = pixels[offset + x];
+            int dark = 255 - ((((argb >> 16) & 0xFF) * 77 + ((argb >> 8) & 0xFF) * 150 + (argb & 0xFF) * 29) >> 8);
+            if (alpha) {
+                dark = (dark * (argb >>> 24) + 255) >> 8;
+            }
+            row[x] = 255 - dark;
+        }
+    }
+
+    private static void grayRow(byte[] pixels, int offset, int width, int[] row) {
+        for (int x = 0; x < width; x++) {
+            row[x] = pixels[offset + x] & 0xFF;
+        }
+    }
+
+    private static void checkSize(int length, int width, int height) {
+        if (width < 0 || height < 0 || (long) width * height > length) {
+            throw new IllegalArgumentException("Expected " + width + " x " + height + " values, but got " + length);
+        }
+    }
+
+}
@@ -0,0 +1,83 @@
+package com.github.terrytsai.escpos.macro;
+
+import com.github.terrytsai.escpos.EscPosWriter;
+import com.github.terrytsai.escpos.FlushPolicy;
+
+import java.io.ByteArrayOutputStream;
+import java.util.Arrays;
+import java.util.function.Consumer;
+
+/**
+ * Block of commands recorded once, to be defined on a printer with GS : and replayed with GS ^.
+ */
+public final class Macro {
+
+    /**
+     * Largest macro the printer stores, in bytes.
+     */
+    public static final int MAX_SIZE = 2048;
+
+    private final byte[] data;
+    private final int hash;
+
+    private Macro(byte[] data) {
+        this.data = data;
+        this.hash = Arrays.hashCode(data);
+    }
+
+    /**
+     * Records the commands a macro consists of.
+     *
+     * @param commands commands to record
+     * @return {@link Macro}
+     * @throws IllegalArgumentException if the commands exceed {@value #MAX_SIZE} bytes
+     */
+    public static Macro record(Consumer<? super EscPosWriter> commands) {
+        ByteArrayOutputStream recording = new ByteArrayOutputStream();
+        EscPosWriter writer = new EscPosWriter(recording, FlushPolicy.BUFFER_FULL);
+        commands.accept(writer);
+        writer.flush();
+        return of(recording.toByteArray());
+    }
+
+    /**
+     * Creates a macro from encoded commands. The array is not copied.
+     *
+     * @param data encoded commands
+     * @return {@link Macro}
+     * @throws IllegalArgumentException if data exceeds {@value #MAX_SIZE} bytes
+     */
+    public static Macro of(byte[] data) {
+        if (data.length > MAX_SIZE) {
+            throw new IllegalArgumentException("Macro exceeds " + MAX_SIZE + " bytes");
+        }
+        return new Macro(data);
+    }
+
+    /**
+     * Writes the macro definition (GS : data GS :).
+     *
+     * @param writer writer
+     * @return {@link EscPosWriter}
+     */
+    public EscPosWriter define(EscPosWriter writer) {
+        return writer.startMacroDefinition()
+                .bytes(data)
+                .endMacroDefinition();
+    }
+
+    public int size() {
+        return data.length;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        return this == o || (o instanceof Macro && hash == ((Macro) o).hash && Arrays.equals(data, ((Macro) o).data));
+    }
+
+    @Override
+    public int hashCode() {
+        return hash;
+    }
+
+}
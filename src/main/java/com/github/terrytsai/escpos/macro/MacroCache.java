@@ -0,0 +1,88 @@
+package com.github.terrytsai.escpos.macro;
+
+import com.github.terrytsai.escpos.EscPosWriter;
+import com.github.terrytsai.escpos.enums.MacroMode;
+
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Host-side record of the macro currently defined on one printer.
+ * <p>
+ * {@link #execute(EscPosWriter, Macro, int, int, MacroMode)} defines the macro only when the printer holds a
+ * different one, otherwise only the 5 byte GS ^ command is sent. Macros survive ESC @ but not a reset or power off,
+ * so call {@link #invalidate()} when the printer is reset, power cycled or swapped.
+ * <p>
+ * [Notes]
+ * - A macro is recorded as defined once its definition is written to the writer. If the write throws, the record is cleared and the macro is defined again on its next execution.
+ * - The definition and the execution are written under one lock, so executions from other threads cannot come between them.
+ * - Call {@link #invalidate()} when a job carrying a definition does not complete (fails, is rejected, dropped or cancelled).
+ */
+public final class MacroCache {
+
+    // Not a monitor, the writes under it may block on the OutputStream, see PrinterThreads
+    private final ReentrantLock lock = new ReentrantLock();
+    private Macro defined;
+
+    /**
+     * Executes a macro once.
+     *
+     * @param writer writer for the printer this cache belongs to
+     * @param macro  macro
+     * @return {@link EscPosWriter}
+     */
+    public EscPosWriter execute(EscPosWriter writer, Macro macro) {
+        return execute(writer, macro, 1, 0, MacroMode.CONTINUOUS);
+    }
+
+    /**
+     * Executes a macro, defining it on the printer first if the printer holds a different one.
+     *
+     * @param writer writer for the printer this cache belongs to
+     * @param macro  macro
+     * @param times  number of executions (0-255)
+     * @param wait   wait time between executions in 100 ms units (0-255)
+     * @param mode   execution mode
+     * @return {@link EscPosWriter}
+     */
+    public EscPosWriter execute(EscPosWriter writer, Macro macro, int times, int wait, MacroMode mode) {
+        lock.lock();
+        try {
+            if (!macro.equals(defined)) {
+                // GS : opens and closes the definition, the printer holds no macro after a partly written one
+                defined = null;
+                macro.define(writer);
+                defined = macro;
+            }
+            return writer.executeMacro(times, wait, mode);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Macro recorded as defined on the printer.
+     *
+     * @return {@link Macro}, or null if unknown
+     */
+    public Macro getDefined() {
+        lock.lock();
+        try {
+            return defined;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Forgets the defined macro, so it is defined again on its next execution.
+     */
+    public void invalidate() {
+        lock.lock();
+        try {
+            defined = null;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+}
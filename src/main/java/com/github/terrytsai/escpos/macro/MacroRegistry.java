@@ -0,0 +1,45 @@
+package com.github.terrytsai.escpos.macro;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Keeps one {@link MacroCache} per printer, keyed by an application-defined printer id
+ * such as a port descriptor or host name.
+ */
+public final class MacroRegistry {
+
+    private final ConcurrentMap<String, MacroCache> caches = new ConcurrentHashMap<>();
+
+    /**
+     * Cache for a printer, created on first use.
+     *
+     * @param printerId printer id
+     * @return {@link MacroCache}
+     */
+    public MacroCache forPrinter(String printerId) {
+        return caches.computeIfAbsent(printerId, id -> new MacroCache());
+    }
+
+    /**
+     * Forgets the macro recorded for a printer, for example after it was reset or swapped.
+     *
+     * @param printerId printer id
+     */
+    public void invalidate(String printerId) {
+        MacroCache cache = caches.get(printerId);
+        if (cache != null) {
+            cache.invalidate();
+        }
+    }
+
+    /**
+     * Forgets the macros recorded for every printer.
+     */
+    public void invalidateAll() {
+        for (MacroCache cache : caches.values()) {
+            cache.invalidate();
+        }
+    }
+
+}
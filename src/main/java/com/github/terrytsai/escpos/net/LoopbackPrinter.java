@@ -0,0 +1,232 @@
+package com.github.terrytsai.escpos.net;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Stand-in network printer listening on the loopback interface, for testing and benchmarking without hardware.
+ * <p>
+ * [Notes]
+ * - Accepts any number of connections and counts the bytes received. Capturing keeps a copy of them.
+ * - Answers DLE EOT n with the status byte 12h, an online printer with no errors.
+ * - Listens on an ephemeral port, see {@link #getAddress()}.
+ */
+public final class LoopbackPrinter implements AutoCloseable {
+
+    private static final int DLE = 16;
+    private static final int EOT = 4;
+    private static final byte ONLINE = 0x12;
+
+    private final boolean capture;
+    private final ServerSocketChannel server;
+    private final Selector selector;
+    private final Thread thread;
+    private final ByteBuffer readBuffer = ByteBuffer.allocateDirect(64 * 1024);
+    private final byte[] copyBuffer;
+    private final ByteArrayOutputStream captured = new ByteArrayOutputStream();
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition progress = lock.newCondition();
+    private long received;
+    private volatile boolean closed;
+
+    /**
+     * Constructor
+     *
+     * @param capture keep a copy of the received bytes
+     * @throws UncheckedIOException if the server cannot be opened
+     */
+    public LoopbackPrinter(boolean capture) {
+        this.capture = capture;
+        this.copyBuffer = capture ? new byte[readBuffer.capacity()] : null;
+        try {
+            server = ServerSocketChannel.open();
+            server.bind(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0));
+            server.configureBlocking(false);
+            selector = Selector.open();
+            server.register(selector, SelectionKey.OP_ACCEPT);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        this.thread = new Thread(this::run, "escpos-loopback-printer");
+        this.thread.setDaemon(true);
+        this.thread.start();
+    }
+
+    /**
+     * Address to connect to.
+     *
+     * @return loopback address and port
+     */
+    public InetSocketAddress getAddress() {
+        try {
+            return (InetSocketAddress) server.getLocalAddress();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Bytes received over all connections.
+     *
+     * @return bytes
+     */
+    public long getReceived() {
+        lock.lock();
+        try {
+            return received;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Copy of the bytes received over all connections, in arrival order. Empty unless capturing.
+     *
+     * @return bytes
+     */
+    public byte[] getData() {
+        lock.lock();
+        try {
+            return captured.toByteArray();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Waits until at least a number of bytes was received.
+     *
+     * @param bytes   bytes to wait for
+     * @param timeout how long to wait
+     * @param unit    unit of timeout
+     * @return true if received, false on timeout
+     * @throws InterruptedException if interrupted while waiting
+     */
+    public boolean awaitReceived(long bytes, long timeout, TimeUnit unit) throws InterruptedException {
+        long nanos = unit.toNanos(timeout);
+        lock.lock();
+        try {
+            while (received < bytes) {
+                if (nanos <= 0) {
+                    return false;
+                }
+                nanos = progress.awaitNanos(nanos);
+            }
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Closes every connection and stops listening.
+     */
+    @Override
+    public void close() {
+        closed = true;
+        selector.wakeup();
+        try {
+            thread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void run() {
+        try {
+            while (!closed) {
+                selector.select();
+                for (SelectionKey key : selector.selectedKeys()) {
+                    if (!key.isValid()) {
+                        continue;
+                    }
+                    if (key.isAcceptable()) {
+                        SocketChannel client = server.accept();
+                        if (client != null) {
+                            client.configureBlocking(false);
+                            client.register(selector, SelectionKey.OP_READ, new int[1]);
+                        }
+                    } else if (key.isReadable()) {
+                        read(key);
+                    }
+                }
+                selector.selectedKeys().clear();
+            }
+        } catch (IOException e) {
+            closed = true;
+        } finally {
+            for (SelectionKey key : selector.keys()) {
+                try {
+                    key.channel().close();
+                } catch (IOException ignored) {
+                    // Closing anyway
+                }
+            }
+            try {
+                selector.close();
+            } catch (IOException ignored) {
+                // Closing anyway
+            }
+        }
+    }
+
+    private void read(SelectionKey key) throws IOException {
+        SocketChannel client = (SocketChannel) key.channel();
+        int n;
+        try {
+            n = client.read(readBuffer);
+        } catch (IOException e) {
+            n = -1;
+        }
+        if (n < 0) {
+            key.cancel();
+            client.close();
+            return;
+        }
+        readBuffer.flip();
+
+        // DLE EOT n may be split across reads, the attachment keeps how much of it was seen
+        int[] state = (int[]) key.attachment();
+        int answers = 0;
+        for (int i = readBuffer.position(); i < readBuffer.limit(); i++) {
+            int b = readBuffer.get(i);
+            if (state[0] == 2) {
+                answers++;
+                state[0] = 0;
+            } else if (state[0] == 1 && b == EOT) {
+                state[0] = 2;
+            } else {
+                state[0] = b == DLE ? 1 : 0;
+            }
+        }
+
+        lock.lock();
+        try {
+            if (capture) {
+                readBuffer.get(copyBuffer, 0, n);
+                captured.write(copyBuffer, 0, n);
+            }
+            received += n;
+            progress.signalAll();
+        } finally {
+            lock.unlock();
+        }
+        readBuffer.clear();
+
+        for (int i = 0; i < answers; i++) {
+            client.write(ByteBuffer.wrap(new byte[]{ONLINE}));
+        }
+    }
+
+}
@@ -0,0 +1,69 @@
+package com.github.terrytsai.escpos.net;
+
+/**
+ * Connection parameters for a network printer.
+ */
+public class NetworkConfig {
+
+    /**
+     * Convenience method for the default configuration. That is -
+     * 5 second connect timeout, 30 second write timeout, Nagle's algorithm disabled.
+     *
+     * @return default configuration
+     */
+    public static NetworkConfig CONFIG_DEFAULT() {
+        return new NetworkConfig(5000, 30000, true);
+    }
+
+    private final int connectTimeout;
+    private final int writeTimeout;
+    private final boolean tcpNoDelay;
+
+    /**
+     * Constructor
+     *
+     * @param connectTimeout milliseconds to establish the connection
+     * @param writeTimeout   milliseconds for a write to be fully sent, counted from its submission
+     * @param tcpNoDelay     disable Nagle's algorithm, so small writes such as real-time commands are sent at once
+     */
+    public NetworkConfig(int connectTimeout, int writeTimeout, boolean tcpNoDelay) {
+        if (connectTimeout <= 0 || writeTimeout <= 0) {
+            throw new IllegalArgumentException(NetworkConfig.class.getSimpleName() +
+                    " does not accept zero or negative timeouts");
+        }
+        this.connectTimeout = connectTimeout;
+        this.writeTimeout = writeTimeout;
+        this.tcpNoDelay = tcpNoDelay;
+    }
+
+    public int getConnectTimeout() {
+        return connectTimeout;
+    }
+
+    public int getWriteTimeout() {
+        return writeTimeout;
+    }
+
+    public boolean isTcpNoDelay() {
+        return tcpNoDelay;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof NetworkConfig)) {
+            return false;
+        }
+        NetworkConfig other = (NetworkConfig) o;
+        return connectTimeout == other.connectTimeout && writeTimeout == other.writeTimeout
+                && tcpNoDelay == other.tcpNoDelay;
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * (31 * connectTimeout + writeTimeout) + (tcpNoDelay ? 1 : 0);
+    }
+
+}
@@ -0,0 +1,337 @@
+package com.github.terrytsai.escpos.net;
+
+import com.github.terrytsai.escpos.status.StatusMonitor;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Connection to a network printer, driven by a {@link NetworkTransport}.
+ * <p>
+ * [Notes]
+ * - Writes are queued and sent in order by the selector thread. Queued segments are sent with gathering writes, several per system call.
+ * - A write that is not fully sent within the write timeout fails, and so does the connection, since the printer may have received part of it.
+ * - Data the printer transmits is passed to an attached {@link StatusMonitor}, or discarded.
+ */
+public final class NetworkPrinter implements AutoCloseable {
+
+    private static final int MAX_GATHER = 64;
+    private static final int READ_BUFFER_SIZE = 256;
+    private static final int STREAM_WINDOW = 64 * 1024;
+
+    private final NetworkTransport transport;
+    private final InetSocketAddress address;
+    private final NetworkConfig config;
+    private final CompletableFuture<NetworkPrinter> connected = new CompletableFuture<>();
+    private volatile StatusMonitor monitor;
+
+    // Selector thread only
+    private final ArrayDeque<Write> writes = new ArrayDeque<>();
+    private final ByteBuffer[] gather = new ByteBuffer[MAX_GATHER];
+    private ByteBuffer readBuffer;
+    private SocketChannel channel;
+    private SelectionKey key;
+    private long connectDeadline;
+    private IOException failure;
+
+    NetworkPrinter(NetworkTransport transport, InetSocketAddress address, NetworkConfig config) {
+        this.transport = transport;
+        this.address = address;
+        this.config = config;
+    }
+
+    public InetSocketAddress getAddress() {
+        return address;
+    }
+
+    /**
+     * Queues data for sending.
+     *
+     * @param data data, sent from its position to its limit
+     * @return future completed once the data is handed to the TCP stack
+     */
+    public CompletableFuture<Void> write(ByteBuffer data) {
+        return write(new ByteBuffer[]{data});
+    }
+
+    /**
+     * Queues segments for sending in one gathering write. The buffers must not be modified until the future completes.
+     * <p>
+     * The future completes exceptionally with the IOException that failed the connection, or a timeout.
+     *
+     * @param segments segments, each sent from its position to its limit
+     * @return future completed once every segment is handed to the TCP stack
+     */
+    public CompletableFuture<Void> write(ByteBuffer[] segments) {
+        Write write = new Write(segments.clone(),
+                System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(config.getWriteTimeout()));
+        try {
+            transport.execute(() -> enqueue(write));
+        } catch (IllegalStateException e) {
+            write.future.completeExceptionally(new IOException(e.getMessage()));
+        }
+        return write.future;
+    }
+
+    /**
+     * Blocking OutputStream view of this connection, for an {@code EscPosWriter} or {@code PrinterChannel}.
+     * <p>
+     * Writes are copied and queued without waiting, flush waits until everything written was sent.
+     * A write also waits once 64 KB are unsent. A failed send is reported by the next write or flush.
+     *
+     * @return OutputStream
+     */
+    public OutputStream getOutputStream() {
+        return new PrinterOutputStream();
+    }
+
+    /**
+     * Passes the data the printer transmits to a status monitor.
+     *
+     * @param monitor status monitor
+     * @return {@link NetworkPrinter}
+     */
+    public NetworkPrinter attach(StatusMonitor monitor) {
+        this.monitor = monitor;
+        return this;
+    }
+
+    /**
+     * Closes the connection. Queued writes fail.
+     */
+    @Override
+    public void close() {
+        try {
+            transport.execute(() -> fail(new IOException("Connection closed")));
+        } catch (IllegalStateException ignored) {
+            // The transport closed every connection already
+        }
+    }
+
+    CompletableFuture<NetworkPrinter> connected() {
+        return connected;
+    }
+
+    void connect(Selector selector) {
+        try {
+            channel = SocketChannel.open();
+            channel.configureBlocking(false);
+            channel.setOption(StandardSocketOptions.TCP_NODELAY, config.isTcpNoDelay());
+            channel.setOption(StandardSocketOptions.SO_KEEPALIVE, true);
+            connectDeadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(config.getConnectTimeout());
+            if (channel.connect(address)) {
+                key = channel.register(selector, SelectionKey.OP_READ, this);
+                established();
+            } else {
+                key = channel.register(selector, SelectionKey.OP_CONNECT, this);
+            }
+        } catch (IOException e) {
+            fail(e);
+        }
+    }
+
+    /**
+     * Earliest pending deadline, or the given default.
+     */
+    long deadline(long otherwise) {
+        if (failure != null) {
+            return otherwise;
+        }
+        if (!connected.isDone()) {
+            return connectDeadline - otherwise < 0 ? connectDeadline : otherwise;
+        }
+        Write head = writes.peek();
+        return head != null && head.deadline - otherwise < 0 ? head.deadline : otherwise;
+    }
+
+    void timeout() {
+        fail(new IOException((connected.isDone() ? "Write to " : "Connect to ") + address + " timed out"));
+    }
+
+    void ready(SelectionKey key) {
+        try {
+            if (!key.isValid()) {
+                return;
+            }
+            if (key.isConnectable() && channel.finishConnect()) {
+                key.interestOps(SelectionKey.OP_READ);
+                established();
+            }
+            if (key.isValid() && key.isReadable()) {
+                read();
+            }
+            if (key.isValid() && key.isWritable()) {
+                send();
+            }
+        } catch (IOException e) {
+            fail(e);
+        }
+    }
+
+    void fail(IOException e) {
+        if (failure != null) {
+            return;
+        }
+        failure = e;
+        if (key != null) {
+            key.cancel();
+        }
+        if (channel != null) {
+            try {
+                channel.close();
+            } catch (IOException ignored) {
+                // Already failed
+            }
+        }
+        transport.closed(this);
+        connected.completeExceptionally(e);
+        Write write;
+        while ((write = writes.poll()) != null) {
+            write.future.completeExceptionally(e);
+        }
+    }
+
+    private void established() throws IOException {
+        readBuffer = ByteBuffer.allocate(READ_BUFFER_SIZE);
+        connected.complete(this);
+        send();
+    }
+
+    private void enqueue(Write write) {
+        if (failure != null) {
+            write.future.completeExceptionally(failure);
+            return;
+        }
+        writes.add(write);
+        if (connected.isDone()) {
+            try {
+                send();
+            } catch (IOException e) {
+                fail(e);
+            }
+        }
+    }
+
+    /**
+     * Sends queued segments with gathering writes until the queue is empty or the socket buffer is full.
+     */
+    private void send() throws IOException {
+        while (!writes.isEmpty()) {
+            int count = 0;
+            for (Write write : writes) {
+                for (ByteBuffer segment : write.segments) {
+                    if (segment.hasRemaining() && count < MAX_GATHER) {
+                        gather[count++] = segment;
+                    }
+                }
+                if (count == MAX_GATHER) {
+                    break;
+                }
+            }
+            long sent = count == 0 ? 0 : channel.write(gather, 0, count);
+            Arrays.fill(gather, 0, count, null);
+
+            Write head;
+            while ((head = writes.peek()) != null && !head.hasRemaining()) {
+                writes.poll();
+                head.future.complete(null);
+            }
+            if (sent == 0 && !writes.isEmpty()) {
+                key.interestOps(key.interestOps() | SelectionKey.OP_WRITE);
+                return;
+            }
+        }
+        key.interestOps(key.interestOps() & ~SelectionKey.OP_WRITE);
+    }
+
+    private void read() throws IOException {
+        int n = channel.read(readBuffer);
+        if (n < 0) {
+            fail(new IOException("Connection closed by " + address));
+            return;
+        }
+        StatusMonitor monitor = this.monitor;
+        if (n > 0 && monitor != null) {
+            monitor.feed(readBuffer.array(), 0, readBuffer.position());
+        }
+        readBuffer.clear();
+    }
+
+    private static final class Write {
+
+        private final ByteBuffer[] segments;
+        private final long deadline;
+        private final CompletableFuture<Void> future = new CompletableFuture<>();
+
+        private Write(ByteBuffer[] segments, long deadline) {
+            this.segments = segments;
+            this.deadline = deadline;
+        }
+
+        private boolean hasRemaining() {
+            for (ByteBuffer segment : segments) {
+                if (segment.hasRemaining()) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+    }
+
+    private final class PrinterOutputStream extends OutputStream {
+
+        private CompletableFuture<Void> last = CompletableFuture.completedFuture(null);
+        private int unflushed;
+
+        @Override
+        public void write(int b) throws IOException {
+            write(new byte[]{(byte) b}, 0, 1);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            if (last.isCompletedExceptionally()) {
+                flush();
+            }
+            last = NetworkPrinter.this.write(ByteBuffer.wrap(Arrays.copyOfRange(b, off, off + len)));
+            unflushed += len;
+            if (unflushed >= STREAM_WINDOW) {
+                flush();
+            }
+        }
+
+        @Override
+        public void flush() throws IOException {
+            try {
+                last.get();
+                unflushed = 0;
+            } catch (ExecutionException e) {
+                Throwable cause = e.getCause();
+                throw cause instanceof IOException ? (IOException) cause : new IOException(cause);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException();
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            flush();
+        }
+
+    }
+
+}
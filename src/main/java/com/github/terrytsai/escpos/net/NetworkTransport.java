@@ -0,0 +1,178 @@
+package com.github.terrytsai.escpos.net;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.InetSocketAddress;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Non-blocking TCP transport that drives connections to many network printers from one selector thread.
+ *
+ * <pre>{@code
+ * NetworkTransport transport = new NetworkTransport();
+ * NetworkPrinter printer = transport.connect("10.0.0.21", NetworkConfig.CONFIG_DEFAULT()).get();
+ *
+ * new EscPosWriter(printer.getOutputStream(), FlushPolicy.CUT)
+ *         .text("HELLO WORLD").printAndFeedLines(5).cut(CutA.PARTIAL);
+ * }</pre>
+ */
+public final class NetworkTransport implements AutoCloseable {
+
+    /**
+     * Raw printing port of network printers.
+     */
+    public static final int DEFAULT_PORT = 9100;
+
+    private static final long MAX_SELECT_MILLIS = 1000;
+
+    private final Selector selector;
+    private final Thread thread;
+    private final ConcurrentLinkedQueue<Runnable> tasks = new ConcurrentLinkedQueue<>();
+    private final Set<NetworkPrinter> printers = new HashSet<>();
+    private volatile boolean closed;
+
+    /**
+     * Constructor
+     *
+     * @throws UncheckedIOException if the selector cannot be opened
+     */
+    public NetworkTransport() {
+        try {
+            this.selector = Selector.open();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        this.thread = new Thread(this::run, "escpos-network-transport");
+        this.thread.setDaemon(true);
+        this.thread.start();
+    }
+
+    /**
+     * Connects to a printer on the raw printing port 9100.
+     *
+     * @param host   host name or address
+     * @param config connection parameters
+     * @return future completed with the printer once connected
+     */
+    public CompletableFuture<NetworkPrinter> connect(String host, NetworkConfig config) {
+        return connect(new InetSocketAddress(host, DEFAULT_PORT), config);
+    }
+
+    /**
+     * Connects to a printer.
+     * <p>
+     * The future completes exceptionally with the IOException of a failed connect, or a timeout.
+     *
+     * @param address printer address
+     * @param config  connection parameters
+     * @return future completed with the printer once connected
+     */
+    public CompletableFuture<NetworkPrinter> connect(InetSocketAddress address, NetworkConfig config) {
+        if (address == null || config == null) {
+            throw new IllegalArgumentException(NetworkTransport.class.getSimpleName() + " does not accept null values");
+        }
+        NetworkPrinter printer = new NetworkPrinter(this, address, config);
+        execute(() -> {
+            printers.add(printer);
+            printer.connect(selector);
+        });
+        return printer.connected();
+    }
+
+    /**
+     * Closes every connection and stops the selector thread.
+     */
+    @Override
+    public void close() {
+        closed = true;
+        selector.wakeup();
+        if (Thread.currentThread() != thread) {
+            try {
+                thread.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    /**
+     * Runs a task on the selector thread.
+     *
+     * @throws IllegalStateException if the transport is closed and the task will not run
+     */
+    void execute(Runnable task) {
+        if (closed) {
+            throw new IllegalStateException(NetworkTransport.class.getSimpleName() + " is closed");
+        }
+        tasks.add(task);
+        // The selector thread drains the tasks once more after closing. A task added before it was closed is
+        // drained, one still queued once it is closed may have missed the drain and is taken back.
+        if (closed && tasks.remove(task)) {
+            throw new IllegalStateException(NetworkTransport.class.getSimpleName() + " is closed");
+        }
+        selector.wakeup();
+    }
+
+    void closed(NetworkPrinter printer) {
+        printers.remove(printer);
+    }
+
+    private void run() {
+        List<NetworkPrinter> expired = new ArrayList<>();
+        try {
+            while (!closed) {
+                long now = System.nanoTime();
+                long deadline = now + TimeUnit.MILLISECONDS.toNanos(MAX_SELECT_MILLIS);
+                for (NetworkPrinter printer : printers) {
+                    deadline = Math.min(deadline, printer.deadline(deadline));
+                }
+                selector.select(Math.max(1, TimeUnit.NANOSECONDS.toMillis(deadline - now + 999_999)));
+
+                Runnable task;
+                while ((task = tasks.poll()) != null) {
+                    task.run();
+                }
+
+                for (SelectionKey key : selector.selectedKeys()) {
+                    ((NetworkPrinter) key.attachment()).ready(key);
+                }
+                selector.selectedKeys().clear();
+
+                now = System.nanoTime();
+                for (NetworkPrinter printer : printers) {
+                    if (printer.deadline(Long.MAX_VALUE) - now <= 0) {
+                        expired.add(printer);
+                    }
+                }
+                for (NetworkPrinter printer : expired) {
+                    printer.timeout();
+                }
+                expired.clear();
+            }
+        } catch (IOException | RuntimeException e) {
+            closed = true;
+        } finally {
+            Runnable task;
+            while ((task = tasks.poll()) != null) {
+                task.run();
+            }
+            for (NetworkPrinter printer : new ArrayList<>(printers)) {
+                printer.fail(new IOException(NetworkTransport.class.getSimpleName() + " is closed"));
+            }
+            try {
+                selector.close();
+            } catch (IOException ignored) {
+                // Nothing left to release
+            }
+        }
+    }
+
+}
@@ -0,0 +1,256 @@
+package com.github.terrytsai.escpos.serial;
+
+import com.fazecast.jSerialComm.SerialPort;
+import com.github.terrytsai.escpos.status.PrinterStatus;
+import com.github.terrytsai.escpos.status.StatusListener;
+import com.github.terrytsai.escpos.status.StatusMonitor;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * OutputStream for a serial printer that paces writes to the printer's receive buffer.
+ * <p>
+ * The stream keeps a model of the receive buffer: bytes that left the UART fill it, and the printer empties it
+ * at the configured drain rate. Writes proceed at the full baud rate while the model has room and wait otherwise,
+ * so the printer is never overrun even with {@code FLOWCONTROL_NONE}.
+ * <p>
+ * [Notes]
+ * - Bytes still queued in the driver, for example while held by XON/XOFF, are counted from {@link SerialPort#bytesAwaitingWrite()} and do not fill the model until they leave.
+ * - When CTS or DSR flow control is configured on the port, writes also wait while the printer holds the signal busy.
+ * - With a {@link StatusMonitor}, a stream blocked on the model queries the printer with DLE EOT 1 between writes. The model stops draining while the printer reports offline, by DLE EOT or ASB, and resumes when it is back online.
+ * - Status queries are only inserted between writes, so each write must end on a command boundary, as the writes of {@code PrinterChannel} and of {@code EscPosWriter} with {@code FlushPolicy.EVERY_COMMAND} do.
+ * - Use a drain rate at or below the slowest printing the jobs contain, such as raster images.
+ * - The stream is meant for one writing thread.
+ */
+public final class FlowControlOutputStream extends OutputStream {
+
+    private static final byte[] STATUS_QUERY = {16, 4, 1}; // DLE EOT 1
+    private static final int OFFLINE = 0x08;
+    private static final long MAX_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(10);
+    private static final long QUERY_INTERVAL_NANOS = TimeUnit.MILLISECONDS.toNanos(500);
+
+    private final Port port;
+    private final int receiveBufferSize;
+    private final int slice;
+    private final double drainPerNano;
+    private final boolean query;
+
+    private long written;
+    private long queried;
+    private long departed;
+    private double occupancy;
+    private long updatedAt = System.nanoTime();
+    private long queriedAt = updatedAt - QUERY_INTERVAL_NANOS;
+    private volatile boolean offline;
+
+    /**
+     * Constructor
+     *
+     * @param port              open serial port
+     * @param receiveBufferSize receive buffer of the printer in bytes
+     * @param drainRate         bytes per second the printer consumes from its receive buffer
+     */
+    public FlowControlOutputStream(SerialPort port, int receiveBufferSize, int drainRate) {
+        this(new SerialPortAdapter(port), receiveBufferSize, drainRate, null);
+    }
+
+    /**
+     * Constructor
+     *
+     * @param port              open serial port
+     * @param receiveBufferSize receive buffer of the printer in bytes
+     * @param drainRate         bytes per second the printer consumes from its receive buffer
+     * @param monitor           monitor attached to the port, used to query the printer while writes wait
+     */
+    public FlowControlOutputStream(SerialPort port, int receiveBufferSize, int drainRate, StatusMonitor monitor) {
+        this(new SerialPortAdapter(port), receiveBufferSize, drainRate, monitor);
+    }
+
+    FlowControlOutputStream(Port port, int receiveBufferSize, int drainRate, StatusMonitor monitor) {
+        if (port == null) {
+            throw new IllegalArgumentException("port must not be null");
+        }
+        if (receiveBufferSize < 1 || drainRate < 1) {
+            throw new IllegalArgumentException("receiveBufferSize and drainRate must be positive");
+        }
+        this.port = port;
+        this.receiveBufferSize = receiveBufferSize;
+        this.slice = Math.max(1, receiveBufferSize / 4);
+        this.drainPerNano = drainRate / 1e9;
+        this.query = monitor != null;
+        if (monitor != null) {
+            monitor.addListener(new StatusListener() {
+                @Override
+                public void statusChanged(PrinterStatus previous, PrinterStatus current) {
+                    offline = current.isOffline();
+                }
+
+                @Override
+                public void realTimeStatusReceived(int status) {
+                    offline = (status & OFFLINE) != 0;
+                }
+            });
+        }
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+        write(new byte[]{(byte) b}, 0, 1);
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+        if ((off | len | (off + len) | (b.length - (off + len))) < 0) {
+            throw new IndexOutOfBoundsException("off " + off + ", len " + len + ", length " + b.length);
+        }
+        boolean boundary = true;
+        while (len > 0) {
+            int n = awaitRoom(Math.min(len, slice), boundary);
+            writeFully(b, off, n);
+            off += n;
+            len -= n;
+            boundary = false;
+        }
+    }
+
+    /**
+     * Waits until every byte written has left the driver.
+     */
+    @Override
+    public void flush() throws IOException {
+        int awaiting;
+        while ((awaiting = port.awaitingWrite()) > 0) {
+            LockSupport.parkNanos(MAX_PARK_NANOS);
+            checkInterrupt();
+        }
+        if (awaiting < 0) {
+            throw new IOException("Port is closed");
+        }
+    }
+
+    /**
+     * Estimated bytes in the printer's receive buffer.
+     *
+     * @return bytes
+     */
+    public int getOccupancy() {
+        update();
+        return (int) Math.ceil(occupancy);
+    }
+
+    public boolean isOffline() {
+        return offline;
+    }
+
+    /**
+     * Waits until the model and the flow control signals allow a write, then returns how many bytes to write.
+     */
+    private int awaitRoom(int n, boolean boundary) throws IOException {
+        while (true) {
+            long awaiting = update();
+            double room = receiveBufferSize - occupancy - awaiting;
+            if (room >= 1 && port.clearToSend()) {
+                return (int) Math.min(n, room);
+            }
+            long now = System.nanoTime();
+            if (query && boundary && now - queriedAt >= QUERY_INTERVAL_NANOS) {
+                queriedAt = now;
+                writeFully(STATUS_QUERY, 0, STATUS_QUERY.length);
+                queried += STATUS_QUERY.length;
+            }
+            long wait = offline || room >= 1 ? MAX_PARK_NANOS : (long) ((1 - room) / drainPerNano);
+            LockSupport.parkNanos(Math.max(1, Math.min(wait, MAX_PARK_NANOS)));
+            checkInterrupt();
+        }
+    }
+
+    /**
+     * Moves bytes that left the UART into the model and drains it for the elapsed time.
+     *
+     * @return bytes still queued in the driver
+     */
+    private long update() {
+        long now = System.nanoTime();
+        long awaiting = Math.max(0, Math.min(port.awaitingWrite(), written));
+        // Status queries are handled on receipt and never occupy the receive buffer
+        long left = written - awaiting - queried;
+        if (left > departed) {
+            occupancy += left - departed;
+            departed = left;
+        }
+        if (!offline) {
+            occupancy = Math.max(0, occupancy - (now - updatedAt) * drainPerNano);
+        }
+        updatedAt = now;
+        return awaiting;
+    }
+
+    private void writeFully(byte[] b, int off, int len) throws IOException {
+        while (len > 0) {
+            int n = port.write(b, off, len);
+            if (n < 0) {
+                throw new IOException("Port is closed");
+            }
+            if (n == 0) {
+                LockSupport.parkNanos(MAX_PARK_NANOS);
+                checkInterrupt();
+            }
+            written += n;
+            off += n;
+            len -= n;
+        }
+    }
+
+    private static void checkInterrupt() throws IOException {
+        if (Thread.currentThread().isInterrupted()) {
+            throw new IOException("Interrupted while waiting for the printer");
+        }
+    }
+
+    /**
+     * The parts of a serial port the stream uses.
+     */
+    interface Port {
+
+        int write(byte[] b, int off, int len);
+
+        int awaitingWrite();
+
+        boolean clearToSend();
+
+    }
+
+    private static final class SerialPortAdapter implements Port {
+
+        private final SerialPort port;
+
+        private SerialPortAdapter(SerialPort port) {
+            if (port == null) {
+                throw new IllegalArgumentException("port must not be null");
+            }
+            this.port = port;
+        }
+
+        @Override
+        public int write(byte[] b, int off, int len) {
+            return port.writeBytes(b, len, off);
+        }
+
+        @Override
+        public int awaitingWrite() {
+            return port.bytesAwaitingWrite();
+        }
+
+        @Override
+        public boolean clearToSend() {
+            int flowControl = port.getFlowControlSettings();
+            return ((flowControl & SerialPort.FLOW_CONTROL_CTS_ENABLED) == 0 || port.getCTS())
+                    && ((flowControl & SerialPort.FLOW_CONTROL_DSR_ENABLED) == 0 || port.getDSR());
+        }
+
+    }
+
+}
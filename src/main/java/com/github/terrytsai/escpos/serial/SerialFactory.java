@@ -1,18 +1,31 @@
 package com.github.terrytsai.escpos.serial;
 
 import com.fazecast.jSerialComm.SerialPort;
+import com.github.terrytsai.escpos.serial.config.Baud;
 import com.github.terrytsai.escpos.serial.config.SerialConfig;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Arrays;
+
 public enum SerialFactory {
 
     ; // Static Factory
 
+    private static final int[] DETECT_RATES = {
+            Baud.BAUD_921600.val, Baud.BAUD_460800.val, Baud.BAUD_230400.val, Baud.BAUD_115200.val,
+            Baud.BAUD_57600.val, Baud.BAUD_38400.val, Baud.BAUD_19200.val, Baud.BAUD_9600.val
+    };
+    private static final byte[] STATUS_QUERY = {16, 4, 1}; // DLE EOT 1
+    private static final int PROBES = 3;
+    private static final int PROBE_TIMEOUT = 200;
+
     public static SerialPort configure(SerialPort serialPort, SerialConfig config) {
         serialPort.setFlowControl(
                 config.getFlowControl().val
         );
         serialPort.setComPortParameters(
-                config.getBaud().val,
+                config.getBaudRate(),
                 config.getDataBits().val,
                 config.getStopBits().val,
                 config.getParity().val
@@ -43,4 +56,70 @@ public enum SerialFactory {
         return port("/dev/tty" + tty, config);
     }
 
+    /**
+     * Detects the baud rate of a printer by probing 921600 down to 9600 bps.
+     *
+     * @param portDescriptor port descriptor, the port must not be open
+     * @param config         configuration to probe with, its rate is ignored
+     * @return config at the fastest rate the printer answered, or null if it answered none
+     * @see #detect(String, SerialConfig, int[])
+     */
+    public static SerialConfig detect(String portDescriptor, SerialConfig config) {
+        return detect(portDescriptor, config, DETECT_RATES);
+    }
+
+    /**
+     * Detects the baud rate of a printer.
+     * <p>
+     * [Notes]
+     * - At each candidate rate, from the fastest, the port sends DLE EOT 1 three times and expects three valid status bytes (bit pattern 0xx1xx10) within 200 ms each.
+     * - A printer listening at another rate may print the probes as stray characters, detect once when installing a printer rather than before each job.
+     * - ASB must be disabled, its messages are not valid answers.
+     *
+     * @param portDescriptor port descriptor, the port must not be open
+     * @param config         configuration to probe with, its rate is ignored
+     * @param baudRates      candidate rates in bits-per-second
+     * @return config at the fastest rate the printer answered, or null if it answered none
+     * @throws UncheckedIOException if the port cannot be opened
+     */
+    public static SerialConfig detect(String portDescriptor, SerialConfig config, int[] baudRates) {
+        int[] rates = baudRates.clone();
+        Arrays.sort(rates);
+        SerialPort port = SerialPort.getCommPort(portDescriptor);
+        configure(port, config);
+        if (!port.openPort()) {
+            throw new UncheckedIOException(new IOException("Could not open " + portDescriptor));
+        }
+        try {
+            port.setComPortTimeouts(SerialPort.TIMEOUT_READ_SEMI_BLOCKING, PROBE_TIMEOUT, 0);
+            byte[] answer = new byte[16];
+            for (int i = rates.length - 1; i >= 0; i--) {
+                port.setBaudRate(rates[i]);
+                if (probe(port, answer)) {
+                    return config.withBaudRate(rates[i]);
+                }
+            }
+            return null;
+        } finally {
+            port.closePort();
+        }
+    }
+
+    private static boolean probe(SerialPort port, byte[] answer) {
+        // Discard anything left from the previous rate
+        int available;
+        while ((available = port.bytesAvailable()) > 0) {
+            port.readBytes(answer, Math.min(available, answer.length));
+        }
+        for (int p = 0; p < PROBES; p++) {
+            if (port.writeBytes(STATUS_QUERY, STATUS_QUERY.length) != STATUS_QUERY.length) {
+                return false;
+            }
+            if (port.readBytes(answer, 1) != 1 || (answer[0] & 0x93) != 0x12) {
+                return false;
+            }
+        }
+        return true;
+    }
+
 }
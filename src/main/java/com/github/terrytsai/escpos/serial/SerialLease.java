@@ -0,0 +1,55 @@
+package com.github.terrytsai.escpos.serial;
+
+import com.fazecast.jSerialComm.SerialPort;
+
+import java.io.InputStream;
+import java.io.OutputStream;
+
+/**
+ * Exclusive use of an open, configured port leased from a {@link SerialPool}.
+ * Closing the lease returns the port to the pool, it does not close the port.
+ */
+public final class SerialLease implements AutoCloseable {
+
+    private final SerialPool pool;
+    private final SerialPool.Connection connection;
+    private boolean broken;
+    private boolean closed;
+
+    SerialLease(SerialPool pool, SerialPool.Connection connection) {
+        this.pool = pool;
+        this.connection = connection;
+    }
+
+    public SerialPort getPort() {
+        return connection.port;
+    }
+
+    public InputStream getInputStream() {
+        return connection.port.getInputStream();
+    }
+
+    public OutputStream getOutputStream() {
+        return connection.port.getOutputStream();
+    }
+
+    /**
+     * Marks the port as broken, for example after a failed write, so the pool closes it
+     * and opens it again on the next lease.
+     */
+    public void invalidate() {
+        broken = true;
+    }
+
+    /**
+     * Returns the port to the pool.
+     */
+    @Override
+    public void close() {
+        if (!closed) {
+            closed = true;
+            pool.release(connection, broken);
+        }
+    }
+
+}
@@ -0,0 +1,274 @@
+package com.github.terrytsai.escpos.serial;
+
+import com.fazecast.jSerialComm.SerialPort;
+import com.github.terrytsai.escpos.serial.config.SerialConfig;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Pool of open, configured serial ports keyed by port descriptor.
+ * <p>
+ * A port is opened and configured on its first lease and kept open between leases, so steady-state printing
+ * pays neither the native open nor the configuration cost. A serial port serves one lease at a time.
+ * <p>
+ * [Notes]
+ * - Each lease checks the port is still healthy; a port that was closed or lost, for example by a device reset or USB re-enumeration, is reopened.
+ * - Leasing an idle port with a different {@link SerialConfig} reconfigures it without reopening.
+ * - Ports idle longer than the idle timeout are closed by {@link #evictIdle()}, which also runs on every release. A lease of a port being evicted waits until it is closed, then opens it again.
+ *
+ * <pre>{@code
+ * SerialPool pool = new SerialPool(TimeUnit.MINUTES.toMillis(5));
+ *
+ * try (SerialLease lease = pool.lease("COM3", SerialConfig.CONFIG_9600_8N1())) {
+ *     new EscPosWriter(lease.getOutputStream()).text("Hello").printAndFeedLine();
+ * }
+ * }</pre>
+ */
+public final class SerialPool implements AutoCloseable {
+
+    private final long idleTimeoutNanos;
+    private final Map<String, Connection> connections = new HashMap<>();
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition released = lock.newCondition();
+    private boolean closed;
+
+    /**
+     * Constructor
+     *
+     * @param idleTimeoutMillis how long a port may stay idle before {@link #evictIdle()} closes it
+     */
+    public SerialPool(long idleTimeoutMillis) {
+        if (idleTimeoutMillis < 0) {
+            throw new IllegalArgumentException("idleTimeoutMillis must not be negative");
+        }
+        this.idleTimeoutNanos = TimeUnit.MILLISECONDS.toNanos(idleTimeoutMillis);
+    }
+
+    /**
+     * Leases a port, waiting while it is leased elsewhere.
+     *
+     * @param portDescriptor port descriptor, for example COM3 or /dev/ttyUSB0
+     * @param config         port configuration
+     * @return {@link SerialLease}
+     * @throws UncheckedIOException if the port cannot be opened
+     */
+    public SerialLease lease(String portDescriptor, SerialConfig config) {
+        try {
+            return lease(portDescriptor, config, Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while leasing " + portDescriptor, e);
+        }
+    }
+
+    /**
+     * Leases a port, waiting up to a timeout while it is leased elsewhere.
+     *
+     * @param portDescriptor port descriptor, for example COM3 or /dev/ttyUSB0
+     * @param config         port configuration
+     * @param timeout        how long to wait
+     * @param unit           unit of timeout
+     * @return {@link SerialLease}, or null if the port stayed leased for the whole timeout
+     * @throws UncheckedIOException if the port cannot be opened
+     * @throws InterruptedException if interrupted while waiting
+     */
+    public SerialLease lease(String portDescriptor, SerialConfig config, long timeout, TimeUnit unit)
+            throws InterruptedException {
+        if (portDescriptor == null || config == null) {
+            throw new IllegalArgumentException(SerialPool.class.getSimpleName() + " does not accept null values");
+        }
+        Connection connection;
+        long nanos = unit.toNanos(timeout);
+        lock.lockInterruptibly();
+        try {
+            connection = connections.get(portDescriptor);
+            while (connection != null && (connection.leased || connection.closing)) {
+                if (nanos <= 0) {
+                    return null;
+                }
+                nanos = released.awaitNanos(nanos);
+                connection = connections.get(portDescriptor);
+            }
+            if (closed) {
+                throw new IllegalStateException(SerialPool.class.getSimpleName() + " is closed");
+            }
+            if (connection == null) {
+                connection = new Connection(portDescriptor);
+                connections.put(portDescriptor, connection);
+            }
+            connection.leased = true;
+        } finally {
+            lock.unlock();
+        }
+
+        // Native calls run outside the lock, the connection is reserved for this lease
+        try {
+            connection.prepare(config);
+        } catch (RuntimeException e) {
+            release(connection, true);
+            throw e;
+        }
+        return new SerialLease(this, connection);
+    }
+
+    /**
+     * Closes the ports that are idle longer than the idle timeout.
+     */
+    public void evictIdle() {
+        List<Connection> evicted = new ArrayList<>();
+        long now = System.nanoTime();
+        lock.lock();
+        try {
+            for (Iterator<Connection> it = connections.values().iterator(); it.hasNext(); ) {
+                Connection connection = it.next();
+                if (!connection.leased && !connection.closing && now - connection.releasedAt >= idleTimeoutNanos) {
+                    // Stays in the pool until closed, so a lease cannot open the port while the old handle is open
+                    connection.closing = true;
+                    evicted.add(connection);
+                }
+            }
+        } finally {
+            lock.unlock();
+        }
+        if (evicted.isEmpty()) {
+            return;
+        }
+        try {
+            for (Connection connection : evicted) {
+                connection.close();
+            }
+        } finally {
+            lock.lock();
+            try {
+                for (Connection connection : evicted) {
+                    connections.remove(connection.portDescriptor, connection);
+                }
+                released.signalAll();
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    /**
+     * Number of ports held by the pool, leased or idle.
+     *
+     * @return ports
+     */
+    public int size() {
+        lock.lock();
+        try {
+            return connections.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Closes the idle ports and stops leasing. Leased ports are closed when released.
+     */
+    @Override
+    public void close() {
+        List<Connection> idle = new ArrayList<>();
+        lock.lock();
+        try {
+            closed = true;
+            for (Iterator<Connection> it = connections.values().iterator(); it.hasNext(); ) {
+                Connection connection = it.next();
+                // Ports being evicted are closed and removed by the eviction
+                if (!connection.leased && !connection.closing) {
+                    it.remove();
+                    idle.add(connection);
+                }
+            }
+            released.signalAll();
+        } finally {
+            lock.unlock();
+        }
+        for (Connection connection : idle) {
+            connection.close();
+        }
+    }
+
+    void release(Connection connection, boolean broken) {
+        if (broken) {
+            connection.close();
+        }
+        boolean discard;
+        lock.lock();
+        try {
+            connection.leased = false;
+            connection.releasedAt = System.nanoTime();
+            discard = closed;
+            if (discard) {
+                connections.remove(connection.portDescriptor);
+            }
+            released.signalAll();
+        } finally {
+            lock.unlock();
+        }
+        if (discard) {
+            connection.close();
+        } else {
+            evictIdle();
+        }
+    }
+
+    static final class Connection {
+
+        private final String portDescriptor;
+        SerialPort port;
+        private SerialConfig config;
+        private boolean leased;
+        private boolean closing;
+        private long releasedAt;
+
+        private Connection(String portDescriptor) {
+            this.portDescriptor = portDescriptor;
+        }
+
+        /**
+         * Makes sure the port is open, healthy and configured. Only called by the lease holder.
+         */
+        private void prepare(SerialConfig config) {
+            if (port != null && !isHealthy()) {
+                close();
+            }
+            if (port == null) {
+                SerialPort opened = SerialFactory.port(portDescriptor, config);
+                if (!opened.openPort()) {
+                    throw new UncheckedIOException(new IOException("Could not open " + portDescriptor));
+                }
+                port = opened;
+                this.config = config;
+            } else if (!config.equals(this.config)) {
+                SerialFactory.configure(port, config);
+                this.config = config;
+            }
+        }
+
+        private boolean isHealthy() {
+            // bytesAvailable() reports -1 once the native handle fails
+            return port.isOpen() && port.bytesAvailable() >= 0;
+        }
+
+        private void close() {
+            if (port != null) {
+                port.closePort();
+                port = null;
+                config = null;
+            }
+        }
+
+    }
+
+}
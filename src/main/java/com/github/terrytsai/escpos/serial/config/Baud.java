@@ -12,7 +12,10 @@ public enum Baud {
     BAUD_19200(19200),
     BAUD_38400(38400),
     BAUD_57600(57600),
-    BAUD_115200(115200);
+    BAUD_115200(115200),
+    BAUD_230400(230400),
+    BAUD_460800(460800),
+    BAUD_921600(921600);
 
     public final int val;
 
@@ -20,4 +23,19 @@ public enum Baud {
         this.val = val;
     }
 
+    /**
+     * Standard rate for a number of bits per second.
+     *
+     * @param val bits per second
+     * @return {@link Baud}, or null for a non-standard rate
+     */
+    public static Baud of(int val) {
+        for (Baud baud : values()) {
+            if (baud.val == val) {
+                return baud;
+            }
+        }
+        return null;
+    }
+
 }
@@ -1,5 +1,7 @@
 package com.github.terrytsai.escpos.serial.config;
 
+import java.util.Objects;
+
 /**
  * Type-safe wrapper for SerialPort Parameters
  */
@@ -34,7 +36,7 @@ public class SerialConfig {
         );
     }
 
-    private final Baud baud;
+    private final int baudRate;
     private final DataBits dataBits;
     private final StopBits stopBits;
     private final FlowControl flowControl;
@@ -43,6 +45,21 @@ public class SerialConfig {
     private final int readTimeout;
     private final int writeTimeout;
 
+    /**
+     * Convenience method for 8-N-1 configuration at any rate, including non-standard ones. That is -
+     * 8 data bits, no parity bit, 1 stop bit.
+     *
+     * @param baudRate bits-per-second
+     * @return baudRate/8-N-1 configuration
+     */
+    public static SerialConfig CONFIG_8N1(int baudRate) {
+        return new SerialConfig(
+                baudRate,
+                DataBits.DATABITS_8, Parity.PARITY_NONE, StopBits.STOPBITS_1, FlowControl.FLOWCONTROL_NONE,
+                Timeout.TIMEOUT_NONBLOCKING, 0, 0
+        );
+    }
+
     public SerialConfig(Baud baud,
                         DataBits dataBits,
                         Parity parity,
@@ -51,13 +68,24 @@ public class SerialConfig {
                         Timeout timeout,
                         int readTimeout,
                         int writeTimeout) {
-        if (baud == null || dataBits == null || parity == null || stopBits == null || flowControl == null
+        this(baud == null ? 0 : baud.val, dataBits, parity, stopBits, flowControl, timeout, readTimeout, writeTimeout);
+    }
+
+    public SerialConfig(int baudRate,
+                        DataBits dataBits,
+                        Parity parity,
+                        StopBits stopBits,
+                        FlowControl flowControl,
+                        Timeout timeout,
+                        int readTimeout,
+                        int writeTimeout) {
+        if (baudRate <= 0 || dataBits == null || parity == null || stopBits == null || flowControl == null
                 || timeout == null || readTimeout < 0 || writeTimeout < 0) {
             throw new IllegalArgumentException(SerialConfig.class.getSimpleName() +
                     " does not accept null or negative values");
         }
 
-        this.baud = baud;
+        this.baudRate = baudRate;
         this.dataBits = dataBits;
         this.stopBits = stopBits;
         this.flowControl = flowControl;
@@ -71,10 +99,37 @@ public class SerialConfig {
         this(baud, dataBits, parity, stopBits, flowControl, Timeout.TIMEOUT_NONBLOCKING, 0, 0);
     }
 
+    /**
+     * Standard rate of this configuration.
+     *
+     * @return {@link Baud}
+     * @throws IllegalStateException if the rate is non-standard
+     * @deprecated non-standard rates have no {@link Baud}, use {@link #getBaudRate()}
+     */
+    @Deprecated
     public Baud getBaud() {
+        Baud baud = Baud.of(baudRate);
+        if (baud == null) {
+            throw new IllegalStateException("Non-standard baud rate " + baudRate + " has no "
+                    + Baud.class.getSimpleName() + ", use getBaudRate()");
+        }
         return baud;
     }
 
+    public int getBaudRate() {
+        return baudRate;
+    }
+
+    /**
+     * Copy of this configuration at another rate.
+     *
+     * @param baudRate bits-per-second
+     * @return {@link SerialConfig}
+     */
+    public SerialConfig withBaudRate(int baudRate) {
+        return new SerialConfig(baudRate, dataBits, parity, stopBits, flowControl, timeout, readTimeout, writeTimeout);
+    }
+
     public DataBits getDataBits() {
         return dataBits;
     }
@@ -103,4 +158,23 @@ public class SerialConfig {
         return writeTimeout;
     }
 
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof SerialConfig)) {
+            return false;
+        }
+        SerialConfig other = (SerialConfig) o;
+        return baudRate == other.baudRate && dataBits == other.dataBits && stopBits == other.stopBits
+                && flowControl == other.flowControl && parity == other.parity && timeout == other.timeout
+                && readTimeout == other.readTimeout && writeTimeout == other.writeTimeout;
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(baudRate, dataBits, stopBits, flowControl, parity, timeout, readTimeout, writeTimeout);
+    }
+
 }
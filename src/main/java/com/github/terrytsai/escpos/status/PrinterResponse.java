@@ -0,0 +1,92 @@
+package com.github.terrytsai.escpos.status;
+
+import java.util.Arrays;
+
+/**
+ * Block data transmitted by the printer: a header, an identifier and data, terminated by NUL.
+ * For example the power-off notice (3Bh 30h NUL), the Clear response (37h 25h NUL) and the offline response.
+ */
+public final class PrinterResponse {
+
+    public static final int HEADER_RESPONSE = 0x37;
+    public static final int HEADER_EXTENDED_STATUS = 0x39;
+    public static final int HEADER_NOTICE = 0x3B;
+
+    private final int header;
+    private final byte[] data;
+
+    PrinterResponse(int header, byte[] data) {
+        this.header = header;
+        this.data = data;
+    }
+
+    public int getHeader() {
+        return header;
+    }
+
+    /**
+     * First byte after the header, or -1 if the block is empty.
+     *
+     * @return identifier
+     */
+    public int getIdentifier() {
+        return data.length > 0 ? data[0] & 0xFF : -1;
+    }
+
+    /**
+     * Bytes between the header and NUL, starting with the identifier.
+     *
+     * @return copy of the data
+     */
+    public byte[] getData() {
+        return data.clone();
+    }
+
+    /**
+     * Power-off notice transmitted after DLE DC4 2 (fn = 2).
+     *
+     * @return true if this is a power-off notice
+     */
+    public boolean isPowerOffNotice() {
+        return header == HEADER_NOTICE && getIdentifier() == 0x30;
+    }
+
+    /**
+     * Clear response transmitted after DLE DC4 8 (fn = 8).
+     *
+     * @return true if this is a Clear response
+     */
+    public boolean isClearResponse() {
+        return header == HEADER_RESPONSE && getIdentifier() == 0x25;
+    }
+
+    /**
+     * Offline response, transmitted when the printer goes offline if enabled, or after DLE DC4 7 4.
+     *
+     * @return true if this is an offline response
+     */
+    public boolean isOfflineResponse() {
+        return header == HEADER_RESPONSE && getIdentifier() == 0x23;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        return this == o || (o instanceof PrinterResponse && header == ((PrinterResponse) o).header
+                && Arrays.equals(data, ((PrinterResponse) o).data));
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * header + Arrays.hashCode(data);
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder("PrinterResponse{header=").append(Integer.toHexString(header)).append("h, data=");
+        for (byte b : data) {
+            sb.append(Integer.toHexString(b & 0xFF)).append("h ");
+        }
+        return sb.append("}").toString();
+    }
+
+}
@@ -0,0 +1,111 @@
+package com.github.terrytsai.escpos.status;
+
+/**
+ * Printer status decoded from the 4 byte Automatic Status Back (ASB) message.
+ * <p>
+ * [Notes]
+ * - Bits that are undefined for a model are reported as received, compare statuses with {@link #equals(Object)} to detect changes.
+ * - Meaning of the drawer kick-out connector pin 3 level depends on the drawer, usually high when the drawer is closed.
+ */
+public final class PrinterStatus {
+
+    private final int bits;
+
+    private PrinterStatus(int bits) {
+        this.bits = bits;
+    }
+
+    /**
+     * Decodes an ASB message.
+     *
+     * @param b1 first byte, bit pattern 0xx1xx00
+     * @param b2 second byte
+     * @param b3 third byte
+     * @param b4 fourth byte
+     * @return {@link PrinterStatus}
+     */
+    public static PrinterStatus ofAsb(int b1, int b2, int b3, int b4) {
+        return new PrinterStatus((b1 & 0xFF) | (b2 & 0xFF) << 8 | (b3 & 0xFF) << 16 | (b4 & 0xFF) << 24);
+    }
+
+    public boolean isDrawerKickPinHigh() {
+        return bit(0, 2);
+    }
+
+    public boolean isOffline() {
+        return bit(0, 3);
+    }
+
+    public boolean isCoverOpen() {
+        return bit(0, 5);
+    }
+
+    public boolean isPaperFeedButtonPressed() {
+        return bit(0, 6);
+    }
+
+    public boolean isMechanicalError() {
+        return bit(1, 2);
+    }
+
+    public boolean isAutocutterError() {
+        return bit(1, 3);
+    }
+
+    public boolean isUnrecoverableError() {
+        return bit(1, 5);
+    }
+
+    public boolean isAutoRecoverableError() {
+        return bit(1, 6);
+    }
+
+    public boolean isPaperNearEnd() {
+        return (bits >>> 16 & 0x03) != 0;
+    }
+
+    public boolean isPaperEnd() {
+        return (bits >>> 16 & 0x0C) != 0;
+    }
+
+    /**
+     * Byte n (0-3) of the ASB message.
+     *
+     * @param n byte index
+     * @return byte value
+     */
+    public int getByte(int n) {
+        if (n < 0 || n > 3) {
+            throw new IllegalArgumentException("n must be 0-3");
+        }
+        return bits >>> (n * 8) & 0xFF;
+    }
+
+    private boolean bit(int n, int bit) {
+        return (bits >>> (n * 8 + bit) & 1) != 0;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        return this == o || (o instanceof PrinterStatus && bits == ((PrinterStatus) o).bits);
+    }
+
+    @Override
+    public int hashCode() {
+        return bits;
+    }
+
+    @Override
+    public String toString() {
+        return "PrinterStatus{offline=" + isOffline()
+                + ", coverOpen=" + isCoverOpen()
+                + ", paperNearEnd=" + isPaperNearEnd()
+                + ", paperEnd=" + isPaperEnd()
+                + ", mechanicalError=" + isMechanicalError()
+                + ", autocutterError=" + isAutocutterError()
+                + ", unrecoverableError=" + isUnrecoverableError()
+                + ", autoRecoverableError=" + isAutoRecoverableError()
+                + ", drawerKickPinHigh=" + isDrawerKickPinHigh() + "}";
+    }
+
+}
@@ -0,0 +1,103 @@
+package com.github.terrytsai.escpos.status;
+
+import java.util.Arrays;
+
+/**
+ * Incremental decoder for the data a printer transmits to the host.
+ * <p>
+ * Messages are told apart by their first byte, so bytes may arrive in chunks of any size:
+ * <p>
+ * [Notes]
+ * - 0xx1xx00: ASB status, followed by three bytes with the bit pattern 0xx0xxxx.
+ * - 0xx1xx10: 1 byte real-time status (DLE EOT).
+ * - 0xx1xxx1: header of block data, terminated by NUL.
+ * - Any other byte, or an ASB message cut short, is skipped so the decoder resynchronizes on the next message.
+ */
+public final class StatusDecoder {
+
+    private static final int MAX_BLOCK = 80;
+
+    private final StatusListener listener;
+    private final byte[] pending = new byte[MAX_BLOCK];
+    private int header = -1;
+    private int count;
+    private boolean asb;
+
+    /**
+     * Constructor
+     *
+     * @param listener receives every decoded message, without change detection
+     */
+    public StatusDecoder(StatusListener listener) {
+        if (listener == null) {
+            throw new IllegalArgumentException("listener must not be null");
+        }
+        this.listener = listener;
+    }
+
+    /**
+     * Decodes received bytes.
+     *
+     * @param data bytes
+     * @param off  start offset
+     * @param len  number of bytes
+     */
+    public void decode(byte[] data, int off, int len) {
+        for (int i = off, end = off + len; i < end; i++) {
+            decode(data[i] & 0xFF);
+        }
+    }
+
+    /**
+     * Drops a partially received message.
+     */
+    public void reset() {
+        header = -1;
+        count = 0;
+    }
+
+    private void decode(int b) {
+        if (header >= 0) {
+            if (asb) {
+                if ((b & 0x90) == 0) {
+                    pending[count++] = (byte) b;
+                    if (count == 3) {
+                        listener.statusChanged(null, PrinterStatus.ofAsb(header, pending[0], pending[1], pending[2]));
+                        reset();
+                    }
+                    return;
+                }
+                // Not an ASB continuation, start over with this byte
+                reset();
+            } else {
+                if (b == 0) {
+                    listener.responseReceived(new PrinterResponse(header, Arrays.copyOf(pending, count)));
+                    reset();
+                } else if (count == MAX_BLOCK) {
+                    reset();
+                } else {
+                    pending[count++] = (byte) b;
+                }
+                return;
+            }
+        }
+
+        if ((b & 0x90) != 0x10) {
+            return;
+        }
+        switch (b & 0x03) {
+            case 0:
+                header = b;
+                asb = true;
+                break;
+            case 2:
+                listener.realTimeStatusReceived(b);
+                break;
+            default:
+                header = b;
+                asb = false;
+                break;
+        }
+    }
+
+}
@@ -0,0 +1,34 @@
+package com.github.terrytsai.escpos.status;
+
+/**
+ * Receives status decoded by a {@link StatusMonitor}. Callbacks run on the thread that feeds the monitor,
+ * for a serial port the jSerialComm event thread, and should not block.
+ */
+public interface StatusListener {
+
+    /**
+     * Called when an ASB message differs from the previous one, including the first.
+     *
+     * @param previous previous status, null for the first
+     * @param current  current status
+     */
+    default void statusChanged(PrinterStatus previous, PrinterStatus current) {
+    }
+
+    /**
+     * Called for each block response, for example a power-off notice or Clear response.
+     *
+     * @param response response
+     */
+    default void responseReceived(PrinterResponse response) {
+    }
+
+    /**
+     * Called for each 1 byte real-time status, as transmitted for DLE EOT.
+     *
+     * @param status status byte, bit pattern 0xx1xx10
+     */
+    default void realTimeStatusReceived(int status) {
+    }
+
+}
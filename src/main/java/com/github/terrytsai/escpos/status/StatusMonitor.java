@@ -0,0 +1,196 @@
+package com.github.terrytsai.escpos.status;
+
+import com.fazecast.jSerialComm.SerialPort;
+import com.fazecast.jSerialComm.SerialPortDataListener;
+import com.fazecast.jSerialComm.SerialPortEvent;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Tracks the status of one printer from the data it transmits and publishes changes to listeners.
+ * <p>
+ * Attached to a serial port, the monitor decodes data as jSerialComm reports it available, so no thread of
+ * the application blocks on reads. Data from any other transport can be passed to {@link #feed(byte[], int, int)}.
+ *
+ * <pre>{@code
+ * StatusMonitor monitor = new StatusMonitor().addListener(new StatusListener() {
+ *     public void statusChanged(PrinterStatus previous, PrinterStatus current) {
+ *         if (current.isPaperNearEnd()) alert("Replace paper");
+ *     }
+ * }).attach(port);
+ *
+ * new EscPosWriter(port.getOutputStream()).setAutomaticStatusBack(true, true, true, true);
+ * }</pre>
+ */
+public final class StatusMonitor {
+
+    private static final int READ_BUFFER_SIZE = 256;
+
+    private final List<StatusListener> listeners = new CopyOnWriteArrayList<>();
+    private final ReentrantLock lock = new ReentrantLock();
+    private final StatusDecoder decoder = new StatusDecoder(new Dispatcher());
+    private final byte[] readBuffer = new byte[READ_BUFFER_SIZE];
+    private volatile PrinterStatus status;
+
+    /**
+     * Adds a listener.
+     *
+     * @param listener listener
+     * @return {@link StatusMonitor}
+     */
+    public StatusMonitor addListener(StatusListener listener) {
+        if (listener == null) {
+            throw new IllegalArgumentException("listener must not be null");
+        }
+        listeners.add(listener);
+        return this;
+    }
+
+    public StatusMonitor removeListener(StatusListener listener) {
+        listeners.remove(listener);
+        return this;
+    }
+
+    /**
+     * Latest ASB status, or null if none was received yet.
+     *
+     * @return {@link PrinterStatus}
+     */
+    public PrinterStatus getStatus() {
+        return status;
+    }
+
+    /**
+     * Decodes data received from the printer.
+     *
+     * @param data bytes
+     * @param off  start offset
+     * @param len  number of bytes
+     */
+    public void feed(byte[] data, int off, int len) {
+        lock.lock();
+        try {
+            decoder.decode(data, off, len);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Decodes the data a serial port receives from now on. The port must be open, and it must not have another
+     * data listener or be read elsewhere.
+     *
+     * @param port serial port
+     * @return {@link StatusMonitor}
+     * @throws IllegalStateException if jSerialComm refuses the listener
+     */
+    public StatusMonitor attach(SerialPort port) {
+        boolean added = port.addDataListener(new SerialPortDataListener() {
+            @Override
+            public int getListeningEvents() {
+                return SerialPort.LISTENING_EVENT_DATA_AVAILABLE;
+            }
+
+            @Override
+            public void serialEvent(SerialPortEvent event) {
+                read(port);
+            }
+        });
+        if (!added) {
+            throw new IllegalStateException("Could not listen to " + port.getSystemPortName());
+        }
+        return this;
+    }
+
+    /**
+     * Starts a reader thread that decodes an InputStream until it ends or fails, for transports that only offer
+     * blocking reads. Close the stream to stop the thread.
+     * <p>
+     * With a virtual thread factory, such as {@code PrinterThreads.virtual}, a reader per printer costs a few KB.
+     *
+     * @param in            InputStream of the printer
+     * @param threadFactory creates the reader thread
+     * @return the started reader thread
+     */
+    public Thread readFrom(InputStream in, ThreadFactory threadFactory) {
+        Thread reader = threadFactory.newThread(() -> {
+            byte[] buffer = new byte[READ_BUFFER_SIZE];
+            try {
+                int n;
+                while ((n = in.read(buffer)) >= 0) {
+                    feed(buffer, 0, n);
+                }
+            } catch (IOException ignored) {
+                // The stream was closed or the printer is gone, either ends the reader
+            }
+        });
+        reader.start();
+        return reader;
+    }
+
+    /**
+     * Stops decoding the data of a serial port.
+     *
+     * @param port serial port
+     */
+    public void detach(SerialPort port) {
+        port.removeDataListener();
+        lock.lock();
+        try {
+            decoder.reset();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void read(SerialPort port) {
+        lock.lock();
+        try {
+            int available;
+            while ((available = port.bytesAvailable()) > 0) {
+                int n = port.readBytes(readBuffer, Math.min(available, readBuffer.length));
+                if (n <= 0) {
+                    break;
+                }
+                decoder.decode(readBuffer, 0, n);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private final class Dispatcher implements StatusListener {
+
+        @Override
+        public void statusChanged(PrinterStatus previous, PrinterStatus current) {
+            PrinterStatus last = status;
+            if (!current.equals(last)) {
+                status = current;
+                for (StatusListener listener : listeners) {
+                    listener.statusChanged(last, current);
+                }
+            }
+        }
+
+        @Override
+        public void responseReceived(PrinterResponse response) {
+            for (StatusListener listener : listeners) {
+                listener.responseReceived(response);
+            }
+        }
+
+        @Override
+        public void realTimeStatusReceived(int status) {
+            for (StatusListener listener : listeners) {
+                listener.realTimeStatusReceived(status);
+            }
+        }
+
+    }
+
+}
@@ -0,0 +1,66 @@
+package com.github.terrytsai.escpos;
+
+import com.github.terrytsai.escpos.enums.CharacterCodeTable;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.Charset;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class CodePageTest {
+
+    @Test
+    void everyCharacterOfATableRoundTrips() {
+        for (CharacterCodeTable codeTable : CharacterCodeTable.values()) {
+            if (codeTable.charset == null || !Charset.isSupported(codeTable.charset)) {
+                continue;
+            }
+            Charset charset = Charset.forName(codeTable.charset);
+            byte[] table = CodePage.table(codeTable);
+            for (int b = 0; b < 256; b++) {
+                String decoded = new String(new byte[]{(byte) b}, charset);
+                if (decoded.length() != 1 || decoded.charAt(0) == '�') {
+                    continue;
+                }
+                char c = decoded.charAt(0);
+                assertEquals(decoded, new String(new byte[]{table[c]}, charset),
+                        codeTable + " byte " + b + " char " + (int) c);
+            }
+        }
+    }
+
+    @Test
+    void unmappableCharactersBecomeQuestionMarks() {
+        byte[] table = CodePage.table(CharacterCodeTable.PC437);
+
+        assertEquals(CodePage.UNMAPPABLE, table['€']);
+        assertEquals((byte) 0x82, table['é']);
+    }
+
+    @Test
+    void tablesWithoutACharsetMapOnlyAscii() {
+        byte[] table = CodePage.table(CharacterCodeTable.HIRAGANA);
+
+        assertEquals((byte) 'A', table['A']);
+        assertEquals(CodePage.UNMAPPABLE, table['あ']);
+    }
+
+    @Test
+    void textIsEncodedWithTheSelectedTable() {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        new EscPosWriter(out).setCharacterCodeTable(CharacterCodeTable.WPC1252).text("€é😀");
+
+        assertArrayEquals(EscPosWriterTest.bytes(27, 't', 16, 0x80, 0xE9, '?'), out.toByteArray());
+    }
+
+    @Test
+    void initializeReturnsToPc437() {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        new EscPosWriter(out).setCharacterCodeTable(CharacterCodeTable.WPC1252).initialize().text("é");
+
+        assertArrayEquals(EscPosWriterTest.bytes(27, 't', 16, 27, '@', 0x82), out.toByteArray());
+    }
+
+}
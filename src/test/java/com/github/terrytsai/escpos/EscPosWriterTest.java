@@ -0,0 +1,242 @@
+package com.github.terrytsai.escpos;
+
+import com.github.terrytsai.escpos.enums.CutA;
+import com.github.terrytsai.escpos.enums.Height;
+import com.github.terrytsai.escpos.enums.QrErrorCorrection;
+import com.github.terrytsai.escpos.enums.RasterMode;
+import com.github.terrytsai.escpos.enums.Width;
+import com.github.terrytsai.escpos.image.RasterImage;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class EscPosWriterTest {
+
+    @Test
+    void everyCommandWritesEachCommandInOneWrite() {
+        CountingStream out = new CountingStream();
+        new EscPosWriter(out).text("AB").setEmphasize(true).printAndFeedLine();
+
+        assertEquals(3, out.writes);
+        assertArrayEquals(bytes('A', 'B', 27, 'E', 1, 10), out.toByteArray());
+    }
+
+    @Test
+    void lineFeedPolicyWritesOnFeedsAndCuts() {
+        CountingStream out = new CountingStream();
+        EscPosWriter writer = new EscPosWriter(out, FlushPolicy.LINE_FEED).text("AB").setEmphasize(true);
+        assertEquals(0, out.size());
+
+        writer.printAndFeedLines(2);
+        assertEquals(1, out.writes);
+        assertArrayEquals(bytes('A', 'B', 27, 'E', 1, 27, 'd', 2), out.toByteArray());
+
+        writer.text("C").cut(CutA.PARTIAL);
+        assertEquals(2, out.writes);
+    }
+
+    @Test
+    void cutPolicyWritesOnlyOnCuts() {
+        CountingStream out = new CountingStream();
+        EscPosWriter writer = new EscPosWriter(out, FlushPolicy.CUT).text("A").printAndFeedLine();
+        assertEquals(0, out.size());
+
+        writer.cut(CutA.FULL);
+        assertEquals(1, out.writes);
+        assertArrayEquals(bytes('A', 10, 29, 'V', 0), out.toByteArray());
+    }
+
+    @Test
+    void bufferFullPolicyWritesWhenFullOrFlushed() {
+        CountingStream out = new CountingStream();
+        EscPosWriter writer = new EscPosWriter(out, FlushPolicy.BUFFER_FULL, 18);
+        writer.text("0123456789").printAndFeedLine().cut(CutA.FULL);
+        assertEquals(0, out.size());
+
+        // Text fills the buffer to the last byte before it is written
+        writer.text("0123456789");
+        assertEquals(1, out.writes);
+        assertEquals(18, out.size());
+
+        writer.flush();
+        assertEquals(24, out.size());
+        assertEquals(1, out.flushes);
+    }
+
+    @Test
+    void largeBytesPassThroughWithoutCopying() {
+        CountingStream out = new CountingStream();
+        byte[] large = new byte[64];
+        EscPosWriter writer = new EscPosWriter(out, FlushPolicy.BUFFER_FULL, 18).text("A");
+
+        writer.bytes(large);
+
+        assertEquals(2, out.writes);
+        assertEquals(65, out.size());
+    }
+
+    @Test
+    void rejectsBuffersSmallerThanTheLargestHeader() {
+        assertThrows(IllegalArgumentException.class,
+                () -> new EscPosWriter(new ByteArrayOutputStream(), FlushPolicy.BUFFER_FULL, 17));
+    }
+
+    @Test
+    void printRasterImageSendsOneGsV0PerBand() {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        RasterImage image = RasterImage.wrap(bytes(1, 2, 3, 4, 5, 6), 10, 3);
+
+        new EscPosWriter(out).printRasterImage(image, RasterMode.DOUBLE_WIDTH, 2);
+
+        assertArrayEquals(bytes(
+                29, 'v', '0', 1, 2, 0, 2, 0, 1, 2, 3, 4,
+                29, 'v', '0', 1, 2, 0, 1, 0, 5, 6), out.toByteArray());
+    }
+
+    @Test
+    void defineDownloadGraphicsUsesGsParenLUpToItsLimit() {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        RasterImage image = RasterImage.wrap(bytes(0xAA), 8, 1);
+
+        new EscPosWriter(out).defineDownloadGraphics('A', 'B', image)
+                .printDownloadGraphics('A', 'B', 2, 1)
+                .deleteDownloadGraphics('A', 'B');
+
+        assertArrayEquals(bytes(
+                29, '(', 'L', 12, 0, 48, 83, 48, 'A', 'B', 1, 8, 0, 1, 0, 49, 0xAA,
+                29, '(', 'L', 6, 0, 48, 85, 'A', 'B', 2, 1,
+                29, '(', 'L', 4, 0, 48, 82, 'A', 'B'), out.toByteArray());
+    }
+
+    @Test
+    void defineNvGraphicsSwitchesToGs8LAbovePLimit() {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        // 11 header bytes + 65525 data bytes make p = 65536, one more than GS ( L can carry
+        RasterImage image = RasterImage.wrap(new byte[65525], 8, 65525);
+
+        new EscPosWriter(out, FlushPolicy.EVERY_COMMAND, 18).defineNvGraphics(' ', ' ', image);
+
+        byte[] written = out.toByteArray();
+        assertEquals(7 + 65536, written.length);
+        assertArrayEquals(bytes(29, '8', 'L', 0, 0, 1, 0, 48, 67, 48, ' ', ' ', 1, 8, 0, 0xF5, 0xFF, 49),
+                Arrays.copyOf(written, 18));
+    }
+
+    @Test
+    void printQrCodeSendsGsParenKFunctions() {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        new EscPosWriter(out).printQrCode("AB", 6, QrErrorCorrection.M);
+
+        assertArrayEquals(bytes(
+                29, '(', 'k', 4, 0, 49, 65, 50, 0,
+                29, '(', 'k', 3, 0, 49, 67, 6,
+                29, '(', 'k', 3, 0, 49, 69, 49,
+                29, '(', 'k', 5, 0, 49, 80, 48, 'A', 'B',
+                29, '(', 'k', 3, 0, 49, 81, 48), out.toByteArray());
+    }
+
+    @Test
+    void symbolDataLengthIsSplitIntoPlAndPh() {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] data = new byte[300];
+
+        new EscPosWriter(out).storePdf417Data(data, 0, 297);
+
+        assertArrayEquals(bytes(29, '(', 'k', 44, 1, 48, 80, 48), Arrays.copyOf(out.toByteArray(), 8));
+        assertEquals(8 + 297, out.size());
+        assertThrows(IllegalArgumentException.class, () -> new EscPosWriter(out).storeQrCodeData(new byte[65533]));
+    }
+
+    @Test
+    void setCharacterSizeSendsGsExclamation() {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        new EscPosWriter(out).setCharacterSize(Width.X2, Height.X2).setCharacterSize(Width.X8, Height.X1);
+
+        assertArrayEquals(bytes(29, '!', 0x11, 29, '!', 0x70), out.toByteArray());
+    }
+
+    @Test
+    void stateTrackingDropsRepeatedCharacterSizes() {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        EscPosWriter writer = new EscPosWriter(out).trackState(true);
+
+        writer.setCharacterSize(Width.X2, Height.X2).setCharacterSize(Width.X2, Height.X2)
+                .setCharacterSize(Width.X1, Height.X1)
+                .initialize().setCharacterSize(Width.X1, Height.X1);
+
+        assertArrayEquals(bytes(29, '!', 0x11, 29, '!', 0, 27, '@'), out.toByteArray());
+        assertEquals(6, writer.getBytesSaved());
+    }
+
+    @Test
+    void printBitImageSendsThreeBytesPerColumn() {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        // 9 × 3 dots: (0, 0), (1, 1) and (8, 2) are black
+        RasterImage image = RasterImage.wrap(bytes(0x80, 0x00, 0x40, 0x00, 0x00, 0x80), 9, 3);
+
+        new EscPosWriter(out).printBitImage(image, 0);
+
+        assertArrayEquals(bytes(27, '*', 33, 9, 0,
+                0x80, 0, 0,
+                0x40, 0, 0,
+                0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0,
+                0x20, 0, 0),
+                out.toByteArray());
+    }
+
+    @Test
+    void bitImageRowsOutsideTheImageAreBlank() {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        RasterImage image = RasterImage.wrap(bytes(0x80, 0x00, 0x40, 0x00, 0x00, 0x80), 9, 3);
+
+        // The first two image rows at the bottom of the stripe, then the last row at its top
+        new EscPosWriter(out).printBitImage(image, -22).printBitImage(image, 2);
+
+        byte[] written = out.toByteArray();
+        assertArrayEquals(bytes(27, '*', 33, 9, 0, 0, 0, 2, 0, 0, 1), Arrays.copyOf(written, 11));
+        assertArrayEquals(new byte[3 * 7], Arrays.copyOfRange(written, 11, 32));
+        assertArrayEquals(bytes(27, '*', 33, 9, 0), Arrays.copyOfRange(written, 32, 37));
+        assertArrayEquals(new byte[3 * 8], Arrays.copyOfRange(written, 37, 61));
+        assertArrayEquals(bytes(0x80, 0, 0), Arrays.copyOfRange(written, 61, 64));
+        assertEquals(64, written.length);
+        assertThrows(IllegalArgumentException.class,
+                () -> new EscPosWriter(out).printBitImage(RasterImage.wrap(new byte[8192], 65536, 1), 0));
+    }
+
+    static byte[] bytes(int... values) {
+        byte[] bytes = new byte[values.length];
+        for (int i = 0; i < values.length; i++) {
+            bytes[i] = (byte) values[i];
+        }
+        return bytes;
+    }
+
+    /**
+     * Counts the writes and flushes made by the writer.
+     */
+    static final class CountingStream extends ByteArrayOutputStream {
+
+        int writes;
+        int flushes;
+
+        @Override
+        public synchronized void write(byte[] b, int off, int len) {
+            writes++;
+            super.write(b, off, len);
+        }
+
+        @Override
+        public void flush() {
+            flushes++;
+        }
+
+    }
+
+}
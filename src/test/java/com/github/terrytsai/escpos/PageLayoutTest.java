@@ -0,0 +1,72 @@
+package com.github.terrytsai.escpos;
+
+import com.github.terrytsai.escpos.emulator.Receipt;
+import com.github.terrytsai.escpos.emulator.VirtualPrinter;
+import com.github.terrytsai.escpos.enums.CutA;
+import com.github.terrytsai.escpos.image.RasterImage;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+
+import static com.github.terrytsai.escpos.EscPosWriterTest.bytes;
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class PageLayoutTest {
+
+    @Test
+    void textIsPlacedByItsBaseline() {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        PageLayout.builder(100, 50).text(10, 0, "AB").text(34, 0, "C").build().render(new EscPosWriter(out));
+
+        assertArrayEquals(bytes(
+                27, 'L',
+                27, 'W', 0, 0, 0, 0, 100, 0, 50, 0,
+                27, 'T', 0,
+                27, ' ', 0,
+                29, '$', 24, 0,
+                27, '$', 10, 0,
+                27, 'M', 0,
+                29, '!', 0,
+                'A', 'B',
+                // C starts where B ended, without moving the print position
+                'C',
+                12), out.toByteArray());
+    }
+
+    @Test
+    void boxIsPrintedWhereItIsPlaced() {
+        VirtualPrinter printer = new VirtualPrinter();
+        EscPosWriter writer = new EscPosWriter(printer);
+
+        PageLayout.builder(200, 100).box(20, 10, 100, 50, 2).build().render(writer);
+        writer.cut(CutA.FULL);
+
+        Receipt receipt = printer.takeReceipts().get(0);
+        RasterImage image = receipt.getImage();
+        assertTrue(black(image, 20, 10));
+        assertTrue(black(image, 119, 59));
+        assertTrue(black(image, 21, 35));
+        assertFalse(black(image, 22, 35));
+        assertFalse(black(image, 19, 10));
+        // The paper feeds up to the bottom of the box
+        assertEquals(60, receipt.getFeedLength());
+    }
+
+    @Test
+    void rejectsTextOutsideThePage() {
+        PageLayout.Builder builder = PageLayout.builder(100, 50).text(80, 0, "AB");
+
+        assertThrows(IllegalArgumentException.class, builder::build);
+        assertThrows(IllegalArgumentException.class, () -> PageLayout.builder(0, 50));
+    }
+
+    private static boolean black(RasterImage image, int x, int y) {
+        return (image.getData()[y * image.getBytesPerRow() + x / 8] & 0x80 >> (x % 8)) != 0;
+    }
+
+}
@@ -0,0 +1,131 @@
+package com.github.terrytsai.escpos;
+
+import org.junit.jupiter.api.Test;
+
+import static com.github.terrytsai.escpos.EscPosWriterTest.bytes;
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class PrintJobTest {
+
+    @Test
+    void recordKeepsTheEndOfEachCommand() {
+        PrintJob job = PrintJob.record(w -> w.text("AB").setEmphasize(true).printAndFeedLine());
+
+        assertArrayEquals(bytes('A', 'B', 27, 'E', 1, 10), job.data());
+        assertArrayEquals(new int[]{2, 5, 6}, job.boundaries());
+        assertEquals(6, job.size());
+    }
+
+    @Test
+    void boundariesSurviveBufferDrains() {
+        PrintJob job = PrintJob.record(w -> {
+            for (int i = 0; i < 1000; i++) {
+                w.text("ABCDE");
+            }
+        });
+
+        int[] boundaries = job.boundaries();
+        assertEquals(5000, job.size());
+        assertEquals(1000, boundaries.length);
+        for (int i = 0; i < boundaries.length; i++) {
+            assertEquals(5 * (i + 1), boundaries[i]);
+        }
+    }
+
+    @Test
+    void encodedJobsHaveNoKnownBoundaries() {
+        PrintJob job = PrintJob.of(bytes('A', 10));
+
+        assertEquals(0, job.boundaries().length);
+        assertEquals(2, job.size());
+    }
+
+    @Test
+    void bytesSavedByStateTrackingAreReported() {
+        PrintJob job = PrintJob.record(w -> w.trackState(true).setEmphasize(true).setEmphasize(true).text("A"));
+
+        assertEquals(3, job.getBytesSaved());
+        assertArrayEquals(bytes(27, 'E', 1, 'A'), job.data());
+    }
+
+    @Test
+    void threeLineFeedsBecomeOneEscD() {
+        PrintJob job = PrintJob.record(w -> w.text("A").printAndFeedLine().printAndFeedLine().printAndFeedLine()
+                .text("B")).optimize();
+
+        assertArrayEquals(bytes('A', 27, 'd', 3, 'B'), job.data());
+        assertArrayEquals(new int[]{1, 4, 5}, job.boundaries());
+    }
+
+    @Test
+    void twoLineFeedsStayLineFeeds() {
+        PrintJob job = PrintJob.record(w -> w.text("A").printAndFeedLine().printAndFeedLine()).optimize();
+
+        assertArrayEquals(bytes('A', 10, 10), job.data());
+        assertArrayEquals(new int[]{1, 2, 3}, job.boundaries());
+    }
+
+    @Test
+    void lineFeedsAndEscDAreAddedUp() {
+        PrintJob job = PrintJob.record(w -> w.printAndFeedLines(2).printAndFeedLine().printAndFeedLines(254)).optimize();
+
+        assertArrayEquals(bytes(27, 'd', 255, 27, 'd', 2), job.data());
+        assertArrayEquals(new int[]{3, 6}, job.boundaries());
+    }
+
+    @Test
+    void escJRunsAreSummedAndSplitAt255() {
+        PrintJob job = PrintJob.record(w -> w.printAndFeedPaper(200).printAndFeedPaper(200)).optimize();
+
+        assertArrayEquals(bytes(27, 'J', 255, 27, 'J', 145), job.data());
+        assertArrayEquals(new int[]{3, 6}, job.boundaries());
+    }
+
+    @Test
+    void onlyTheLastLineSpacingIsKept() {
+        PrintJob spacing = PrintJob.record(w -> w.setLineSpacing(30).setDefaultLineSpacing().setLineSpacing(40)
+                .text("A")).optimize();
+        PrintJob standard = PrintJob.record(w -> w.setLineSpacing(30).setDefaultLineSpacing().text("A")).optimize();
+
+        assertArrayEquals(bytes(27, '3', 40, 'A'), spacing.data());
+        assertArrayEquals(new int[]{3, 4}, spacing.boundaries());
+        assertArrayEquals(bytes(27, '2', 'A'), standard.data());
+    }
+
+    @Test
+    void adjacentTextRunsBecomeOneCommand() {
+        PrintJob job = PrintJob.record(w -> w.text("AB").text("CD").setEmphasize(true).text("E")).optimize();
+
+        assertArrayEquals(bytes('A', 'B', 'C', 'D', 27, 'E', 1, 'E'), job.data());
+        assertArrayEquals(new int[]{4, 7, 8}, job.boundaries());
+    }
+
+    @Test
+    void bytesFromAnUnknownSequenceOnAreCopiedUnchanged() {
+        PrintJob job = PrintJob.record(w -> w.printAndFeedLines(1).printAndFeedLine().printAndFeedLine()
+                .bytes(bytes(27, 'Z', 10)).printAndFeedLine().printAndFeedLine().printAndFeedLine()).optimize();
+
+        assertArrayEquals(bytes(27, 'd', 3, 27, 'Z', 10, 10, 10, 10), job.data());
+        assertArrayEquals(new int[]{3, 6, 7, 8, 9}, job.boundaries());
+    }
+
+    @Test
+    void commandCutShortAtTheEndIsCopiedUnchanged() {
+        PrintJob job = PrintJob.of(bytes('A', 10, 10, 10, 29, 'v', '0')).optimize();
+
+        assertArrayEquals(bytes('A', 27, 'd', 3, 29, 'v', '0'), job.data());
+    }
+
+    @Test
+    void optimizeKeepsTheBytesSaved() {
+        PrintJob job = PrintJob.record(w -> w.trackState(true).setEmphasize(true).setEmphasize(true)
+                .printAndFeedLine().printAndFeedLine().printAndFeedLine());
+
+        PrintJob optimized = job.optimize();
+
+        assertEquals(3, optimized.getBytesSaved());
+        assertArrayEquals(bytes(27, 'E', 1, 27, 'd', 3), optimized.data());
+    }
+
+}
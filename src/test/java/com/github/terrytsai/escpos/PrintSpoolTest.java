@@ -0,0 +1,238 @@
+package com.github.terrytsai.escpos;
+
+import com.github.terrytsai.escpos.PrinterChannelTest.GatedStream;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.Timeout;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@Timeout(10)
+class PrintSpoolTest {
+
+    // Header of a record, the job data follows as these jobs have no boundaries
+    private static final int HEADER_SIZE = 20;
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void unsettledJobsAreRecoveredInOrder() {
+        PrintJob recorded = PrintJob.record(w -> w.text("A").printAndFeedLine());
+        try (PrintSpool spool = PrintSpool.open(directory)) {
+            spool.append(recorded);
+            long settled = spool.append(job("B"));
+            spool.append(job("C"));
+            spool.settle(settled);
+        }
+
+        try (PrintSpool spool = PrintSpool.open(directory)) {
+            List<PrintSpool.Recovered> recovered = spool.takeRecovered();
+
+            assertEquals(2, recovered.size());
+            assertArrayEquals(recorded.data(), recovered.get(0).job.data());
+            assertArrayEquals(recorded.boundaries(), recovered.get(0).job.boundaries());
+            assertEquals("C", text(recovered.get(1).job));
+            assertTrue(recovered.get(0).sequence < recovered.get(1).sequence);
+            assertEquals(2, spool.getPending());
+            assertTrue(spool.takeRecovered().isEmpty());
+        }
+    }
+
+    @Test
+    void recordWithoutMagicIsNotRecovered() throws IOException {
+        try (PrintSpool spool = PrintSpool.open(directory)) {
+            spool.append(job("AB"));
+            spool.append(job("CD"));
+        }
+        // A crash before the magic of the second record was written
+        try (FileChannel file = FileChannel.open(segment(), StandardOpenOption.WRITE)) {
+            file.write(ByteBuffer.allocate(4), HEADER_SIZE + 2);
+        }
+
+        try (PrintSpool spool = PrintSpool.open(directory)) {
+            List<PrintSpool.Recovered> recovered = spool.takeRecovered();
+
+            assertEquals(1, recovered.size());
+            assertEquals("AB", text(recovered.get(0).job));
+            assertEquals(1, spool.getPending());
+        }
+    }
+
+    @Test
+    void truncatedSegmentIsRecoveredUpToTheLastCompleteRecord() throws IOException {
+        long first;
+        try (PrintSpool spool = PrintSpool.open(directory)) {
+            first = spool.append(job("AB"));
+            spool.append(job("CD"));
+        }
+        try (FileChannel file = FileChannel.open(segment(), StandardOpenOption.WRITE)) {
+            file.truncate(HEADER_SIZE + 2 + HEADER_SIZE / 2);
+        }
+
+        try (PrintSpool spool = PrintSpool.open(directory)) {
+            List<PrintSpool.Recovered> recovered = spool.takeRecovered();
+            assertEquals(1, recovered.size());
+            assertEquals(first, recovered.get(0).sequence);
+
+            // Later jobs go to a new segment and do not reuse a recovered sequence
+            assertTrue(spool.append(job("EF")) > first);
+        }
+
+        try (PrintSpool spool = PrintSpool.open(directory)) {
+            List<PrintSpool.Recovered> recovered = spool.takeRecovered();
+
+            assertEquals(2, recovered.size());
+            assertEquals("AB", text(recovered.get(0).job));
+            assertEquals("EF", text(recovered.get(1).job));
+        }
+    }
+
+    @Test
+    void settledSegmentsAreDeleted() throws IOException {
+        try (PrintSpool spool = PrintSpool.open(directory, 4096)) {
+            // Each job fills a segment of its own
+            long first = spool.append(job(new String(new char[3000]).replace('\0', 'A')));
+            long second = spool.append(job(new String(new char[3000]).replace('\0', 'B')));
+            assertEquals(2, segments().size());
+
+            spool.settle(first);
+            assertEquals(1, segments().size());
+
+            // The active segment stays until the next one is created
+            spool.settle(second);
+            assertEquals(0, spool.getPending());
+        }
+
+        try (PrintSpool spool = PrintSpool.open(directory)) {
+            assertTrue(spool.takeRecovered().isEmpty());
+            assertTrue(segments().isEmpty());
+        }
+    }
+
+    @Test
+    void channelWritesRecoveredJobsFirst() {
+        try (PrintSpool spool = PrintSpool.open(directory)) {
+            spool.append(job("A"));
+            spool.append(job("B"));
+        }
+
+        GatedStream out = new GatedStream(true);
+        try (PrintSpool spool = PrintSpool.open(directory)) {
+            PrinterChannel channel = PrinterChannel.builder(out).spool(spool).build();
+            channel.submit(w -> w.text("C")).join();
+            channel.close();
+
+            assertEquals("ABC", out.written());
+            assertEquals(0, spool.getPending());
+        }
+    }
+
+    @Test
+    void failedJobsStayUntilReplayed() {
+        GatedStream out = new GatedStream(true);
+        out.failOn = 'X';
+        try (PrintSpool spool = PrintSpool.open(directory)) {
+            PrinterChannel channel = PrinterChannel.builder(out).spool(spool).build();
+            CompletableFuture<Void> failed = channel.submit(w -> w.text("XY"));
+            assertThrows(CompletionException.class, failed::join);
+
+            assertEquals(1, channel.getFailed());
+            assertEquals(1, spool.getPending());
+            channel.close();
+        }
+
+        // Written again by the next channel, this time to a printer that works
+        GatedStream next = new GatedStream(true);
+        try (PrintSpool spool = PrintSpool.open(directory)) {
+            PrinterChannel channel = PrinterChannel.builder(next).spool(spool).build();
+            channel.close();
+
+            assertEquals("XY", next.written());
+            assertEquals(0, spool.getPending());
+        }
+    }
+
+    @Test
+    void discardFailedSettlesTheJobs() {
+        GatedStream out = new GatedStream(true);
+        out.failOn = 'X';
+        try (PrintSpool spool = PrintSpool.open(directory)) {
+            PrinterChannel channel = PrinterChannel.builder(out).spool(spool).build();
+            assertThrows(CompletionException.class, channel.submit(w -> w.text("X"))::join);
+            assertThrows(CompletionException.class, channel.submit(w -> w.text("X"))::join);
+
+            assertEquals(2, channel.discardFailed());
+            assertEquals(0, channel.getFailed());
+            assertEquals(0, spool.getPending());
+            channel.close();
+        }
+
+        try (PrintSpool spool = PrintSpool.open(directory)) {
+            assertTrue(spool.takeRecovered().isEmpty());
+        }
+    }
+
+    @Test
+    void submitToAClosedSpoolFailsTheJob() {
+        PrintSpool spool = PrintSpool.open(directory);
+        PrinterChannel channel = PrinterChannel.builder(new GatedStream(true)).spool(spool).build();
+        spool.close();
+
+        CompletableFuture<Void> future = channel.submit(w -> w.text("A"));
+        channel.close();
+
+        assertInstanceOf(IllegalStateException.class,
+                assertThrows(CompletionException.class, future::join).getCause());
+    }
+
+    @Test
+    void rejectsSmallSegments() {
+        assertThrows(IllegalArgumentException.class, () -> PrintSpool.open(directory, 4095));
+    }
+
+    private static PrintJob job(String text) {
+        return PrintJob.of(text.getBytes(StandardCharsets.US_ASCII));
+    }
+
+    private static String text(PrintJob job) {
+        return new String(job.data(), StandardCharsets.US_ASCII);
+    }
+
+    private Path segment() {
+        List<Path> segments = segments();
+        assertEquals(1, segments.size());
+        return segments.get(0);
+    }
+
+    private List<Path> segments() {
+        List<Path> segments = new ArrayList<>();
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, "*.spool")) {
+            for (Path file : files) {
+                segments.add(file);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return segments;
+    }
+
+}
@@ -0,0 +1,232 @@
+package com.github.terrytsai.escpos;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.Timeout;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@Timeout(10)
+class PrinterChannelTest {
+
+    @Test
+    void jobsAreWrittenInOrder() {
+        GatedStream out = new GatedStream(true);
+        PrinterChannel channel = new PrinterChannel(out);
+
+        CompletableFuture<Void> first = channel.submit(w -> w.text("A"));
+        CompletableFuture<Void> second = channel.submit(w -> w.text("B"));
+        channel.close();
+
+        assertEquals("AB", out.written());
+        assertTrue(first.isDone() && second.isDone());
+    }
+
+    @Test
+    void failedWriteFailsOnlyItsJob() {
+        GatedStream out = new GatedStream(true);
+        out.failOn = 'X';
+        PrinterChannel channel = new PrinterChannel(out);
+
+        CompletableFuture<Void> failed = channel.submit(w -> w.text("X"));
+        CompletableFuture<Void> next = channel.submit(w -> w.text("B"));
+        channel.close();
+
+        assertInstanceOf(IOException.class, assertThrows(CompletionException.class, failed::join).getCause());
+        next.join();
+        assertEquals("B", out.written());
+    }
+
+    @Test
+    void rejectFailsJobsWhileTheQueueIsFull() throws InterruptedException {
+        GatedStream out = new GatedStream(false);
+        PrinterChannel channel = new PrinterChannel(out, 1, Backpressure.REJECT);
+        channel.submit(w -> w.text("A"));
+        out.writing.await();
+        channel.submit(w -> w.text("B"));
+
+        CompletableFuture<Void> rejected = channel.submit(w -> w.text("C"));
+
+        assertInstanceOf(RejectedExecutionException.class,
+                assertThrows(CompletionException.class, rejected::join).getCause());
+        out.open();
+        channel.close();
+        assertEquals("AB", out.written());
+    }
+
+    @Test
+    void dropOldestCancelsTheOldestQueuedJob() throws InterruptedException {
+        GatedStream out = new GatedStream(false);
+        PrinterChannel channel = new PrinterChannel(out, 1, Backpressure.DROP_OLDEST);
+        channel.submit(w -> w.text("A"));
+        out.writing.await();
+        CompletableFuture<Void> dropped = channel.submit(w -> w.text("B"));
+
+        channel.submit(w -> w.text("C"));
+
+        assertTrue(dropped.isCancelled());
+        out.open();
+        channel.close();
+        assertEquals("AC", out.written());
+    }
+
+    @Test
+    void blockWaitsForRoomInTheQueue() throws InterruptedException {
+        GatedStream out = new GatedStream(false);
+        PrinterChannel channel = new PrinterChannel(out, 1, Backpressure.BLOCK);
+        channel.submit(w -> w.text("A"));
+        out.writing.await();
+        channel.submit(w -> w.text("B"));
+
+        Thread submitter = new Thread(() -> channel.submit(w -> w.text("C")));
+        submitter.start();
+        while (submitter.getState() != Thread.State.WAITING) {
+            Thread.sleep(1);
+        }
+        assertEquals(1, channel.size());
+
+        out.open();
+        submitter.join();
+        channel.close();
+        assertEquals("ABC", out.written());
+    }
+
+    @Test
+    void cancelledQueuedJobIsSkipped() throws InterruptedException {
+        GatedStream out = new GatedStream(false);
+        PrinterChannel channel = new PrinterChannel(out);
+        channel.submit(w -> w.text("A"));
+        out.writing.await();
+        CompletableFuture<Void> cancelled = channel.submit(w -> w.text("B"));
+        channel.submit(w -> w.text("C"));
+
+        cancelled.cancel(false);
+        out.open();
+        channel.close();
+
+        assertEquals("AC", out.written());
+    }
+
+    @Test
+    void submitAfterCloseIsRejected() {
+        PrinterChannel channel = new PrinterChannel(new ByteArrayOutputStream());
+        channel.close();
+
+        CompletableFuture<Void> rejected = channel.submit(w -> w.text("A"));
+
+        assertInstanceOf(RejectedExecutionException.class,
+                assertThrows(CompletionException.class, rejected::join).getCause());
+    }
+
+    @Test
+    void realTimeCommandsGoAheadOfQueuedJobs() throws InterruptedException {
+        GatedStream out = new GatedStream(false);
+        PrinterChannel channel = new PrinterChannel(out);
+        channel.submit(w -> w.text("A"));
+        out.writing.await();
+        channel.submit(w -> w.text("B"));
+
+        CompletableFuture<Void> status = channel.sendRealTime(PrintJob.of(new byte[]{16, 4, 1}));
+        out.open();
+        channel.close();
+
+        status.join();
+        assertEquals("A\u0010\u0004\u0001B", out.written());
+    }
+
+    @Test
+    void realTimeCommandsAreWrittenBetweenChunksOfAJob() throws InterruptedException {
+        GatedStream out = new GatedStream(false);
+        PrinterChannel channel = new PrinterChannel(out, 4, Backpressure.BLOCK, 4);
+        channel.submit(w -> w.text("AAAA").text("BBBB").text("CCCC"));
+        out.writing.await();
+
+        channel.sendRealTime(PrintJob.of(new byte[]{16, 4, 1}));
+        out.open();
+        channel.close();
+
+        assertEquals("AAAA\u0010\u0004\u0001BBBBCCCC", out.written());
+    }
+
+    @Test
+    void chunksEndOnCommandBoundaries() throws InterruptedException {
+        GatedStream out = new GatedStream(false);
+        PrinterChannel channel = new PrinterChannel(out, 4, Backpressure.BLOCK, 4);
+        // The first chunk ends at the last boundary within 4 bytes, the 6 byte command is not split
+        channel.submit(w -> w.text("AA").text("BBBBBB").text("C"));
+        out.writing.await();
+
+        channel.sendRealTime(PrintJob.of(new byte[]{16, 4, 1}));
+        out.open();
+        channel.close();
+
+        assertEquals("AA\u0010\u0004\u0001BBBBBBC", out.written());
+    }
+
+    @Test
+    void realTimeCommandsMustStartWithDle() {
+        PrinterChannel channel = new PrinterChannel(new ByteArrayOutputStream());
+
+        assertThrows(IllegalArgumentException.class, () -> channel.sendRealTime(PrintJob.of(new byte[]{27, '@'})));
+        channel.close();
+    }
+
+    /**
+     * Holds writes until opened, and fails writes that start with a marker byte.
+     */
+    static final class GatedStream extends OutputStream {
+
+        final CountDownLatch writing = new CountDownLatch(1);
+        private final CountDownLatch gate = new CountDownLatch(1);
+        private final ByteArrayOutputStream written = new ByteArrayOutputStream();
+        int failOn = -1;
+
+        GatedStream(boolean open) {
+            if (open) {
+                open();
+            }
+        }
+
+        void open() {
+            gate.countDown();
+        }
+
+        synchronized String written() {
+            return new String(written.toByteArray(), StandardCharsets.ISO_8859_1);
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            write(new byte[]{(byte) b}, 0, 1);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            writing.countDown();
+            try {
+                gate.await();
+            } catch (InterruptedException e) {
+                throw new IOException(e);
+            }
+            if (len > 0 && b[off] == failOn) {
+                throw new IOException("Paper jam");
+            }
+            synchronized (this) {
+                written.write(b, off, len);
+            }
+        }
+
+    }
+
+}
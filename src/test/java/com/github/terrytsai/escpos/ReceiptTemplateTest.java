@@ -0,0 +1,74 @@
+package com.github.terrytsai.escpos;
+
+import com.github.terrytsai.escpos.enums.CharacterCodeTable;
+import com.github.terrytsai.escpos.image.GraphicsCache;
+import com.github.terrytsai.escpos.image.GraphicsMemory;
+import com.github.terrytsai.escpos.image.RasterImage;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.util.Collections;
+import java.util.function.Consumer;
+
+import static com.github.terrytsai.escpos.EscPosWriterTest.bytes;
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ReceiptTemplateTest {
+
+    @Test
+    void slotsAreFilledInBetweenTheFixedCommands() {
+        ReceiptTemplate template = ReceiptTemplate.builder()
+                .fixed(w -> w.text("A"))
+                .slot("item")
+                .fixed(EscPosWriter::printAndFeedLine)
+                .build();
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        template.render(new EscPosWriter(out), Collections.singletonMap("item", w -> w.text("B")));
+
+        assertArrayEquals(bytes('A', 'B', 10), out.toByteArray());
+        assertEquals(Collections.singletonList("item"), template.getSlots());
+    }
+
+    @Test
+    void slotWithoutCommandsIsRejected() {
+        ReceiptTemplate template = ReceiptTemplate.builder().slot("item").build();
+
+        assertThrows(IllegalArgumentException.class, () -> template.render(new EscPosWriter(new ByteArrayOutputStream()),
+                Collections.<String, Consumer<EscPosWriter>>emptyMap()));
+    }
+
+    @Test
+    void slotsEncodeTextWithTheCodeTableOfTheFixedPart() {
+        ReceiptTemplate template = ReceiptTemplate.builder()
+                .fixed(w -> w.setCharacterCodeTable(CharacterCodeTable.WPC1252))
+                .slot("total")
+                .build();
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        template.render(new EscPosWriter(out), Collections.singletonMap("total", w -> w.text("€")));
+
+        assertArrayEquals(bytes(27, 't', 16, 0x80), out.toByteArray());
+    }
+
+    @Test
+    void replayedInitializeRunsTheInitializeListeners() {
+        ReceiptTemplate template = ReceiptTemplate.builder().fixed(w -> w.initialize().text("A")).build();
+        RasterImage logo = RasterImage.wrap(new byte[]{1}, 8, 1);
+        EscPosWriter writer = new EscPosWriter(new ByteArrayOutputStream());
+        GraphicsCache cache = new GraphicsCache(GraphicsMemory.DOWNLOAD, 4);
+        cache.bind(writer);
+        cache.print(writer, logo);
+        assertTrue(cache.contains(logo));
+
+        // ESC @ clears download graphics, the cache must define the logo again
+        template.render(writer, Collections.<String, Consumer<EscPosWriter>>emptyMap());
+
+        assertFalse(cache.contains(logo));
+    }
+
+}
@@ -0,0 +1,94 @@
+package com.github.terrytsai.escpos.character;
+
+import com.github.terrytsai.escpos.EscPosWriter;
+import com.github.terrytsai.escpos.enums.Font;
+import com.github.terrytsai.escpos.image.RasterImage;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class UserCharacterCacheTest {
+
+    // Two dots side by side in the top row
+    private static final RasterImage DASH = RasterImage.wrap(new byte[]{(byte) 0xC0}, 2, 1);
+
+    @Test
+    void consecutiveCodesAreDefinedInOneEscAmpersand() {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        UserCharacterSet set = UserCharacterSet.builder(Font.A).put('A', DASH).put('B', DASH).put('D', DASH).build();
+
+        set.define(new EscPosWriter(out));
+
+        assertArrayEquals(bytes(
+                27, 'M', 0,
+                27, '&', 3, 'A', 'B', 2, 0x80, 0, 0, 0x80, 0, 0, 2, 0x80, 0, 0, 0x80, 0, 0,
+                27, '&', 3, 'D', 'D', 2, 0x80, 0, 0, 0x80, 0, 0), out.toByteArray());
+    }
+
+    @Test
+    void glyphsWiderThanTheFontAreRejected() {
+        RasterImage wide = RasterImage.wrap(new byte[2], 10, 1);
+
+        UserCharacterSet.builder(Font.A).put('A', wide);
+        assertThrows(IllegalArgumentException.class, () -> UserCharacterSet.builder(Font.B).put('A', wide));
+        assertThrows(IllegalArgumentException.class, () -> UserCharacterSet.builder(Font.C));
+    }
+
+    @Test
+    void loadedGlyphsAreOnlySelected() {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        EscPosWriter writer = new EscPosWriter(out);
+        UserCharacterCache cache = new UserCharacterCache();
+        UserCharacterSet set = UserCharacterSet.builder(Font.B).put('A', DASH).build();
+
+        cache.select(writer, set);
+        assertArrayEquals(bytes(27, '%', 0, 27, 'M', 1, 27, '&', 3, 'A', 'A', 2, 0x80, 0, 0, 0x80, 0, 0, 27, '%', 1),
+                out.toByteArray());
+        assertTrue(cache.isLoaded(set));
+
+        out.reset();
+        cache.select(writer, set);
+        assertArrayEquals(bytes(27, 'M', 1, 27, '%', 1), out.toByteArray());
+    }
+
+    @Test
+    void setOfAnotherFontIsDownloadedAgain() {
+        EscPosWriter writer = new EscPosWriter(new ByteArrayOutputStream());
+        UserCharacterCache cache = new UserCharacterCache();
+        UserCharacterSet fontA = UserCharacterSet.builder(Font.A).put('A', DASH).build();
+        UserCharacterSet fontB = UserCharacterSet.builder(Font.B).put('A', DASH).build();
+
+        cache.select(writer, fontA);
+
+        assertFalse(cache.isLoaded(fontB));
+        cache.select(writer, fontB);
+        assertFalse(cache.isLoaded(fontA));
+    }
+
+    @Test
+    void initializeForgetsBoundGlyphs() {
+        EscPosWriter writer = new EscPosWriter(new ByteArrayOutputStream());
+        UserCharacterCache cache = new UserCharacterCache();
+        UserCharacterSet set = UserCharacterSet.builder(Font.A).put('A', DASH).build();
+        cache.bind(writer);
+        cache.select(writer, set);
+
+        writer.initialize();
+
+        assertFalse(cache.isLoaded(set));
+    }
+
+    private static byte[] bytes(int... values) {
+        byte[] bytes = new byte[values.length];
+        for (int i = 0; i < values.length; i++) {
+            bytes[i] = (byte) values[i];
+        }
+        return bytes;
+    }
+
+}
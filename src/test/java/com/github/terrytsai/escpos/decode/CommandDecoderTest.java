@@ -0,0 +1,271 @@
+package com.github.terrytsai.escpos.decode;
+
+import com.github.terrytsai.escpos.EscPosWriter;
+import com.github.terrytsai.escpos.enums.CutA;
+import com.github.terrytsai.escpos.enums.QrErrorCorrection;
+import com.github.terrytsai.escpos.enums.RasterMode;
+import com.github.terrytsai.escpos.image.RasterImage;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.function.IntSupplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class CommandDecoderTest {
+
+    @Test
+    void decodesTextAndCommands() {
+        byte[] stream = stream();
+
+        assertEquals(Arrays.asList(
+                "COMMAND INITIALIZE [1B 40]",
+                "COMPLETED INITIALIZE",
+                "TEXT Total 1.00",
+                "COMMAND PRINT_AND_FEED_LINE [0A]",
+                "COMPLETED PRINT_AND_FEED_LINE",
+                "COMMAND PRINT_RASTER_IMAGE [1D 76 30 00 02 00 02 00] + 4 bytes",
+                "DATA 01 02 03 04",
+                "COMPLETED PRINT_RASTER_IMAGE",
+                "COMMAND SYMBOL [1D 28 6B 04 00 31 41] + 2 bytes",
+                "DATA 32 00",
+                "COMPLETED SYMBOL",
+                "COMMAND SYMBOL [1D 28 6B 03 00 31 43] + 1 bytes",
+                "DATA 03",
+                "COMPLETED SYMBOL",
+                "COMMAND SYMBOL [1D 28 6B 03 00 31 45] + 1 bytes",
+                "DATA 30",
+                "COMPLETED SYMBOL",
+                "COMMAND SYMBOL [1D 28 6B 05 00 31 50] + 3 bytes",
+                "DATA 30 41 42",
+                "COMPLETED SYMBOL",
+                "COMMAND SYMBOL [1D 28 6B 03 00 31 51] + 1 bytes",
+                "DATA 30",
+                "COMPLETED SYMBOL",
+                "COMMAND DEFINE_USER_CHARACTERS [1B 26 03 41 42] + ? bytes",
+                "DATA 01 FF 00 FF 00",
+                "COMPLETED DEFINE_USER_CHARACTERS",
+                "COMMAND CUT [1D 56 00]",
+                "COMPLETED CUT"), decode(stream, stream.length));
+    }
+
+    @Test
+    void inputSplitAnywhereDecodesTheSame() {
+        byte[] stream = stream();
+        List<String> whole = decode(stream, stream.length);
+
+        assertEquals(whole, decode(stream, 1));
+        Random random = new Random(7);
+        for (int i = 0; i < 100; i++) {
+            assertEquals(whole, decode(stream, () -> 1 + random.nextInt(8)));
+        }
+    }
+
+    @Test
+    void userCharacterDataFollowsEachWidth() {
+        Recorder recorder = new Recorder();
+        CommandDecoder decoder = new CommandDecoder(recorder);
+
+        // Character 'A' 2 dots wide with y = 1, character 'B' 0 dots wide, then text
+        decoder.decode(bytes(27, '&', 1, 'A', 'B', 2, 0x80, 0x01, 0, 'C'), 0, 10);
+
+        assertEquals(Arrays.asList(
+                "COMMAND DEFINE_USER_CHARACTERS [1B 26 01 41 42] + ? bytes",
+                "DATA 02 80 01 00",
+                "COMPLETED DEFINE_USER_CHARACTERS",
+                "TEXT C"), recorder.events());
+        assertTrue(decoder.isIdle());
+    }
+
+    @Test
+    void unknownSequencesAreReportedUpToTheByteThatMatchedNothing() {
+        Recorder recorder = new Recorder();
+        CommandDecoder decoder = new CommandDecoder(recorder);
+
+        decoder.decode(bytes(7, 27, 'Z', 'A', 29, 'V', 2, 10), 0, 8);
+
+        assertEquals(Arrays.asList(
+                "UNKNOWN 07",
+                "UNKNOWN 1B 5A",
+                "TEXT A",
+                "UNKNOWN 1D 56 02",
+                "COMMAND PRINT_AND_FEED_LINE [0A]",
+                "COMPLETED PRINT_AND_FEED_LINE"), recorder.events());
+        assertEquals(8, decoder.getPosition());
+    }
+
+    @Test
+    void positionsAndIdleStateFollowTheStream() {
+        List<Long> positions = new ArrayList<>();
+        CommandDecoder decoder = new CommandDecoder(new CommandListener() {
+            @Override
+            public void commandReceived(Command command) {
+                positions.add(command.getPosition());
+            }
+        });
+
+        decoder.decode(bytes('A', 'B', 27, 'd'), 0, 4);
+        assertFalse(decoder.isIdle());
+        decoder.decode(bytes(3, 10), 0, 2);
+
+        assertTrue(decoder.isIdle());
+        assertEquals(Arrays.asList(2L, 5L), positions);
+        assertEquals(6, decoder.getPosition());
+    }
+
+    @Test
+    void resetDropsAPartialCommand() {
+        Recorder recorder = new Recorder();
+        CommandDecoder decoder = new CommandDecoder(recorder);
+
+        decoder.decode(bytes(29, 'v', '0', 0), 0, 4);
+        decoder.reset();
+        decoder.decode(bytes('A'), 0, 1);
+
+        assertEquals(Arrays.asList("TEXT A"), recorder.events());
+    }
+
+    @Test
+    void buffersAndStreamsDecodeTheSame() throws IOException {
+        byte[] stream = stream();
+        List<String> whole = decode(stream, stream.length);
+
+        Recorder direct = new Recorder();
+        ByteBuffer buffer = ByteBuffer.allocateDirect(stream.length);
+        buffer.put(stream).flip();
+        new CommandDecoder(direct).decode(buffer);
+        assertEquals(whole, direct.events());
+        assertFalse(buffer.hasRemaining());
+
+        Recorder in = new Recorder();
+        assertEquals(stream.length, new CommandDecoder(in).decode(new ByteArrayInputStream(stream)));
+        assertEquals(whole, in.events());
+    }
+
+    @Test
+    void rejectsRangesOutsideTheArray() {
+        CommandDecoder decoder = new CommandDecoder(new CommandListener() {
+        });
+
+        assertThrows(IndexOutOfBoundsException.class, () -> decoder.decode(new byte[4], 2, 3));
+        assertThrows(IllegalArgumentException.class, () -> new CommandDecoder(null));
+    }
+
+    private static byte[] stream() {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        new EscPosWriter(out)
+                .initialize()
+                .text("Total 1.00")
+                .printAndFeedLine()
+                .printRasterImage(RasterImage.wrap(bytes(1, 2, 3, 4), 16, 2), RasterMode.NORMAL)
+                .printQrCode("AB", 3, QrErrorCorrection.L)
+                .defineUserCharacters(3, 'A', 'B', bytes(1, 0xFF, 0, 0xFF, 0))
+                .cut(CutA.FULL);
+        return out.toByteArray();
+    }
+
+    private static List<String> decode(byte[] stream, int chunk) {
+        return decode(stream, () -> chunk);
+    }
+
+    private static List<String> decode(byte[] stream, IntSupplier chunks) {
+        Recorder recorder = new Recorder();
+        CommandDecoder decoder = new CommandDecoder(recorder);
+        for (int off = 0, chunk; off < stream.length; off += chunk) {
+            chunk = Math.min(chunks.getAsInt(), stream.length - off);
+            decoder.decode(stream, off, chunk);
+        }
+        assertTrue(decoder.isIdle());
+        assertEquals(stream.length, decoder.getPosition());
+        return recorder.events();
+    }
+
+    private static byte[] bytes(int... values) {
+        byte[] bytes = new byte[values.length];
+        for (int i = 0; i < values.length; i++) {
+            bytes[i] = (byte) values[i];
+        }
+        return bytes;
+    }
+
+    /**
+     * Records the events as strings, joining runs of text and of data that the input split.
+     */
+    private static final class Recorder implements CommandListener {
+
+        private final List<String> events = new ArrayList<>();
+        private StringBuilder run;
+        private String runKind;
+
+        List<String> events() {
+            end();
+            return events;
+        }
+
+        @Override
+        public void textReceived(byte[] data, int off, int len) {
+            run("TEXT").append(new String(data, off, len, StandardCharsets.ISO_8859_1));
+        }
+
+        @Override
+        public void commandReceived(Command command) {
+            event("COMMAND " + command);
+        }
+
+        @Override
+        public void dataReceived(Command command, byte[] data, int off, int len) {
+            StringBuilder sb = run("DATA");
+            for (int i = off; i < off + len; i++) {
+                sb.append(sb.length() == 0 ? "" : " ").append(String.format("%02X", data[i] & 0xFF));
+            }
+        }
+
+        @Override
+        public void commandCompleted(Command command) {
+            event("COMPLETED " + command.getType());
+        }
+
+        @Override
+        public void unknownReceived(byte[] data, int off, int len) {
+            StringBuilder sb = new StringBuilder();
+            for (int i = off; i < off + len; i++) {
+                sb.append(' ').append(String.format("%02X", data[i] & 0xFF));
+            }
+            event("UNKNOWN" + sb);
+        }
+
+        private StringBuilder run(String kind) {
+            if (!kind.equals(runKind)) {
+                end();
+                run = new StringBuilder();
+                runKind = kind;
+            }
+            return run;
+        }
+
+        private void event(String event) {
+            end();
+            events.add(event);
+        }
+
+        private void end() {
+            if (runKind != null) {
+                events.add(runKind + " " + run);
+                runKind = null;
+            }
+        }
+
+    }
+
+}
@@ -0,0 +1,147 @@
+package com.github.terrytsai.escpos.emulator;
+
+import com.github.terrytsai.escpos.EscPosWriter;
+import com.github.terrytsai.escpos.enums.CutA;
+import com.github.terrytsai.escpos.enums.Height;
+import com.github.terrytsai.escpos.enums.Justification;
+import com.github.terrytsai.escpos.enums.RasterMode;
+import com.github.terrytsai.escpos.enums.Width;
+import com.github.terrytsai.escpos.image.RasterImage;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class VirtualPrinterTest {
+
+    @Test
+    void eachCutEndsAReceipt() {
+        VirtualPrinter printer = new VirtualPrinter();
+        new EscPosWriter(printer).initialize()
+                .text("ONE").printAndFeedLine().cut(CutA.PARTIAL)
+                .text("TWO").printAndFeedLine();
+        printer.close();
+
+        List<Receipt> receipts = printer.takeReceipts();
+        assertEquals(2, receipts.size());
+        assertTrue(receipts.get(0).isCut());
+        assertFalse(receipts.get(1).isCut());
+        assertEquals(576, receipts.get(0).getImage().getWidth());
+        assertTrue(printer.takeReceipts().isEmpty());
+    }
+
+    @Test
+    void characterSizeScalesTheGlyphs() {
+        int[] normal = inkBounds(print(w -> w.text("AAAA")));
+        int[] scaled = inkBounds(print(w -> w.setCharacterSize(Width.X2, Height.X2).text("AAAA")));
+
+        assertEquals(2 * (normal[2] - normal[0] + 1), scaled[2] - scaled[0] + 1, 2);
+        assertEquals(2 * (normal[3] - normal[1] + 1), scaled[3] - scaled[1] + 1, 2);
+    }
+
+    @Test
+    void justificationMovesTheLine() {
+        int[] left = inkBounds(print(w -> w.text("AB")));
+        int[] center = inkBounds(print(w -> w.setJustification(Justification.CENTER).text("AB")));
+        int[] right = inkBounds(print(w -> w.setJustification(Justification.RIGHT).text("AB")));
+
+        assertTrue(left[0] < 24);
+        assertEquals(576 / 2, (center[0] + center[2]) / 2, 12);
+        assertTrue(right[2] >= 576 - 24);
+    }
+
+    @Test
+    void rasterImagesArePrintedDotForDot() {
+        byte[] data = new byte[2 * 4];
+        Arrays.fill(data, (byte) 0xFF);
+        Receipt receipt = print(w -> w.printRasterImage(RasterImage.wrap(data, 16, 4), RasterMode.NORMAL));
+
+        assertEquals(Arrays.asList(0, 0, 15, 3), toList(inkBounds(receipt)));
+    }
+
+    @Test
+    void printTimeCoversFeedMotionsAndCut() {
+        VirtualPrinter printer = VirtualPrinter.builder()
+                .printSpeed(100)
+                .motionTime(0, TimeUnit.MILLISECONDS)
+                .cutTime(0, TimeUnit.MILLISECONDS)
+                .build();
+        new EscPosWriter(printer).printAndFeedPaper(200).cut(CutA.FULL);
+        Receipt receipt = printer.takeReceipts().get(0);
+
+        // 200 dots at 8 dots per mm is 25 mm, 250 ms at 100 mm/s
+        assertEquals(200, receipt.getFeedLength());
+        assertEquals(250, receipt.getMechanismTime(TimeUnit.MILLISECONDS));
+        assertEquals(0, receipt.getTransferTime(TimeUnit.MILLISECONDS));
+        assertEquals(250, receipt.getPrintTime(TimeUnit.MILLISECONDS));
+    }
+
+    @Test
+    void slowLinesMakeTransferTheBottleneck() {
+        VirtualPrinter printer = VirtualPrinter.builder().baudRate(9600).build();
+        byte[] data = new byte[72 * 100];
+        new EscPosWriter(printer).printRasterImage(RasterImage.wrap(data, 576, 100), RasterMode.NORMAL)
+                .cut(CutA.FULL);
+        Receipt receipt = printer.takeReceipts().get(0);
+
+        assertTrue(receipt.getTransferTime(TimeUnit.MILLISECONDS) > receipt.getMechanismTime(TimeUnit.MILLISECONDS));
+        assertEquals(receipt.getTransferTime(TimeUnit.MILLISECONDS), receipt.getPrintTime(TimeUnit.MILLISECONDS));
+        assertEquals(data.length + 8 + 3, receipt.getByteCount());
+    }
+
+    @Test
+    void receiptListenerTakesTheReceipts() {
+        List<Receipt> received = new ArrayList<>();
+        VirtualPrinter printer = VirtualPrinter.builder().onReceipt(received::add).build();
+
+        new EscPosWriter(printer).text("A").printAndFeedLine().cut(CutA.FULL);
+
+        assertEquals(1, received.size());
+        assertTrue(printer.takeReceipts().isEmpty());
+    }
+
+    private static Receipt print(Consumer<EscPosWriter> commands) {
+        VirtualPrinter printer = new VirtualPrinter();
+        EscPosWriter writer = new EscPosWriter(printer);
+        commands.accept(writer);
+        writer.printAndFeedLine().cut(CutA.FULL);
+        return printer.takeReceipts().get(0);
+    }
+
+    /**
+     * Left, top, right and bottom dot that is printed.
+     */
+    private static int[] inkBounds(Receipt receipt) {
+        RasterImage image = receipt.getImage();
+        byte[] data = image.getData();
+        int[] bounds = {Integer.MAX_VALUE, Integer.MAX_VALUE, -1, -1};
+        for (int y = 0; y < image.getHeight(); y++) {
+            for (int x = 0; x < image.getWidth(); x++) {
+                if ((data[y * image.getBytesPerRow() + x / 8] & 0x80 >> (x % 8)) != 0) {
+                    bounds[0] = Math.min(bounds[0], x);
+                    bounds[1] = Math.min(bounds[1], y);
+                    bounds[2] = Math.max(bounds[2], x);
+                    bounds[3] = Math.max(bounds[3], y);
+                }
+            }
+        }
+        assertTrue(bounds[2] >= 0, "nothing printed");
+        return bounds;
+    }
+
+    private static List<Integer> toList(int[] values) {
+        List<Integer> list = new ArrayList<>();
+        for (int value : values) {
+            list.add(value);
+        }
+        return list;
+    }
+
+}
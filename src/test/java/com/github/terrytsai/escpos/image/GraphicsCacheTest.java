@@ -0,0 +1,107 @@
+package com.github.terrytsai.escpos.image;
+
+import com.github.terrytsai.escpos.EscPosWriter;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class GraphicsCacheTest {
+
+    private static final RasterImage LOGO = RasterImage.wrap(new byte[]{1, 2, 3}, 8, 3);
+    private static final RasterImage ICON = RasterImage.wrap(new byte[]{4}, 8, 1);
+
+    // GS ( L header, function bytes and image header of a definition, then the print by key code
+    private static final int DEFINE = 16;
+    private static final int PRINT = 11;
+    private static final int DELETE = 9;
+
+    @Test
+    void imageIsDefinedOnceThenPrintedByKeyCode() {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        EscPosWriter writer = new EscPosWriter(out);
+        GraphicsCache cache = new GraphicsCache(GraphicsMemory.DOWNLOAD, 4);
+
+        cache.print(writer, LOGO);
+        assertEquals(DEFINE + 3 + PRINT, out.size());
+
+        out.reset();
+        cache.print(writer, LOGO);
+        assertEquals(PRINT, out.size());
+        assertTrue(cache.contains(LOGO));
+    }
+
+    @Test
+    void leastRecentlyPrintedImageIsDeletedWhenFull() {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        EscPosWriter writer = new EscPosWriter(out);
+        GraphicsCache cache = new GraphicsCache(GraphicsMemory.NV, 1);
+        cache.print(writer, LOGO);
+
+        out.reset();
+        cache.print(writer, ICON);
+
+        assertEquals(DELETE + DEFINE + 1 + PRINT, out.size());
+        assertFalse(cache.contains(LOGO));
+        assertTrue(cache.contains(ICON));
+        assertEquals(1, cache.size());
+    }
+
+    @Test
+    void failedDefinitionIsNotRecorded() {
+        FailingStream out = new FailingStream();
+        EscPosWriter writer = new EscPosWriter(out);
+        GraphicsCache cache = new GraphicsCache(GraphicsMemory.DOWNLOAD, 4);
+
+        out.failing = true;
+        assertThrows(UncheckedIOException.class, () -> cache.print(writer, LOGO));
+        assertFalse(cache.contains(LOGO));
+        assertEquals(0, cache.size());
+
+        out.failing = false;
+        cache.print(writer, LOGO);
+        assertTrue(cache.contains(LOGO));
+    }
+
+    @Test
+    void initializeInvalidatesDownloadGraphicsOnly() {
+        EscPosWriter writer = new EscPosWriter(new ByteArrayOutputStream());
+        GraphicsCache download = new GraphicsCache(GraphicsMemory.DOWNLOAD, 4);
+        GraphicsCache nv = new GraphicsCache(GraphicsMemory.NV, 4);
+        download.bind(writer);
+        nv.bind(writer);
+        download.print(writer, LOGO);
+        nv.print(writer, LOGO);
+
+        writer.initialize();
+
+        assertFalse(download.contains(LOGO));
+        assertTrue(nv.contains(LOGO));
+    }
+
+    private static final class FailingStream extends OutputStream {
+
+        private boolean failing;
+
+        @Override
+        public void write(int b) throws IOException {
+            write(new byte[]{(byte) b}, 0, 1);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            if (failing) {
+                throw new IOException("Port closed");
+            }
+        }
+
+    }
+
+}
@@ -0,0 +1,50 @@
+package com.github.terrytsai.escpos.image;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class RasterImageTest {
+
+    @Test
+    void grayPixelsArePackedMostSignificantBitFirst() {
+        byte[] gray = new byte[10];
+        Arrays.fill(gray, (byte) 255);
+        gray[0] = 0;
+        gray[7] = 0;
+        gray[9] = 127;
+
+        RasterImage image = RasterImage.ofGray(gray, 10, 1, Dither.THRESHOLD);
+
+        assertEquals(2, image.getBytesPerRow());
+        assertArrayEquals(new byte[]{(byte) 0x81, 0x40}, image.getData());
+    }
+
+    @Test
+    void thresholdDecidesWhichDotsPrint() {
+        byte[] gray = {(byte) 100, (byte) 200};
+
+        assertArrayEquals(new byte[]{(byte) 0x80}, RasterImage.ofGray(gray, 2, 1, Dither.THRESHOLD, 128).getData());
+        assertArrayEquals(new byte[]{(byte) 0xC0}, RasterImage.ofGray(gray, 2, 1, Dither.THRESHOLD, 201).getData());
+    }
+
+    @Test
+    void imagesAreEqualByContent() {
+        RasterImage image = RasterImage.wrap(new byte[]{1, 2}, 8, 2);
+
+        assertEquals(image, RasterImage.wrap(new byte[]{1, 2}, 8, 2));
+        assertEquals(image.hashCode(), RasterImage.wrap(new byte[]{1, 2}, 8, 2).hashCode());
+        assertNotEquals(image, RasterImage.wrap(new byte[]{1, 2}, 16, 1));
+    }
+
+    @Test
+    void wrapRejectsDataOfTheWrongSize() {
+        assertThrows(IllegalArgumentException.class, () -> RasterImage.wrap(new byte[3], 9, 2));
+    }
+
+}
@@ -0,0 +1,68 @@
+package com.github.terrytsai.escpos.macro;
+
+import com.github.terrytsai.escpos.EscPosWriter;
+import com.github.terrytsai.escpos.enums.MacroMode;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class MacroCacheTest {
+
+    private static final Macro HEADER = Macro.record(w -> w.text("HI").printAndFeedLine());
+
+    @Test
+    void macroIsDefinedWithGsColonThenExecutedWithGsCaret() {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        MacroCache cache = new MacroCache();
+
+        cache.execute(new EscPosWriter(out), HEADER, 2, 5, MacroMode.CONTINUOUS);
+
+        assertArrayEquals(new byte[]{29, ':', 'H', 'I', 10, 29, ':', 29, '^', 2, 5, 0}, out.toByteArray());
+    }
+
+    @Test
+    void definedMacroIsOnlyExecuted() {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        EscPosWriter writer = new EscPosWriter(out);
+        MacroCache cache = new MacroCache();
+        cache.execute(writer, HEADER);
+
+        out.reset();
+        cache.execute(writer, Macro.of(new byte[]{'H', 'I', 10}));
+
+        assertArrayEquals(new byte[]{29, '^', 1, 0, 0}, out.toByteArray());
+    }
+
+    @Test
+    void failedDefinitionIsNotRecorded() {
+        MacroCache cache = new MacroCache();
+        EscPosWriter failing = new EscPosWriter(new OutputStream() {
+            @Override
+            public void write(int b) throws IOException {
+                throw new IOException("Port closed");
+            }
+        });
+
+        assertThrows(UncheckedIOException.class, () -> cache.execute(failing, HEADER));
+        assertNull(cache.getDefined());
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        cache.execute(new EscPosWriter(out), HEADER);
+        assertEquals(HEADER, cache.getDefined());
+        assertEquals(7 + 5, out.size());
+    }
+
+    @Test
+    void macroLargerThanPrinterStorageIsRejected() {
+        assertThrows(IllegalArgumentException.class, () -> Macro.of(new byte[Macro.MAX_SIZE + 1]));
+    }
+
+}